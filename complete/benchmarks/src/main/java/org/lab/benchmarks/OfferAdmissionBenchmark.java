@@ -0,0 +1,86 @@
+package org.lab.benchmarks;
+
+import org.lab.Application;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.Filter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Overhead of the admission control on the reads of single offers, with and without the admission filter,
+ * from several threads and clients. The limits are high enough for every request to be admitted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class OfferAdmissionBenchmark {
+    private static final int STORED_OFFERS = 1000;
+    private static final int CLIENTS = 100;
+
+    @Param({"true", "false"})
+    public boolean admission;
+
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "offer.admission.enabled=" + admission,
+                        "offer.admission.read-rate=1000000000",
+                        "offer.admission.read-burst=1000000")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBeansOfType(Filter.class).values().toArray(new Filter[0]))
+                .build();
+        final OfferService offerService = context.getBean(OfferService.class);
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offerService.saveOffer(offer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getOffer() throws Exception {
+        final int request = storedIds.getAndIncrement() & Integer.MAX_VALUE;
+        return mockMvc.perform(get("/offer/{id}", request % STORED_OFFERS + 1)
+                .header("X-Client-Id", "client-" + request % CLIENTS)).andReturn();
+    }
+}
@@ -0,0 +1,137 @@
+package org.lab.benchmarks;
+
+import org.lab.Offer;
+import org.lab.storage.OfferCatalog;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of the reads of a catalog of offers held as objects on the heap, and in the off-heap columnar catalog.
+ * The memory retained by each catalog, in MB, is reported as the secondary results of the retainedMemory benchmark;
+ * run with -prof gc to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OfferCatalogBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000000"})
+    public int offers;
+
+    private Map<Integer, Offer> heapCatalog;
+    private OfferCatalog offerCatalog;
+    private long heapCatalogHeap;
+    private long offHeapCatalogHeap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final long initialHeap = usedHeap();
+        heapCatalog = new HashMap<>();
+        for (int id = 1; id <= offers; id++) {
+            final Offer offer = createOffer(id);
+            heapCatalog.put(offer.getId(), offer);
+        }
+        final long afterHeapCatalog = usedHeap();
+        offerCatalog = new OfferCatalog(offers);
+        final List<Offer> page = new ArrayList<>();
+        for (int id = 1; id <= offers; id++) {
+            page.add(createOffer(id));
+            if (page.size() == 10000) {
+                offerCatalog.putAll(page);
+                page.clear();
+            }
+        }
+        offerCatalog.putAll(page);
+        heapCatalogHeap = afterHeapCatalog - initialHeap;
+        offHeapCatalogHeap = usedHeap() - afterHeapCatalog;
+    }
+
+    /**
+     * Memory retained by each catalog in MB, reported by JMH with the results;
+     * the counters are reset on each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedMemory {
+        public long heapCatalogHeap;
+        public long offHeapCatalogHeap;
+        public long offHeapCatalogDirect;
+    }
+
+    private static Offer createOffer(int id) {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(id);
+        offer.setProduct("product " + id % 10000);
+        offer.setPrice(new BigDecimal(id % 1000).movePointLeft(2));
+        offer.setStart(offer.getStart().plusDays(id % 30));
+        offer.setEnd(offer.getStart().plusDays(id % 60));
+        return offer;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(offers) + 1;
+    }
+
+    @Benchmark
+    public Offer heapGet() {
+        return heapCatalog.get(randomId());
+    }
+
+    @Benchmark
+    public Offer catalogGet() {
+        return offerCatalog.get(randomId());
+    }
+
+    @Benchmark
+    public void heapListPage(Blackhole blackhole) {
+        final int first = randomId();
+        for (int id = first; id < first + PAGE_SIZE; id++) {
+            blackhole.consume(heapCatalog.get(id));
+        }
+    }
+
+    @Benchmark
+    public void catalogListPage(Blackhole blackhole) {
+        offerCatalog.forEach(randomId() - 1, PAGE_SIZE, blackhole::consume);
+    }
+
+    @Benchmark
+    public void retainedMemory(RetainedMemory memory) {
+        memory.heapCatalogHeap = heapCatalogHeap >> 20;
+        memory.offHeapCatalogHeap = offHeapCatalogHeap >> 20;
+        memory.offHeapCatalogDirect = offerCatalog.getAllocatedBytes() >> 20;
+    }
+}
@@ -0,0 +1,85 @@
+package org.lab.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Average time of a full MockMvc round trip through the OfferController, down to the in-memory repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferControllerBenchmark {
+    private static final int STORED_OFFERS = 1000;
+
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockMvc mockMvc;
+    private byte[] offerJson;
+
+    @Setup(Level.Trial)
+    public void setup(ApplicationState application) throws Exception {
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) application.getContext()).build();
+        final OfferService offerService = application.getBean(OfferService.class);
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offerService.saveOffer(offer);
+        }
+        offerJson = objectMapper.writeValueAsBytes(OfferUtils.getDefaultOffer());
+    }
+
+    private Integer nextStoredId() {
+        return (storedIds.getAndIncrement() & Integer.MAX_VALUE) % STORED_OFFERS + 1;
+    }
+
+    @Benchmark
+    public MvcResult getOffer() throws Exception {
+        return mockMvc.perform(get("/offer/{id}", nextStoredId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult addOffer() throws Exception {
+        return mockMvc.perform(post("/offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(offerJson)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult updateOffer() throws Exception {
+        final Integer id = nextStoredId();
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(id);
+        return mockMvc.perform(put("/offer/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(offer))).andReturn();
+    }
+}
@@ -0,0 +1,66 @@
+package org.lab.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.lab.Offer;
+import org.lab.services.OfferJsonCache;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of the JSON serialization of an offer, including its LocalDate serializers,
+ * and of the read of its serialization from the JSON cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferJsonBenchmark {
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private OfferJsonCache jsonCache;
+    private Offer offer;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(Offer.class);
+        reader = objectMapper.readerFor(Offer.class);
+        offer = OfferUtils.getDefaultOffer();
+        offer.setId(1);
+        offer.setVersion(1L);
+        json = writer.writeValueAsBytes(offer);
+        jsonCache = new OfferJsonCache(objectMapper, 1000);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(offer);
+    }
+
+    @Benchmark
+    public byte[] serializeCached() {
+        return jsonCache.toJson(offer);
+    }
+
+    @Benchmark
+    public Offer deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
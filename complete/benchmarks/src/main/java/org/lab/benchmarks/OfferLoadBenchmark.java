@@ -0,0 +1,108 @@
+package org.lab.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.lab.Application;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency percentiles of HTTP requests on the offers under concurrent load, in servlet and reactive mode.
+ * Many client threads keep requests in flight at once, so that the servlet mode is bound by its request threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class OfferLoadBenchmark {
+    private static final int STORED_OFFERS = 1000;
+
+    @Param({"servlet", "reactive"})
+    public String mode;
+
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+    private byte[] offerJson;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.valueOf(mode.toUpperCase()))
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/offer";
+        final OfferService offerService = context.getBean(OfferService.class);
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offerService.saveOffer(offer);
+        }
+        offerJson = new ObjectMapper().writeValueAsBytes(OfferUtils.getDefaultOffer());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getOffer() throws IOException {
+        final int id = (storedIds.getAndIncrement() & Integer.MAX_VALUE) % STORED_OFFERS + 1;
+        return request("GET", baseUrl + "/" + id, null);
+    }
+
+    @Benchmark
+    public int addOffer() throws IOException {
+        return request("POST", baseUrl, offerJson);
+    }
+
+    private static int request(String method, String url, byte[] body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+        }
+        final int status = connection.getResponseCode();
+        // reading the whole response lets the connection be kept alive and reused
+        try (InputStream inputStream = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            final byte[] buffer = new byte[4096];
+            while (inputStream != null && inputStream.read(buffer) != -1) {
+                // discard
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,105 @@
+package org.lab.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.lab.Application;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.Filter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Overhead of the metrics on the hot path, comparing the same requests with the metrics enabled and disabled.
+ * Requests go through the servlet filters, including the one timing the HTTP requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferMetricsBenchmark {
+    private static final int STORED_OFFERS = 1000;
+
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private byte[] offerJson;
+    private byte[] invalidOfferJson;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "management.metrics.enable.all=" + metrics,
+                        "management.metrics.web.server.auto-time-requests=" + metrics)
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBeansOfType(Filter.class).values().toArray(new Filter[0]))
+                .build();
+        final OfferService offerService = context.getBean(OfferService.class);
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offerService.saveOffer(offer);
+        }
+        final ObjectMapper objectMapper = new ObjectMapper();
+        offerJson = objectMapper.writeValueAsBytes(OfferUtils.getDefaultOffer());
+        final Offer invalidOffer = OfferUtils.getDefaultOffer();
+        invalidOffer.setEnd(invalidOffer.getStart().minusDays(1));
+        invalidOfferJson = objectMapper.writeValueAsBytes(invalidOffer);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getOffer() throws Exception {
+        final int id = (storedIds.getAndIncrement() & Integer.MAX_VALUE) % STORED_OFFERS + 1;
+        return mockMvc.perform(get("/offer/{id}", id)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult addOffer() throws Exception {
+        return mockMvc.perform(post("/offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(offerJson)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult addInvalidOffer() throws Exception {
+        return mockMvc.perform(post("/offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(invalidOfferJson)).andReturn();
+    }
+}
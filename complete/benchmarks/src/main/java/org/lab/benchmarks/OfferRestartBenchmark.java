@@ -0,0 +1,90 @@
+package org.lab.benchmarks;
+
+import org.lab.Application;
+import org.lab.Offer;
+import org.lab.repositories.OfferRepository;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for the application to be back to serving requests, with its indexes loaded, after a restart
+ * on a durable store holding a given number of offers.
+ * The store is populated once in the target directory, and reused by the following runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xms1g")
+public class OfferRestartBenchmark {
+    private static final int POPULATE_BATCH_SIZE = 10000;
+
+    @Param({"1000000"})
+    public int offers;
+
+    private String dataDir;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        dataDir = new File("target/restart-data-" + offers).getAbsolutePath();
+        try (ConfigurableApplicationContext populateContext = start()) {
+            final OfferRepository offerRepository = populateContext.getBean(OfferRepository.class);
+            final OfferService offerService = populateContext.getBean(OfferService.class);
+            final List<Offer> batch = new ArrayList<>(POPULATE_BATCH_SIZE);
+            for (int id = (int) offerRepository.count() + 1; id <= offers; id++) {
+                final Offer offer = OfferUtils.getDefaultOffer();
+                offer.setId(id);
+                offer.setProduct("product " + id % 10000);
+                batch.add(offer);
+                if (batch.size() == POPULATE_BATCH_SIZE || id == offers) {
+                    offerService.saveOffers(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(Application.class)
+                .profiles("durable")
+                .properties("server.port=0", "logging.level.root=WARN", "offer.data-dir=" + dataDir)
+                .run();
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext restart() {
+        // the indexes are loaded before the application is returned as ready
+        context = start();
+        return context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+}
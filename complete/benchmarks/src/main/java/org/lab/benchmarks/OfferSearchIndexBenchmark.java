@@ -0,0 +1,67 @@
+package org.lab.benchmarks;
+
+import org.lab.Offer;
+import org.lab.index.OfferSearchIndex;
+import org.lab.services.OfferChangeEvent;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of the product lookups on an index of generated offers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class OfferSearchIndexBenchmark {
+    private static final String[] BRANDS = {"acme", "globex", "initech", "umbrella", "hooli", "stark", "wayne", "wonka"};
+    private static final String[] ITEMS = {"tv", "radio", "phone", "laptop", "camera", "speaker", "watch", "tablet"};
+
+    @Param("1000000")
+    private int offers;
+
+    private final OfferSearchIndex offerSearchIndex = new OfferSearchIndex();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(42);
+        for (int id = 1; id <= offers; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offer.setProduct(BRANDS[random.nextInt(BRANDS.length)] + " " + ITEMS[random.nextInt(ITEMS.length)] + " " + random.nextInt(offers / 10));
+            offerSearchIndex.onOfferChange(OfferChangeEvent.saved(offer));
+        }
+    }
+
+    @Benchmark
+    public List<Offer> findByProduct() {
+        return offerSearchIndex.findByProduct("acme tv 42", 100);
+    }
+
+    @Benchmark
+    public List<Offer> findByProductPrefix() {
+        return offerSearchIndex.findByProductPrefix("globex lap", 100);
+    }
+
+    @Benchmark
+    public List<Offer> findByTokens() {
+        return offerSearchIndex.findByTokens("wonka 4242", 100);
+    }
+}
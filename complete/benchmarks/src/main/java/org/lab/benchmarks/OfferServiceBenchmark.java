@@ -0,0 +1,91 @@
+package org.lab.benchmarks;
+
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Average time of the offer service CRUD operations against the in-memory H2 repository.
+ * A repricing is compared as a full update, reading the offer then saving it with its version as the PUT endpoint,
+ * and as a patch of the price alone, with the version as the PATCH endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferServiceBenchmark {
+    private static final int STORED_OFFERS = 1000;
+    private static final int FIRST_NEW_ID = 1000000;
+
+    private final AtomicInteger newIds = new AtomicInteger(FIRST_NEW_ID);
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private OfferService offerService;
+
+    @Setup(Level.Trial)
+    public void setup(ApplicationState application) {
+        offerService = application.getBean(OfferService.class);
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offerService.saveOffer(offer);
+        }
+    }
+
+    private Integer nextStoredId() {
+        return (storedIds.getAndIncrement() & Integer.MAX_VALUE) % STORED_OFFERS + 1;
+    }
+
+    @Benchmark
+    public Offer getOfferById() {
+        return offerService.getOfferById(nextStoredId());
+    }
+
+    @Benchmark
+    public Offer updateOffer() {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(nextStoredId());
+        offer.setPrice(new BigDecimal("12.50"));
+        return offerService.saveOffer(offer);
+    }
+
+    @Benchmark
+    public Offer repriceOfferWithUpdate() {
+        final Offer offer = offerService.getOfferById(nextStoredId());
+        offer.setPrice(offer.getPrice().add(BigDecimal.ONE));
+        return offerService.saveOffer(offer);
+    }
+
+    @Benchmark
+    public Offer repriceOfferWithPatch() {
+        final OfferPatch patch = new OfferPatch();
+        patch.setPrice(new BigDecimal("12.50"));
+        return offerService.patchOffer(nextStoredId(), patch);
+    }
+
+    @Benchmark
+    public Integer createAndDeleteOffer() {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(newIds.incrementAndGet());
+        offerService.saveOffer(offer);
+        offerService.deleteOffer(offer.getId());
+        return offer.getId();
+    }
+}
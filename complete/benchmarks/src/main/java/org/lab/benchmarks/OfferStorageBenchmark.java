@@ -0,0 +1,111 @@
+package org.lab.benchmarks;
+
+import org.lab.Application;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Average time of the offer service writes and reads with the JPA repository and with the append-only log storage.
+ * The cache is disabled, so that reads reach the storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferStorageBenchmark {
+    private static final int STORED_OFFERS = 10000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"jpa", "log"})
+    public String storage;
+
+    private final AtomicInteger newIds = new AtomicInteger(STORED_OFFERS);
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private File logDir;
+    private ConfigurableApplicationContext context;
+    private OfferService offerService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        logDir = new File("target/storage-log-" + System.nanoTime());
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run("--offer.storage=" + storage, "--offer.log.dir=" + logDir.getAbsolutePath(), "--offer.cache.enabled=false");
+        offerService = context.getBean(OfferService.class);
+        final List<Offer> offers = new ArrayList<>();
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            offers.add(createOffer(id));
+        }
+        offerService.saveOffers(offers);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        FileSystemUtils.deleteRecursively(logDir);
+    }
+
+    private static Offer createOffer(int id) {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(id);
+        return offer;
+    }
+
+    private Integer nextStoredId() {
+        return (storedIds.getAndIncrement() & Integer.MAX_VALUE) % STORED_OFFERS + 1;
+    }
+
+    @Benchmark
+    public Offer getOfferById() {
+        return offerService.getOfferById(nextStoredId());
+    }
+
+    @Benchmark
+    public Offer saveNewOffer() {
+        return offerService.saveOffer(createOffer(newIds.incrementAndGet()));
+    }
+
+    @Benchmark
+    public Offer updateOffer() {
+        final Offer offer = createOffer(nextStoredId());
+        offer.setPrice(new BigDecimal("12.50"));
+        return offerService.saveOffer(offer);
+    }
+
+    @Benchmark
+    public List<Offer> saveOffersBatch() {
+        final List<Offer> offers = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            offers.add(createOffer(nextStoredId()));
+        }
+        return offerService.saveOffers(offers);
+    }
+}
@@ -0,0 +1,55 @@
+package org.lab.benchmarks;
+
+import org.lab.Offer;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of the offer checks in OfferUtils.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferUtilsBenchmark {
+    private Offer offer;
+
+    @Setup
+    public void setup() {
+        offer = OfferUtils.getDefaultOffer();
+        offer.setId(1);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return OfferUtils.isValid(offer);
+    }
+
+    @Benchmark
+    public boolean isPeriodValid() {
+        return OfferUtils.isPeriodValid(offer);
+    }
+
+    @Benchmark
+    public boolean isExpired() {
+        return OfferUtils.isExpired(offer);
+    }
+
+    @Benchmark
+    public boolean isStorable() {
+        return OfferUtils.isStorable(offer);
+    }
+}
@@ -0,0 +1,73 @@
+package org.lab.benchmarks;
+
+import org.lab.Offer;
+import org.lab.util.OfferUtils;
+import org.lab.util.OfferValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.time.Period;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of offer validation, before and after sharing the validator.
+ * The baseline reproduces the former validation, bootstrapping a validator factory on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferValidatorBenchmark {
+    private final OfferValidator offerValidator = OfferValidator.getInstance();
+    private Offer validOffer;
+    private Offer invalidOffer;
+
+    @Setup
+    public void setup() {
+        validOffer = OfferUtils.getDefaultOffer();
+        invalidOffer = OfferUtils.getDefaultOffer();
+        invalidOffer.setEnd(invalidOffer.getStart().minusDays(3));
+    }
+
+    @Benchmark
+    public boolean baselineValidOffer() {
+        return isValidWithNewFactory(validOffer);
+    }
+
+    @Benchmark
+    public boolean sharedValidOffer() {
+        return offerValidator.isValid(validOffer);
+    }
+
+    @Benchmark
+    public boolean baselineInvalidPeriod() {
+        return isValidWithNewFactory(invalidOffer);
+    }
+
+    @Benchmark
+    public boolean sharedInvalidPeriod() {
+        return offerValidator.isValid(invalidOffer);
+    }
+
+    private static boolean isValidWithNewFactory(Offer offer) {
+        final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+        final Validator validator = factory.getValidator();
+        final Set<ConstraintViolation<Offer>> violations = validator.validate(offer);
+        return violations.isEmpty() && Period.between(offer.getStart(), offer.getEnd()).getDays() >= 0;
+    }
+}
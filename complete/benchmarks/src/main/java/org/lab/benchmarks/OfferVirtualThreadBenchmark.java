@@ -0,0 +1,131 @@
+package org.lab.benchmarks;
+
+import org.lab.Application;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of slow HTTP requests under high concurrency, with the Tomcat worker pool or with virtual threads.
+ * Each repository call is delayed to stand for a remote database, so the requests in flight are bound by
+ * the worker threads with the pool, and by the clients only with virtual threads.
+ * The virtual mode requires Java 21, and the benchmark JVM must be started with --add-opens java.base/java.lang=ALL-UNNAMED.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1000)
+@Fork(1)
+public class OfferVirtualThreadBenchmark {
+    private static final int STORED_OFFERS = 1000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    private final AtomicInteger storedIds = new AtomicInteger();
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void start() {
+        // the clients keep their connections alive
+        System.setProperty("http.maxConnections", "1000");
+        context = new SpringApplicationBuilder(Application.class, LatencyConfiguration.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "offer.cache.enabled=false",
+                        "offer.virtual-threads.enabled=" + "virtual".equals(threads),
+                        "offer.benchmark.latency-millis=" + latencyMillis)
+                .run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/offer/";
+        final OfferService offerService = context.getBean(OfferService.class);
+        for (int id = 1; id <= STORED_OFFERS; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offerService.saveOffer(offer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getOffer() throws IOException {
+        final int id = (storedIds.getAndIncrement() & Integer.MAX_VALUE) % STORED_OFFERS + 1;
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + id).openConnection();
+        final int status = connection.getResponseCode();
+        try (InputStream inputStream = connection.getInputStream()) {
+            final byte[] buffer = new byte[4096];
+            while (inputStream.read(buffer) != -1) {
+                // discard
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Configuration delaying the reads of the service managing persistence.
+     */
+    @Configuration
+    public static class LatencyConfiguration {
+
+        @Bean
+        public static BeanPostProcessor latencyPostProcessor(Environment environment) {
+            final long latencyMillis = environment.getProperty("offer.benchmark.latency-millis", Long.class, 0L);
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!"offerServiceImpl".equals(beanName)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(OfferService.class.getClassLoader(), new Class<?>[]{OfferService.class},
+                            (proxy, method, args) -> {
+                                if ("getOfferById".equals(method.getName())) {
+                                    Thread.sleep(latencyMillis);
+                                }
+                                try {
+                                    return method.invoke(bean, args);
+                                } catch (final InvocationTargetException e) {
+                                    throw e.getTargetException();
+                                }
+                            });
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.lab.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.lab.Offer;
+import org.lab.util.OfferUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of the encoding and decoding of a page of offers in each wire format of the offer endpoints.
+ * The payload size of a page in each format is reported as the payloadBytes secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OfferWireFormatBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<Offer> offers;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        final ObjectMapper objectMapper;
+        switch (format) {
+            case "smile":
+                objectMapper = Jackson2ObjectMapperBuilder.smile().build();
+                break;
+            case "cbor":
+                objectMapper = Jackson2ObjectMapperBuilder.cbor().build();
+                break;
+            default:
+                objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        }
+        offers = new ArrayList<>(PAGE_SIZE);
+        for (int id = 1; id <= PAGE_SIZE; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offer.setPrice(new BigDecimal(id).movePointLeft(2).add(BigDecimal.TEN));
+            offer.setVersion(0L);
+            offer.setLastModified(Instant.now());
+            offers.add(offer);
+        }
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Offer.class));
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Offer.class));
+        payload = writer.writeValueAsBytes(offers);
+    }
+
+    /**
+     * Payload size of a page, reported by JMH with the results; the counters are reset on each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+        public long payloadBytes;
+    }
+
+    @Benchmark
+    public byte[] encodePage(PayloadSize size) throws IOException {
+        final byte[] result = writer.writeValueAsBytes(offers);
+        size.payloadBytes = result.length;
+        return result;
+    }
+
+    @Benchmark
+    public List<Offer> decodePage(PayloadSize size) throws IOException {
+        size.payloadBytes = payload.length;
+        return reader.readValue(payload);
+    }
+}
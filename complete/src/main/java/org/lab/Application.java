@@ -1,7 +1,12 @@
 package org.lab;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Locale;
 
 /**
  * Application to run a standalone RESTful service.
@@ -10,6 +15,24 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class Application {
 
     public static void main(String[] args) {
-        SpringApplication.run(Application.class, args);
+        final SpringApplication application = new SpringApplication(Application.class);
+        application.setWebApplicationType(getWebApplicationType(args));
+        application.run(args);
+    }
+
+    /**
+     * Returns the web application type set with spring.main.web-application-type, servlet by default.
+     * The environment is created before the spring.main properties are bound, and a servlet environment would
+     * enable the servlet configuration in reactive mode too, so the type is resolved from the arguments,
+     * the system properties and the environment variables before running.
+     *
+     * @param args the command line arguments.
+     * @return the web application type.
+     */
+    static WebApplicationType getWebApplicationType(String[] args) {
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        final String type = environment.getProperty("spring.main.web-application-type", WebApplicationType.SERVLET.name());
+        return WebApplicationType.valueOf(type.trim().toUpperCase(Locale.ROOT));
     }
 }
@@ -1,6 +1,7 @@
 package org.lab;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
@@ -9,11 +10,18 @@ import io.swagger.annotations.ApiModelProperty;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.PositiveOrZero;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Simple representation of an offer.
@@ -23,8 +31,12 @@ import java.time.LocalDate;
  * In this simple version the granularity of the duration period is in days, and only one timezone is considered.
  * An offer is expired if the current date is beyond the end date.
  * An offer can be tracked through its identifier when stored in the system.
+ * A stored offer has a version, incremented on each update, and the time of its last update.
+ * An offer saved with a version replaces the stored one only if the versions match.
+ * The end date is indexed, for the expired offers to be found without scanning the table.
  */
 @Entity
+@Table(indexes = @Index(name = "offer_end", columnList = "end"))
 public class Offer {
     @Id
     //@GeneratedValue(strategy = GenerationType.AUTO)
@@ -54,6 +66,14 @@ public class Offer {
     @ApiModelProperty(required = true, notes = "The offer end date (yyyy-MM-dd)")
     private LocalDate end;
 
+    @Version
+    @ApiModelProperty(notes = "The offer version, incremented on each update")
+    private Long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ApiModelProperty(readOnly = true, notes = "The time of the last update of the offer")
+    private Instant lastModified;
+
     public Integer getId() {
         return id;
     }
@@ -93,4 +113,29 @@ public class Offer {
     public void setEnd(LocalDate end) {
         this.end = end;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Sets the time of the last update to the current time, truncated to milliseconds as in all the storages.
+     */
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        lastModified = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
 }
@@ -0,0 +1,71 @@
+package org.lab;
+
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Result of a single item of a batch request on offers.
+ * The index refers to the position of the item in the request.
+ */
+public class OfferBatchResult {
+
+    /**
+     * Status of a batch item.
+     */
+    public enum Status {
+        OK, INVALID, NOT_FOUND, CONFLICT
+    }
+
+    @ApiModelProperty(notes = "The position of the item in the request")
+    private int index;
+
+    @ApiModelProperty(notes = "The offer id")
+    private Integer id;
+
+    @ApiModelProperty(notes = "The item status")
+    private Status status;
+
+    @ApiModelProperty(notes = "The item message")
+    private String message;
+
+    public OfferBatchResult() {
+    }
+
+    public OfferBatchResult(int index, Integer id, Status status, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
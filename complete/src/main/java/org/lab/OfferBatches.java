@@ -0,0 +1,167 @@
+package org.lab;
+
+import org.lab.util.OfferValidator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validation of the items of batch requests on offers, shared by the controllers.
+ * Each method validates all the items in one pass, collecting the valid ones and returning the result of each item.
+ */
+final class OfferBatches {
+
+    private OfferBatches() {
+    }
+
+    /**
+     * Validates offers to add.
+     * The ids of the valid offers are set in the results once allocated, see {@link #setAllocatedIds(List, List)}.
+     *
+     * @param offers         the offers to add.
+     * @param offerValidator the offer validator.
+     * @param validOffers    the list collecting the valid offers.
+     * @return the result of each offer.
+     */
+    static List<OfferBatchResult> validateNewOffers(List<Offer> offers, OfferValidator offerValidator, List<Offer> validOffers) {
+        final List<OfferBatchResult> results = new ArrayList<>(offers.size());
+        for (int i = 0; i < offers.size(); i++) {
+            final Offer offer = offers.get(i);
+            if (offerValidator.isValid(offer)) {
+                // a new offer has no version yet, whatever the client sent
+                offer.setVersion(null);
+                validOffers.add(offer);
+                results.add(new OfferBatchResult(i, null, OfferBatchResult.Status.OK, null));
+            } else {
+                results.add(new OfferBatchResult(i, null, OfferBatchResult.Status.INVALID, "Offer is invalid"));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Validates offers to update.
+     *
+     * @param offers         the offers to update.
+     * @param offerValidator the offer validator.
+     * @param storableOffers the list collecting the storable offers.
+     * @return the result of each offer.
+     */
+    static List<OfferBatchResult> validateStoredOffers(List<Offer> offers, OfferValidator offerValidator, List<Offer> storableOffers) {
+        final List<OfferBatchResult> results = new ArrayList<>(offers.size());
+        for (int i = 0; i < offers.size(); i++) {
+            final Offer offer = offers.get(i);
+            if (offerValidator.isStorable(offer)) {
+                storableOffers.add(offer);
+                results.add(new OfferBatchResult(i, offer.getId(), OfferBatchResult.Status.OK, null));
+            } else {
+                results.add(new OfferBatchResult(i, offer == null ? null : offer.getId(), OfferBatchResult.Status.INVALID, "Offer is invalid"));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Validates offer ids.
+     *
+     * @param ids      the offer ids.
+     * @param validIds the list collecting the valid ids.
+     * @return the result of each id.
+     */
+    static List<OfferBatchResult> validateIds(List<Integer> ids, List<Integer> validIds) {
+        final List<OfferBatchResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            final Integer id = ids.get(i);
+            if (id == null || id < 1) {
+                results.add(new OfferBatchResult(i, id, OfferBatchResult.Status.INVALID, "Invalid id " + id));
+            } else {
+                validIds.add(id);
+                results.add(new OfferBatchResult(i, id, OfferBatchResult.Status.OK, null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Sets in the results of the valid items the ids allocated to the offers.
+     *
+     * @param results the results of the items.
+     * @param offers  the offers of the items.
+     * @return the results of the items.
+     */
+    static List<OfferBatchResult> setAllocatedIds(List<OfferBatchResult> results, List<Offer> offers) {
+        for (final OfferBatchResult result : results) {
+            if (result.getStatus() == OfferBatchResult.Status.OK) {
+                result.setId(offers.get(result.getIndex()).getId());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the ids of the offers sent with a version and not updated, either missing or modified meanwhile.
+     *
+     * @param offers     the offers to update.
+     * @param updatedIds the ids of the updated offers.
+     * @return the ids of the offers with a version not updated.
+     */
+    static List<Integer> getNotUpdatedVersionedIds(List<Offer> offers, Set<Integer> updatedIds) {
+        final List<Integer> result = new ArrayList<>();
+        for (final Offer offer : offers) {
+            if (offer.getVersion() != null && !updatedIds.contains(offer.getId())) {
+                result.add(offer.getId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of the offers.
+     *
+     * @param offers the offers.
+     * @return the ids of the offers.
+     */
+    static Set<Integer> getIds(List<Offer> offers) {
+        final Set<Integer> result = new HashSet<>();
+        for (final Offer offer : offers) {
+            result.add(offer.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Marks as conflicting the valid items whose offer is stored with another version.
+     *
+     * @param results     the results of the items.
+     * @param conflictIds the ids of the offers stored with another version.
+     * @return the results of the items.
+     */
+    static List<OfferBatchResult> markConflicts(List<OfferBatchResult> results, Set<Integer> conflictIds) {
+        for (final OfferBatchResult result : results) {
+            if (result.getStatus() == OfferBatchResult.Status.OK && conflictIds.contains(result.getId())) {
+                result.setStatus(OfferBatchResult.Status.CONFLICT);
+                result.setMessage("Offer with id " + result.getId() + " has been modified");
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Marks as not found the valid items whose id is not among the found ones.
+     *
+     * @param results  the results of the items.
+     * @param foundIds the ids found.
+     * @return the results of the items.
+     */
+    static List<OfferBatchResult> markNotFound(List<OfferBatchResult> results, Set<Integer> foundIds) {
+        for (final OfferBatchResult result : results) {
+            if (result.getStatus() == OfferBatchResult.Status.OK && !foundIds.contains(result.getId())) {
+                result.setStatus(OfferBatchResult.Status.NOT_FOUND);
+                result.setMessage("No offer found with id " + result.getId());
+            }
+        }
+        return results;
+    }
+}
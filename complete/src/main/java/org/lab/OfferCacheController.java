@@ -0,0 +1,46 @@
+package org.lab;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.lab.services.CachingOfferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Controller exposing the statistics of the in-memory offer cache.
+ */
+@RestController
+@ConditionalOnExpression("${offer.cache.enabled:true} and !${offer.catalog.enabled:false}")
+@Api(value = "offer-cache-controller", description = "Offer cache statistics")
+public class OfferCacheController {
+
+    private CachingOfferService cachingOfferService;
+
+    @Autowired
+    public void setCachingOfferService(CachingOfferService cachingOfferService) {
+        this.cachingOfferService = cachingOfferService;
+    }
+
+    @RequestMapping(value = "/offer/cache/stats", method = GET)
+    @ApiOperation(value = "Get the hit, miss and eviction counters of the offer cache")
+    public ResponseEntity getStats() {
+        final CacheStats stats = cachingOfferService.getStats();
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cachingOfferService.getSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        result.put("hitRate", stats.hitRate());
+        return new ResponseEntity(result, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,278 @@
+package org.lab;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.lab.configuration.FeedProperties;
+import org.lab.services.OfferChange;
+import org.lab.services.OfferChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Controller streaming the changes of the offers as Server-Sent Events, so that consumers keep a replica
+ * of the offers in sync without polling them.
+ * Each change is an event named after its type (CREATED, UPDATED or DELETED), with the change as JSON data.
+ * The event id is the epoch of the feed and the sequence number of the change, so that a consumer reconnecting
+ * with the Last-Event-ID header, or the after parameter, resumes after the last change received.
+ * When the changes following that id are no longer in the feed, as the consumer fell too far behind
+ * or the application restarted, the consumer gets a reset event: it reloads the offers, then applies the changes
+ * following the reset event.
+ * Each consumer reads the feed from its own position on a shared pool of threads, into a bounded queue
+ * of events sent from a thread of its own, so a slow consumer never holds up the writers of the offers
+ * nor the other consumers. A consumer falling behind the feed gets a reset event and is disconnected.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "offer.feed.enabled", havingValue = "true", matchIfMissing = true)
+@Api(value = "offer-change-controller", description = "Offer change feed")
+public class OfferChangeController {
+    private static final int BATCH_SIZE = 1000;
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final String RESET = "RESET";
+
+    private OfferChangeFeed offerChangeFeed;
+    private FeedProperties properties;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService sender;
+
+    @Autowired
+    public void setOfferChangeFeed(OfferChangeFeed offerChangeFeed) {
+        this.offerChangeFeed = offerChangeFeed;
+    }
+
+    @Autowired
+    public void setFeedProperties(FeedProperties properties) {
+        this.properties = properties;
+        final AtomicInteger threads = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(properties.getThreads(), runnable -> {
+            final Thread thread = new Thread(runnable, "offer-feed-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final AtomicInteger senders = new AtomicInteger();
+        this.sender = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "offer-feed-send-" + senders.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    @RequestMapping(value = "/offer/changes", method = GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation(value = "Stream the changes of the offers as Server-Sent Events, starting after a given event id")
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(required = false) String after,
+                                                    @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        final SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        final String eventId = after != null ? after : lastEventId;
+        final Subscription subscription;
+        if (eventId == null) {
+            // only the changes from now on
+            subscription = new Subscription(emitter, offerChangeFeed.getLastSequence(), false);
+        } else {
+            final long[] position = parseEventId(eventId);
+            if (position == null) {
+                return streamingMessage(emitter, "Invalid event id " + eventId);
+            }
+            final boolean resumable = position[0] == offerChangeFeed.getEpoch() && position[1] <= offerChangeFeed.getLastSequence();
+            subscription = new Subscription(emitter, position[1], !resumable);
+        }
+        subscription.start();
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Returns the epoch and the sequence number of an event id.
+     *
+     * @param eventId the event id.
+     * @return the epoch and the sequence number, or null if the id is invalid.
+     */
+    private static long[] parseEventId(String eventId) {
+        final int separator = eventId.indexOf('-');
+        try {
+            final long[] result = {Long.parseLong(eventId.substring(0, separator)), Long.parseLong(eventId.substring(separator + 1))};
+            return result[1] < 0 ? null : result;
+        } catch (final NumberFormatException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return offerChangeFeed.getEpoch() + "-" + sequence;
+    }
+
+    /**
+     * Returns a 400 response with a message sent as the only event of the stream.
+     *
+     * @param emitter the emitter of the stream.
+     * @param message the message.
+     * @return the response.
+     */
+    private static ResponseEntity<SseEmitter> streamingMessage(SseEmitter emitter, String message) {
+        try {
+            emitter.send(message, MediaType.TEXT_PLAIN);
+            emitter.complete();
+        } catch (final IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(emitter);
+    }
+
+    /**
+     * Stream of the changes to a consumer: the feed is read at each poll interval from the last change read,
+     * on the shared pool, into a bounded queue of events, sent to the consumer from a thread of its own.
+     * The queue being full, the feed is no longer read for the consumer; once its next change is overwritten,
+     * the events waiting are dropped, and the consumer gets a reset event and is disconnected.
+     */
+    private final class Subscription implements Runnable {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> events;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private long sequence;
+        private boolean reset;
+        private long lastReadTime = System.nanoTime();
+        private volatile boolean completing;
+        private volatile boolean stopped;
+        private volatile ScheduledFuture<?> future;
+
+        Subscription(SseEmitter emitter, long sequence, boolean reset) {
+            this.emitter = emitter;
+            this.events = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            this.sequence = sequence;
+            this.reset = reset;
+        }
+
+        void start() {
+            emitter.onCompletion(this::cancel);
+            emitter.onTimeout(this::cancel);
+            final long interval = properties.getPollInterval().toMillis();
+            future = scheduler.scheduleWithFixedDelay(this, 0, interval, TimeUnit.MILLISECONDS);
+            if (stopped) {
+                // stopped by its first run, before the future was known
+                future.cancel(false);
+            }
+        }
+
+        private void cancel() {
+            stopPolling();
+            events.clear();
+        }
+
+        private void stopPolling() {
+            stopped = true;
+            final ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+
+        /**
+         * Reads the changes following the last one read, as many as there is room for, without blocking.
+         */
+        @Override
+        public void run() {
+            if (stopped) {
+                return;
+            }
+            if (!reset) {
+                final List<OfferChange> changes = offerChangeFeed.read(sequence, Math.max(1, Math.min(BATCH_SIZE, events.remainingCapacity())));
+                if (changes == null) {
+                    // fallen behind the feed, the consumer reloads the offers and reconnects
+                    stopPolling();
+                    events.clear();
+                    events.offer(resetEvent());
+                    completing = true;
+                } else {
+                    read(changes);
+                }
+            } else {
+                reset = false;
+                events.offer(resetEvent());
+            }
+            sendQueued();
+        }
+
+        private void read(List<OfferChange> changes) {
+            for (final OfferChange change : changes) {
+                if (!events.offer(SseEmitter.event().id(eventId(change.getSequence())).name(change.getType().name()).data(change))) {
+                    // read again once there is room
+                    return;
+                }
+                sequence = change.getSequence();
+            }
+            final long now = System.nanoTime();
+            if (!changes.isEmpty()) {
+                lastReadTime = now;
+            } else if (now - lastReadTime >= properties.getHeartbeatInterval().toNanos()
+                    && events.offer(SseEmitter.event().comment("heartbeat"))) {
+                lastReadTime = now;
+            }
+        }
+
+        private SseEmitter.SseEventBuilder resetEvent() {
+            sequence = offerChangeFeed.getLastSequence();
+            lastReadTime = System.nanoTime();
+            return SseEmitter.event().id(eventId(sequence)).name(RESET).data(sequence);
+        }
+
+        private void sendQueued() {
+            if (!events.isEmpty() && sending.compareAndSet(false, true)) {
+                sender.execute(this::send);
+            }
+        }
+
+        /**
+         * Sends the queued events, one sender at a time, then completes the stream if the consumer is disconnected.
+         */
+        private void send() {
+            try {
+                while (true) {
+                    SseEmitter.SseEventBuilder event;
+                    while ((event = events.poll()) != null) {
+                        emitter.send(event);
+                    }
+                    if (completing && events.isEmpty()) {
+                        emitter.complete();
+                        return;
+                    }
+                    sending.set(false);
+                    // an event queued, or the stream to complete, after the last poll
+                    if ((events.isEmpty() && !completing) || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (final IOException | IllegalStateException e) {
+                // the consumer is gone, or the stream completed
+                cancel();
+            }
+        }
+    }
+}
@@ -1,65 +1,313 @@
 package org.lab;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import org.lab.ids.OfferIdAllocator;
+import org.lab.services.OfferJsonCache;
 import org.lab.services.OfferService;
-import org.lab.util.OfferUtils;
+import org.lab.util.OfferValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.springframework.web.bind.annotation.RequestMethod.*;
 
 /**
  * Offer controller for the RESTful service.
+ * It serves requests when the application runs as a servlet application, the default.
+ * An offer is read with its version as ETag, and updated only if it matches the If-Match header, when present.
+ * An offer is patched with a JSON merge patch, validated and written only on the fields it changes.
+ * The JSON representation of an offer read by id is cached, when the cache is enabled (offer.json-cache.enabled).
+ * Offers are exchanged in JSON, or in the binary formats of {@link OfferFormat} negotiated with the Accept
+ * and Content-Type headers.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Api(value = "offer-controller", description = "Offer RESTful API")
 public class OfferController {
+    private static final int MAX_PAGE_SIZE = 100000;
+    private static final int MAX_BATCH_SIZE = 10000;
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
 
+    private final OfferValidator offerValidator = OfferValidator.getInstance();
     private OfferService offerService;
+    private OfferIdAllocator offerIdAllocator;
+    private ObjectMapper objectMapper = new ObjectMapper();
+    // built as the ones of the message converters of Spring MVC for the binary formats
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    private OfferJsonCache offerJsonCache;
 
     @Autowired
     public void setOfferService(OfferService offerService) {
         this.offerService = offerService;
     }
 
+    @Autowired
+    public void setOfferIdAllocator(OfferIdAllocator offerIdAllocator) {
+        this.offerIdAllocator = offerIdAllocator;
+    }
+
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired(required = false)
+    public void setOfferJsonCache(OfferJsonCache offerJsonCache) {
+        this.offerJsonCache = offerJsonCache;
+    }
+
     @RequestMapping(value = "/offer", method = POST)
     @ApiOperation(value = "Add an offer")
     public ResponseEntity addOffer(@RequestBody Offer offer) {
-        if (!OfferUtils.isValid(offer)) {
+        if (!offerValidator.isValid(offer)) {
             return new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST);
         }
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(offerIdAllocator.nextId());
+        // a new offer has no version yet, whatever the client sent
+        offer.setVersion(null);
         offerService.saveOffer(offer);
         return new ResponseEntity(offer, HttpStatus.OK);
     }
 
+    @RequestMapping(value = "/offer/batch", method = POST)
+    @ApiOperation(value = "Add a batch of offers, reporting the result of each one")
+    public ResponseEntity addOffers(@RequestBody List<Offer> offers) {
+        if (offers.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity("Batch exceeds " + MAX_BATCH_SIZE + " offers", HttpStatus.BAD_REQUEST);
+        }
+        final List<Offer> validOffers = new ArrayList<>(offers.size());
+        final List<OfferBatchResult> results = OfferBatches.validateNewOffers(offers, offerValidator, validOffers);
+        for (final Offer offer : validOffers) {
+            offer.setId(offerIdAllocator.nextId());
+        }
+        offerService.saveOffers(validOffers);
+        return new ResponseEntity(OfferBatches.setAllocatedIds(results, offers), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/offer/batch", method = PUT)
+    @ApiOperation(value = "Update a batch of offers, reporting the result of each one")
+    public ResponseEntity updateOffers(@RequestBody List<Offer> offers) {
+        if (offers.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity("Batch exceeds " + MAX_BATCH_SIZE + " offers", HttpStatus.BAD_REQUEST);
+        }
+        final List<Offer> storableOffers = new ArrayList<>(offers.size());
+        final List<OfferBatchResult> results = OfferBatches.validateStoredOffers(offers, offerValidator, storableOffers);
+        final Set<Integer> updatedIds = offerService.updateOffers(storableOffers);
+        final List<Integer> staleIds = OfferBatches.getNotUpdatedVersionedIds(storableOffers, updatedIds);
+        // the offers skipped despite a version are told apart from the missing ones by reading them, only then
+        final Set<Integer> conflictIds = staleIds.isEmpty() ? Collections.emptySet()
+                : OfferBatches.getIds(offerService.getOffersByIds(staleIds));
+        return new ResponseEntity(OfferBatches.markNotFound(OfferBatches.markConflicts(results, conflictIds), updatedIds), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/offer/batch", method = DELETE)
+    @ApiOperation(value = "Delete a batch of offers with given ids, reporting the result of each one")
+    public ResponseEntity deleteOffers(@RequestBody List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity("Batch exceeds " + MAX_BATCH_SIZE + " offers", HttpStatus.BAD_REQUEST);
+        }
+        final List<Integer> validIds = new ArrayList<>(ids.size());
+        final List<OfferBatchResult> results = OfferBatches.validateIds(ids, validIds);
+        final Set<Integer> deletedIds = offerService.deleteOffers(validIds);
+        return new ResponseEntity(OfferBatches.markNotFound(results, deletedIds), HttpStatus.OK);
+    }
+
     @RequestMapping(value = "/offer/{id}", method = PUT)
     @ApiOperation(value = "Update an offer with a given id")
-    public ResponseEntity updateOffer(@PathVariable Integer id, @RequestBody Offer offer) {
+    public ResponseEntity updateOffer(@PathVariable Integer id, @RequestBody Offer offer,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (id == null || id < 1) {
             return new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST);
         }
-        if (!OfferUtils.isStorable(offer)) {
+        if (!offerValidator.isStorable(offer)) {
             return new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST);
         }
         final Offer storedOffer = offerService.getOfferById(id);
         if (storedOffer == null) {
             return new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST);
         }
-        final Offer resultOffer = offerService.saveOffer(offer);
-        return new ResponseEntity(resultOffer, HttpStatus.OK);
+        if (!OfferPreconditions.checkIfMatch(ifMatch, storedOffer, offer)) {
+            return OfferPreconditions.modified(id);
+        }
+        final Offer resultOffer;
+        try {
+            resultOffer = offerService.saveOffer(offer);
+        } catch (final OptimisticLockingFailureException e) {
+            return OfferPreconditions.modified(id);
+        }
+        return OfferPreconditions.ok(resultOffer).body(resultOffer);
+    }
+
+    @RequestMapping(value = "/offer/{id}", method = PATCH, consumes = {OfferController.MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ApiOperation(value = "Update some fields of an offer with a given id, with a JSON merge patch")
+    public ResponseEntity patchOffer(@PathVariable Integer id, @RequestBody OfferPatch patch,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (id == null || id < 1 || (patch.getId() != null && !patch.getId().equals(id))) {
+            return new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST);
+        }
+        if (!offerValidator.isValid(patch)) {
+            return new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST);
+        }
+        final Long version = OfferPreconditions.ifMatchVersion(ifMatch, () -> offerService.getOfferById(id));
+        if (version != null) {
+            if (patch.getVersion() != null && !patch.getVersion().equals(version)) {
+                return OfferPreconditions.modified(id);
+            }
+            patch.setVersion(version);
+        }
+        final Offer resultOffer;
+        try {
+            resultOffer = offerService.patchOffer(id, patch);
+        } catch (final OptimisticLockingFailureException e) {
+            return OfferPreconditions.modified(id);
+        } catch (final DataIntegrityViolationException e) {
+            return new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST);
+        }
+        if (resultOffer == null) {
+            return new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST);
+        }
+        return OfferPreconditions.ok(resultOffer).body(resultOffer);
+    }
+
+    @RequestMapping(value = "/offer", method = GET)
+    @ApiOperation(value = "List offers by ascending id, starting after a given id")
+    public ResponseEntity<StreamingResponseBody> listOffers(@RequestParam(defaultValue = "0") Integer after,
+                                                            @RequestParam(defaultValue = "100") Integer limit,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (after < 0) {
+            return streamingMessage("Invalid id " + after, HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return streamingMessage("Invalid limit " + limit, HttpStatus.BAD_REQUEST);
+        }
+        final OfferFormat format = OfferFormat.negotiate(accept);
+        final ObjectMapper mapper = getObjectMapper(format);
+        // the array is written while offers are read, the next page starts after the last id received
+        final StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                offerService.listAllOffers(after, limit, offer -> {
+                    try {
+                        generator.writeObject(offer);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+    }
+
+    @RequestMapping(value = "/offer", method = GET, params = "ids")
+    @ApiOperation(value = "Get the offers with the given ids, reporting the ids not found")
+    public ResponseEntity<StreamingResponseBody> getOffersByIds(@RequestParam List<Integer> ids,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return lookupOffers(ids, accept);
+    }
+
+    @RequestMapping(value = "/offer/lookup", method = POST)
+    @ApiOperation(value = "Get the offers with the ids listed in the body, reporting the ids not found")
+    public ResponseEntity<StreamingResponseBody> lookupOffers(@RequestBody List<Integer> ids,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return streamingMessage("Lookup exceeds " + MAX_BATCH_SIZE + " ids", HttpStatus.BAD_REQUEST);
+        }
+        // each id is looked up once, invalid ids are reported as not found
+        final Set<Integer> distinctIds = new LinkedHashSet<>(ids);
+        final List<Integer> validIds = new ArrayList<>(distinctIds.size());
+        for (final Integer id : distinctIds) {
+            if (id != null && id > 0) {
+                validIds.add(id);
+            }
+        }
+        final Map<Integer, Offer> offers = new HashMap<>(validIds.size());
+        for (final Offer offer : offerService.getOffersByIds(validIds)) {
+            offers.put(offer.getId(), offer);
+        }
+        final OfferFormat format = OfferFormat.negotiate(accept);
+        final ObjectMapper mapper = getObjectMapper(format);
+        // the offers are written in the order of the ids, followed by the ids not found
+        final StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("offers");
+                for (final Integer id : validIds) {
+                    final Offer offer = offers.get(id);
+                    if (offer != null) {
+                        generator.writeObject(offer);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("notFound");
+                for (final Integer id : distinctIds) {
+                    if (!offers.containsKey(id)) {
+                        generator.writeObject(id);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+    }
+
+    private ObjectMapper getObjectMapper(OfferFormat format) {
+        switch (format) {
+            case SMILE:
+                return smileMapper;
+            case CBOR:
+                return cborMapper;
+            default:
+                return objectMapper;
+        }
+    }
+
+    /**
+     * Returns a plain text message for endpoints streaming their response body.
+     *
+     * @param message the message.
+     * @param status  the response status.
+     * @return a plain text message for endpoints streaming their response body.
+     */
+    private static ResponseEntity<StreamingResponseBody> streamingMessage(String message, HttpStatus status) {
+        final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_PLAIN).body(outputStream -> outputStream.write(bytes));
     }
 
     @RequestMapping(value = "/offer/{id}", method = GET)
     @ApiOperation(value = "Get an offer with a given id")
-    public ResponseEntity getOffers(@PathVariable Integer id) {
+    public ResponseEntity getOffers(@PathVariable Integer id, WebRequest webRequest) {
         if (id == null || id < 1) {
             return new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST);
         }
@@ -67,6 +315,14 @@ public class OfferController {
         if (offer == null) {
             return new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST);
         }
+        // a request matching the ETag or Last-Modified headers gets a 304 response, without serializing the offer
+        if (OfferPreconditions.checkNotModified(webRequest, offer)) {
+            return null;
+        }
+        if (offerJsonCache != null && OfferFormat.negotiate(webRequest.getHeader(HttpHeaders.ACCEPT)) == OfferFormat.JSON) {
+            // the cached bytes are written as they are, skipping Jackson
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(offerJsonCache.toJson(offer));
+        }
         return new ResponseEntity(offer, HttpStatus.OK);
     }
 
@@ -0,0 +1,59 @@
+package org.lab;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Wire formats of the offers served by the controllers: JSON, and the Smile and CBOR binary encodings
+ * of the same Jackson model, sparing the clients the parsing of dates and prices from text.
+ * Request bodies in any of the formats are read by the message converters registered by Spring MVC.
+ */
+enum OfferFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    SMILE(new MediaType("application", "x-jackson-smile")),
+    CBOR(new MediaType("application", "cbor"));
+
+    private final MediaType mediaType;
+
+    OfferFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns the format of a response, the one of the acceptable media types with the highest quality.
+     * JSON is returned when the Accept header is missing, invalid or does not include any of the formats,
+     * as the offer endpoints always did.
+     *
+     * @param accept the Accept header, or null.
+     * @return the format of the response.
+     */
+    static OfferFormat negotiate(String accept) {
+        if (accept == null) {
+            return JSON;
+        }
+        final List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (final InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (final MediaType acceptable : mediaTypes) {
+            if (acceptable.getQualityValue() == 0) {
+                continue;
+            }
+            for (final OfferFormat format : values()) {
+                if (acceptable.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return JSON;
+    }
+}
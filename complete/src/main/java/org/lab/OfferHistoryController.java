@@ -0,0 +1,112 @@
+package org.lab;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.lab.index.OfferHistory;
+import org.lab.services.OfferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Offer history controller for the RESTful service, answering the price and period of the offers at a given time
+ * from the history stored in the database and cached in memory. Only the latest revisions of each offer are kept:
+ * a time before the first one kept is answered as unavailable, unless the offer was created then.
+ * An offer whose history is not kept is answered from its current revision.
+ * The requests for the current offers are served by the offer controllers, and never read the history.
+ */
+@RestController
+@Api(value = "offer-history-controller", description = "Offer history RESTful API")
+public class OfferHistoryController {
+    private OfferHistory offerHistory;
+    private OfferService offerService;
+
+    @Autowired
+    public void setOfferHistory(OfferHistory offerHistory) {
+        this.offerHistory = offerHistory;
+    }
+
+    @Autowired
+    public void setOfferService(OfferService offerService) {
+        this.offerService = offerService;
+    }
+
+    @RequestMapping(value = "/offer/{id}/history", method = GET)
+    @ApiOperation(value = "Get the revisions of the price and period of an offer with a given id, oldest first,"
+            + " the latest ones being kept")
+    public ResponseEntity getHistory(@PathVariable Integer id) {
+        if (id == null || id < 1) {
+            return new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST);
+        }
+        List<OfferRevision> revisions = offerHistory.getRevisions(id);
+        if (revisions == null) {
+            final Offer offer = offerService.getOfferById(id);
+            if (offer == null) {
+                return new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST);
+            }
+            revisions = Collections.singletonList(OfferRevision.of(offer));
+        }
+        return new ResponseEntity(revisions, HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/offer/{id}", method = GET, params = "asOf")
+    @ApiOperation(value = "Get the price and period of an offer with a given id at a given time"
+            + " (ISO instant, or yyyy-MM-dd for the start of the day in UTC),"
+            + " unavailable before the first revision kept")
+    public ResponseEntity getOfferAsOf(@PathVariable Integer id, @RequestParam String asOf) {
+        if (id == null || id < 1) {
+            return new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST);
+        }
+        final Instant time;
+        try {
+            time = parseTime(asOf);
+        } catch (final DateTimeParseException e) {
+            return new ResponseEntity("Invalid time " + asOf, HttpStatus.BAD_REQUEST);
+        }
+        final List<OfferRevision> revisions = offerHistory.getRevisions(id);
+        OfferRevision revision = null;
+        if (revisions != null) {
+            revision = offerHistory.findAsOf(id, time);
+            // the offer existed before the first revision kept unless created by it
+            if (revision == null && revisions.get(0).getVersion() != 0L) {
+                return historyUnavailable(id, revisions.get(0).getValidFrom());
+            }
+        } else {
+            final Offer offer = offerService.getOfferById(id);
+            if (offer != null && offer.getLastModified() != null && offer.getLastModified().isAfter(time)) {
+                return historyUnavailable(id, offer.getLastModified());
+            }
+            if (offer != null) {
+                revision = OfferRevision.of(offer);
+            }
+        }
+        if (revision == null || revision.isDeleted()) {
+            return new ResponseEntity("No offer found with id " + id + " as of " + time, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity(revision, HttpStatus.OK);
+    }
+
+    private static ResponseEntity historyUnavailable(Integer id, Instant earliest) {
+        return new ResponseEntity("History of offer " + id + " unavailable before " + earliest, HttpStatus.GONE);
+    }
+
+    private static Instant parseTime(String time) {
+        if (time.length() == 10) {
+            return LocalDate.parse(time).atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+        return Instant.parse(time);
+    }
+}
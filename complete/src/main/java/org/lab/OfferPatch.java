@@ -0,0 +1,142 @@
+package org.lab;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * JSON merge patch of an offer, changing only the fields present in it.
+ * A field present with a null value is set to null, and the fields absent are left as they are.
+ * The id, when present, must be the one of the patched offer, and the version, when present,
+ * must match the stored one. The time of the last update is set by the storage, and ignored in a patch.
+ */
+public class OfferPatch {
+    @ApiModelProperty(notes = "The offer id, if present it must be the one of the patched offer")
+    private Integer id;
+
+    @ApiModelProperty(notes = "The product on offer")
+    private String product;
+    private boolean productPresent;
+
+    @ApiModelProperty(notes = "The offer price")
+    private BigDecimal price;
+    private boolean pricePresent;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonDeserialize(using = LocalDateDeserializer.class)
+    @ApiModelProperty(notes = "The offer start date (yyyy-MM-dd)")
+    private LocalDate start;
+    private boolean startPresent;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonDeserialize(using = LocalDateDeserializer.class)
+    @ApiModelProperty(notes = "The offer end date (yyyy-MM-dd)")
+    private LocalDate end;
+    private boolean endPresent;
+
+    @ApiModelProperty(notes = "The expected version of the offer, if present the patch is applied only if it matches")
+    private Long version;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public void setProduct(String product) {
+        this.product = product;
+        this.productPresent = true;
+    }
+
+    public boolean hasProduct() {
+        return productPresent;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+        this.pricePresent = true;
+    }
+
+    public boolean hasPrice() {
+        return pricePresent;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+        this.startPresent = true;
+    }
+
+    public boolean hasStart() {
+        return startPresent;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+        this.endPresent = true;
+    }
+
+    public boolean hasEnd() {
+        return endPresent;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Returns true if the patch changes no field.
+     *
+     * @return true if the patch changes no field.
+     */
+    @JsonIgnore
+    public boolean isEmpty() {
+        return !productPresent && !pricePresent && !startPresent && !endPresent;
+    }
+
+    /**
+     * Sets the fields present in the patch in the offer.
+     *
+     * @param offer the offer.
+     */
+    public void applyTo(Offer offer) {
+        if (productPresent) {
+            offer.setProduct(product);
+        }
+        if (pricePresent) {
+            offer.setPrice(price);
+        }
+        if (startPresent) {
+            offer.setStart(start);
+        }
+        if (endPresent) {
+            offer.setEnd(end);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.lab;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * HTTP conditional requests on offers, shared by the controllers.
+ * The entity tag of an offer is its version, and its last modification time is the time of its last update.
+ * A read of an offer matching If-None-Match or If-Modified-Since gets a 304 response without body,
+ * an update of an offer not matching If-Match gets a 412 response.
+ */
+final class OfferPreconditions {
+
+    private OfferPreconditions() {
+    }
+
+    /**
+     * Returns the entity tag of the offer.
+     *
+     * @param offer the offer.
+     * @return the entity tag, or null if the offer has no version.
+     */
+    static String eTag(Offer offer) {
+        return offer.getVersion() == null ? null : "\"" + offer.getVersion() + "\"";
+    }
+
+    /**
+     * Returns a 200 response builder with the ETag and Last-Modified headers of the offer.
+     * The 304 response to a GET request whose preconditions match these headers is sent by Spring MVC and WebFlux,
+     * without writing the body.
+     *
+     * @param offer the offer.
+     * @return the response builder.
+     */
+    static ResponseEntity.BodyBuilder ok(Offer offer) {
+        final ResponseEntity.BodyBuilder result = ResponseEntity.ok();
+        final String eTag = eTag(offer);
+        if (eTag != null) {
+            result.eTag(eTag);
+        }
+        if (offer.getLastModified() != null) {
+            result.lastModified(offer.getLastModified().toEpochMilli());
+        }
+        return result;
+    }
+
+    /**
+     * Checks the If-None-Match and If-Modified-Since headers of a read against the offer, before writing its body.
+     * The ETag and Last-Modified headers of the offer are set in the response.
+     *
+     * @param request the request.
+     * @param offer   the offer.
+     * @return true if the response is 304, with nothing else to write.
+     */
+    static boolean checkNotModified(WebRequest request, Offer offer) {
+        return request.checkNotModified(eTag(offer), offer.getLastModified() == null ? -1 : offer.getLastModified().toEpochMilli());
+    }
+
+    /**
+     * Checks the If-Match header of an update against the stored offer.
+     * When the header lists the entity tag of the stored offer, its version is set in the offer to save,
+     * so that the storage rejects the update if the offer has been updated meanwhile.
+     *
+     * @param ifMatch     the If-Match header, or null.
+     * @param storedOffer the stored offer.
+     * @param offer       the offer to save.
+     * @return false if the header is present and does not match the stored offer.
+     */
+    static boolean checkIfMatch(String ifMatch, Offer storedOffer, Offer offer) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return true;
+        }
+        final String eTag = eTag(storedOffer);
+        for (final String tag : ifMatch.split(",")) {
+            // weak tags never match, If-Match uses the strong comparison
+            if (tag.trim().equals(eTag)) {
+                offer.setVersion(storedOffer.getVersion());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the version that the If-Match header of an update applied without reading the stored offer asks for.
+     * A header with a single entity tag gives its version, a header listing several ones is checked against
+     * the stored offer, read only in this case.
+     *
+     * @param ifMatch     the If-Match header, or null.
+     * @param storedOffer the supplier of the stored offer.
+     * @return the version, null if the header is absent or "*", or -1 if the header matches no version.
+     */
+    static Long ifMatchVersion(String ifMatch, Supplier<Offer> storedOffer) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        final String[] tags = ifMatch.split(",");
+        if (!isTagList(ifMatch)) {
+            final String tag = tags[0].trim();
+            // weak tags never match, If-Match uses the strong comparison
+            if (tag.matches("\"\\d{1,18}\"")) {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            }
+            return -1L;
+        }
+        final Offer offer = storedOffer.get();
+        if (offer != null) {
+            final String eTag = eTag(offer);
+            for (final String tag : tags) {
+                if (tag.trim().equals(eTag)) {
+                    return offer.getVersion();
+                }
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * Returns true if the If-Match header lists several entity tags, to be checked against the stored offer.
+     *
+     * @param ifMatch the If-Match header, or null.
+     * @return true if the header lists several entity tags.
+     */
+    static boolean isTagList(String ifMatch) {
+        return ifMatch != null && ifMatch.indexOf(',') >= 0;
+    }
+
+    /**
+     * Returns the 412 response to an update of an offer modified meanwhile.
+     *
+     * @param id the offer id.
+     * @return the response.
+     */
+    static ResponseEntity modified(Integer id) {
+        return new ResponseEntity("Offer with id " + id + " has been modified", HttpStatus.PRECONDITION_FAILED);
+    }
+}
@@ -0,0 +1,99 @@
+package org.lab;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.lab.index.OfferIntervalIndex;
+import org.lab.index.OfferSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Offer query controller for the RESTful service, answering from in-memory indexes.
+ */
+@RestController
+@Api(value = "offer-query-controller", description = "Offer query RESTful API")
+public class OfferQueryController {
+    private static final int MAX_DAYS = 3660;
+    private static final int MAX_RESULTS = 1000;
+
+    private OfferIntervalIndex offerIntervalIndex;
+    private OfferSearchIndex offerSearchIndex;
+
+    @Autowired
+    public void setOfferIntervalIndex(OfferIntervalIndex offerIntervalIndex) {
+        this.offerIntervalIndex = offerIntervalIndex;
+    }
+
+    @Autowired
+    public void setOfferSearchIndex(OfferSearchIndex offerSearchIndex) {
+        this.offerSearchIndex = offerSearchIndex;
+    }
+
+    @RequestMapping(value = "/offer/active", method = GET)
+    @ApiOperation(value = "Get the offers active on a given date (yyyy-MM-dd), today by default, "
+            + "by ascending id, starting after a given id")
+    public ResponseEntity getActiveOffers(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                          @RequestParam(defaultValue = "0") Integer after,
+                                          @RequestParam(defaultValue = "100") Integer limit) {
+        if (after < 0) {
+            return new ResponseEntity("Invalid id " + after, HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1 || limit > MAX_RESULTS) {
+            return new ResponseEntity("Invalid limit " + limit, HttpStatus.BAD_REQUEST);
+        }
+        final LocalDate activeDate = date == null ? LocalDate.now() : date;
+        return new ResponseEntity(offerIntervalIndex.findActiveOn(activeDate, after, limit), HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/offer/expiring", method = GET)
+    @ApiOperation(value = "Get the offers whose end date is within a given number of days from today, "
+            + "by ascending end date and id, starting after the end date and id of a given offer")
+    public ResponseEntity getExpiringOffers(@RequestParam(defaultValue = "7") Integer days,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterEnd,
+                                            @RequestParam(defaultValue = "0") Integer after,
+                                            @RequestParam(defaultValue = "100") Integer limit) {
+        if (days < 0 || days > MAX_DAYS) {
+            return new ResponseEntity("Invalid number of days " + days, HttpStatus.BAD_REQUEST);
+        }
+        if (after < 0) {
+            return new ResponseEntity("Invalid id " + after, HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1 || limit > MAX_RESULTS) {
+            return new ResponseEntity("Invalid limit " + limit, HttpStatus.BAD_REQUEST);
+        }
+        final LocalDate today = LocalDate.now();
+        // the next page starts after the end date and the id of the last offer received
+        return new ResponseEntity(offerIntervalIndex.findEndingBetween(today, today.plusDays(days), afterEnd, after, limit),
+                HttpStatus.OK);
+    }
+
+    @RequestMapping(value = "/offer/search", method = GET)
+    @ApiOperation(value = "Search offers by exact product, by product prefix or by product tokens, regardless of case")
+    public ResponseEntity searchOffers(@RequestParam(required = false) String product,
+                                       @RequestParam(required = false) String prefix,
+                                       @RequestParam(required = false) String text,
+                                       @RequestParam(defaultValue = "100") Integer limit) {
+        if (limit < 1 || limit > MAX_RESULTS) {
+            return new ResponseEntity("Invalid limit " + limit, HttpStatus.BAD_REQUEST);
+        }
+        if (product != null && prefix == null && text == null) {
+            return new ResponseEntity(offerSearchIndex.findByProduct(product, limit), HttpStatus.OK);
+        }
+        if (prefix != null && product == null && text == null) {
+            return new ResponseEntity(offerSearchIndex.findByProductPrefix(prefix, limit), HttpStatus.OK);
+        }
+        if (text != null && product == null && prefix == null) {
+            return new ResponseEntity(offerSearchIndex.findByTokens(text, limit), HttpStatus.OK);
+        }
+        return new ResponseEntity("Exactly one of product, prefix or text is required", HttpStatus.BAD_REQUEST);
+    }
+}
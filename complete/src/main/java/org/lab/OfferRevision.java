@@ -0,0 +1,127 @@
+package org.lab;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Revision of the price and period of an offer, in effect from a given time until the next revision.
+ * A deleted revision marks the time the offer was deleted, without price nor period.
+ */
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class OfferRevision {
+    @ApiModelProperty(notes = "The offer id")
+    private Integer id;
+
+    @ApiModelProperty(notes = "The offer version of the revision")
+    private Long version;
+
+    @ApiModelProperty(notes = "The time from which the revision is in effect")
+    private Instant validFrom;
+
+    @ApiModelProperty(notes = "The offer price")
+    private BigDecimal price;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonDeserialize(using = LocalDateDeserializer.class)
+    @JsonSerialize(using = LocalDateSerializer.class)
+    @ApiModelProperty(notes = "The offer start date (yyyy-MM-dd)")
+    private LocalDate start;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonDeserialize(using = LocalDateDeserializer.class)
+    @JsonSerialize(using = LocalDateSerializer.class)
+    @ApiModelProperty(notes = "The offer end date (yyyy-MM-dd)")
+    private LocalDate end;
+
+    @ApiModelProperty(notes = "Whether the offer was deleted")
+    private boolean deleted;
+
+    public OfferRevision() {
+    }
+
+    public OfferRevision(Integer id, Long version, Instant validFrom, BigDecimal price, LocalDate start, LocalDate end, boolean deleted) {
+        this.id = id;
+        this.version = version;
+        this.validFrom = validFrom;
+        this.price = price;
+        this.start = start;
+        this.end = end;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Returns the revision of the price and period of an offer, in effect from its last update.
+     *
+     * @param offer the offer.
+     * @return the revision of the offer.
+     */
+    public static OfferRevision of(Offer offer) {
+        return new OfferRevision(offer.getId(), offer.getVersion(), offer.getLastModified(),
+                offer.getPrice(), offer.getStart(), offer.getEnd(), false);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(Instant validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
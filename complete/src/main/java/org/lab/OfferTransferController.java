@@ -0,0 +1,120 @@
+package org.lab;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.lab.transfer.OfferExporter;
+import org.lab.transfer.OfferFileFormat;
+import org.lab.transfer.OfferImportException;
+import org.lab.transfer.OfferImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+/**
+ * Controller importing and exporting the offers in bulk, as CSV or NDJSON files of one offer per line.
+ * The request body of an import is read while the report of its invalid lines is written, and an export
+ * is written while the offers are read, so that files of any size go through in constant memory.
+ * An import failing is reported with an error and the number of offers imported before, that stay imported,
+ * with a 500 status unless the report was already partly sent.
+ * Both are served on the request thread rather than as asynchronous streaming bodies, so that a long transfer
+ * is not cut by the timeout of the asynchronous requests.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Api(value = "offer-transfer-controller", description = "Offer bulk import and export")
+public class OfferTransferController {
+    private static final int FLUSH_INTERVAL = 100;
+
+    private OfferImporter offerImporter;
+    private OfferExporter offerExporter;
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    public void setOfferImporter(OfferImporter offerImporter) {
+        this.offerImporter = offerImporter;
+    }
+
+    @Autowired
+    public void setOfferExporter(OfferExporter offerExporter) {
+        this.offerExporter = offerExporter;
+    }
+
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @RequestMapping(value = "/offer/import", method = POST, consumes = {OfferFileFormat.CSV_VALUE, OfferFileFormat.NDJSON_VALUE})
+    @ApiOperation(value = "Import the offers of a CSV or NDJSON file, reporting the invalid lines")
+    public void importOffers(InputStream body,
+                             @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        // the invalid lines are reported while the file is read, followed by the counts
+        // flushed every few errors only, rather than by each error written
+        final ObjectWriter errorWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            final long[] invalid = new long[1];
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("errors");
+            long imported;
+            String failure = null;
+            try {
+                imported = offerImporter.importOffers(reader, OfferFileFormat.fromContentType(contentType), error -> {
+                    try {
+                        errorWriter.writeValue(generator, error);
+                        if (++invalid[0] % FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (final OfferImportException e) {
+                // the errors already sent may have committed a 200, the failure is told in the report
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                }
+                imported = e.getImported();
+                failure = e.getMessage();
+            }
+            generator.writeEndArray();
+            if (failure != null) {
+                generator.writeStringField("error", failure);
+            }
+            generator.writeNumberField("imported", imported);
+            generator.writeNumberField("invalid", invalid[0]);
+            generator.writeEndObject();
+        }
+    }
+
+    @RequestMapping(value = "/offer/export", method = GET, produces = {OfferFileFormat.NDJSON_VALUE, OfferFileFormat.CSV_VALUE})
+    @ApiOperation(value = "Export all the offers by ascending id, as a CSV or NDJSON file")
+    public void exportOffers(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletResponse response) throws IOException {
+        final OfferFileFormat format = OfferFileFormat.negotiate(accept);
+        response.setContentType(format.getMediaType() + ";charset=UTF-8");
+        offerExporter.exportOffers(response.getOutputStream(), format);
+    }
+}
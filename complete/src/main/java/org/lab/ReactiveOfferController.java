@@ -0,0 +1,186 @@
+package org.lab;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.lab.services.ReactiveOfferService;
+import org.lab.util.OfferValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.springframework.web.bind.annotation.RequestMethod.*;
+
+/**
+ * Non-blocking offer controller for the RESTful service, with the same contract as {@link OfferController}.
+ * It is used instead of it when the application runs in reactive mode (spring.main.web-application-type=reactive).
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Api(value = "offer-controller", description = "Offer RESTful API")
+public class ReactiveOfferController {
+    private static final int MAX_PAGE_SIZE = 100000;
+    private static final int MAX_BATCH_SIZE = 10000;
+
+    private final OfferValidator offerValidator = OfferValidator.getInstance();
+    private ReactiveOfferService offerService;
+
+    @Autowired
+    public void setOfferService(ReactiveOfferService offerService) {
+        this.offerService = offerService;
+    }
+
+    @RequestMapping(value = "/offer", method = POST)
+    @ApiOperation(value = "Add an offer")
+    public Mono<ResponseEntity> addOffer(@RequestBody Offer offer) {
+        if (!offerValidator.isValid(offer)) {
+            return Mono.just(new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST));
+        }
+        return offerService.addOffer(offer).map(savedOffer -> new ResponseEntity(savedOffer, HttpStatus.OK));
+    }
+
+    @RequestMapping(value = "/offer/batch", method = POST)
+    @ApiOperation(value = "Add a batch of offers, reporting the result of each one")
+    public Mono<ResponseEntity> addOffers(@RequestBody List<Offer> offers) {
+        if (offers.size() > MAX_BATCH_SIZE) {
+            return Mono.just(new ResponseEntity("Batch exceeds " + MAX_BATCH_SIZE + " offers", HttpStatus.BAD_REQUEST));
+        }
+        final List<Offer> validOffers = new ArrayList<>(offers.size());
+        final List<OfferBatchResult> results = OfferBatches.validateNewOffers(offers, offerValidator, validOffers);
+        return offerService.addOffers(validOffers)
+                .map(savedOffers -> new ResponseEntity(OfferBatches.setAllocatedIds(results, offers), HttpStatus.OK));
+    }
+
+    @RequestMapping(value = "/offer/batch", method = PUT)
+    @ApiOperation(value = "Update a batch of offers, reporting the result of each one")
+    public Mono<ResponseEntity> updateOffers(@RequestBody List<Offer> offers) {
+        if (offers.size() > MAX_BATCH_SIZE) {
+            return Mono.just(new ResponseEntity("Batch exceeds " + MAX_BATCH_SIZE + " offers", HttpStatus.BAD_REQUEST));
+        }
+        final List<Offer> storableOffers = new ArrayList<>(offers.size());
+        final List<OfferBatchResult> results = OfferBatches.validateStoredOffers(offers, offerValidator, storableOffers);
+        return offerService.updateOffers(storableOffers)
+                .flatMap(updatedIds -> {
+                    final List<Integer> staleIds = OfferBatches.getNotUpdatedVersionedIds(storableOffers, updatedIds);
+                    // the offers skipped despite a version are told apart from the missing ones by reading them, only then
+                    final Mono<Set<Integer>> conflictIds = staleIds.isEmpty() ? Mono.just(Collections.emptySet())
+                            : offerService.getOffersByIds(staleIds).map(OfferBatches::getIds);
+                    return conflictIds.map(ids -> new ResponseEntity(
+                            OfferBatches.markNotFound(OfferBatches.markConflicts(results, ids), updatedIds), HttpStatus.OK));
+                });
+    }
+
+    @RequestMapping(value = "/offer/batch", method = DELETE)
+    @ApiOperation(value = "Delete a batch of offers with given ids, reporting the result of each one")
+    public Mono<ResponseEntity> deleteOffers(@RequestBody List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return Mono.just(new ResponseEntity("Batch exceeds " + MAX_BATCH_SIZE + " offers", HttpStatus.BAD_REQUEST));
+        }
+        final List<Integer> validIds = new ArrayList<>(ids.size());
+        final List<OfferBatchResult> results = OfferBatches.validateIds(ids, validIds);
+        return offerService.deleteOffers(validIds)
+                .map(deletedIds -> new ResponseEntity(OfferBatches.markNotFound(results, deletedIds), HttpStatus.OK));
+    }
+
+    @RequestMapping(value = "/offer/{id}", method = PUT)
+    @ApiOperation(value = "Update an offer with a given id")
+    public Mono<ResponseEntity> updateOffer(@PathVariable Integer id, @RequestBody Offer offer,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (id == null || id < 1) {
+            return Mono.just(new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST));
+        }
+        if (!offerValidator.isStorable(offer)) {
+            return Mono.just(new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST));
+        }
+        return offerService.getOfferById(id)
+                .flatMap(storedOffer -> OfferPreconditions.checkIfMatch(ifMatch, storedOffer, offer)
+                        ? offerService.saveOffer(offer).map(resultOffer -> (ResponseEntity) OfferPreconditions.ok(resultOffer).body(resultOffer))
+                        .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(OfferPreconditions.modified(id)))
+                        : Mono.just(OfferPreconditions.modified(id)))
+                .defaultIfEmpty(new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST));
+    }
+
+    @RequestMapping(value = "/offer/{id}", method = PATCH, consumes = {OfferController.MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ApiOperation(value = "Update some fields of an offer with a given id, with a JSON merge patch")
+    public Mono<ResponseEntity> patchOffer(@PathVariable Integer id, @RequestBody OfferPatch patch,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (id == null || id < 1 || (patch.getId() != null && !patch.getId().equals(id))) {
+            return Mono.just(new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST));
+        }
+        if (!offerValidator.isValid(patch)) {
+            return Mono.just(new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST));
+        }
+        // the stored offer is read only to check an If-Match header listing several entity tags
+        final Mono<Optional<Offer>> storedOffer = OfferPreconditions.isTagList(ifMatch)
+                ? offerService.getOfferById(id).map(Optional::of).defaultIfEmpty(Optional.empty())
+                : Mono.just(Optional.empty());
+        return storedOffer.flatMap(offer -> {
+            final Long version = OfferPreconditions.ifMatchVersion(ifMatch, () -> offer.orElse(null));
+            if (version != null) {
+                if (patch.getVersion() != null && !patch.getVersion().equals(version)) {
+                    return Mono.just(OfferPreconditions.modified(id));
+                }
+                patch.setVersion(version);
+            }
+            return offerService.patchOffer(id, patch)
+                    .map(resultOffer -> (ResponseEntity) OfferPreconditions.ok(resultOffer).body(resultOffer))
+                    .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(OfferPreconditions.modified(id)))
+                    .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(new ResponseEntity("Offer is invalid", HttpStatus.BAD_REQUEST)))
+                    .defaultIfEmpty(new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST));
+        });
+    }
+
+    @RequestMapping(value = "/offer", method = GET)
+    @ApiOperation(value = "List offers by ascending id, starting after a given id")
+    public ResponseEntity listOffers(@RequestParam(defaultValue = "0") Integer after,
+                                     @RequestParam(defaultValue = "100") Integer limit) {
+        if (after < 0) {
+            return new ResponseEntity("Invalid id " + after, HttpStatus.BAD_REQUEST);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return new ResponseEntity("Invalid limit " + limit, HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(offerService.listAllOffers(after, limit));
+    }
+
+    @RequestMapping(value = "/offer/{id}", method = GET)
+    @ApiOperation(value = "Get an offer with a given id")
+    public Mono<ResponseEntity> getOffers(@PathVariable Integer id) {
+        if (id == null || id < 1) {
+            return Mono.just(new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST));
+        }
+        return offerService.getOfferById(id)
+                .map(offer -> (ResponseEntity) OfferPreconditions.ok(offer).body(offer))
+                .defaultIfEmpty(new ResponseEntity("No offer found with id " + id, HttpStatus.BAD_REQUEST));
+    }
+
+    @RequestMapping(value = "/offer/{id}", method = DELETE)
+    @ApiOperation(value = "Delete an offer with a given id")
+    public Mono<ResponseEntity> delete(@PathVariable Integer id) {
+        if (id == null || id < 1) {
+            return Mono.just(new ResponseEntity("Invalid id " + id, HttpStatus.BAD_REQUEST));
+        }
+        return offerService.deleteOffer(id)
+                .then(Mono.just(new ResponseEntity("Offer with id " + id + " deleted successfully", HttpStatus.OK)))
+                .onErrorResume(EmptyResultDataAccessException.class,
+                        e -> Mono.just(new ResponseEntity("Problem to delete offer with id " + id, HttpStatus.BAD_REQUEST)));
+    }
+}
@@ -0,0 +1,53 @@
+package org.lab.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free limit of the number of requests in flight, refusing a request at once rather than queuing it.
+ */
+public class ConcurrencyLimit {
+    private final int limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Creates a limit.
+     *
+     * @param limit the maximum number of requests in flight, unlimited if 0 or less.
+     */
+    public ConcurrencyLimit(int limit) {
+        this.limit = limit > 0 ? limit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Admits a request if the limit is not reached, to be released once done.
+     *
+     * @return true if the request is admitted.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     *
+     * @return the number of requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,236 @@
+package org.lab.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filter admitting the requests of the offer API (offer.admission.enabled=true), shedding the load at once
+ * with a 429 response rather than letting a flood of requests take over the worker threads and the connections.
+ * Each client, identified by a header set by a trusted gateway, or else by its authenticated user or its address,
+ * has a token bucket for its reads and another one for its writes; a client over its rate gets a Retry-After header
+ * telling when its next token is due.
+ * The reads (GET, HEAD and OPTIONS) and the writes in flight are also limited separately, whatever the client,
+ * so that the writes never hold all the threads serving the reads. An asynchronous request, such as a streamed list
+ * of offers, is in flight until its response is complete; the change feed, streaming for as long as its consumer
+ * is connected without reading the storage, is limited by the rates only.
+ * The state of the limits is lock-free, an admitted request costs a cache lookup and a few compare-and-sets.
+ * The requests rejected are counted in the offer.admission metrics.
+ */
+public class OfferAdmissionFilter extends OncePerRequestFilter {
+    private static final String PATH = "/offer";
+    private static final String CHANGES_PATH = "/offer/changes";
+
+    private final String clientHeader;
+    private final double readRate;
+    private final int readBurst;
+    private final double writeRate;
+    private final int writeBurst;
+    private final ConcurrencyLimit reads;
+    private final ConcurrencyLimit writes;
+    private final Cache<String, Client> clients;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final LongAdder rateRejections = new LongAdder();
+    private final LongAdder concurrencyRejections = new LongAdder();
+
+    /**
+     * Creates a filter.
+     *
+     * @param clientHeader         the header identifying the client, or null to identify it by its user or else its address.
+     * @param readRate             the reads per second of each client, unlimited if 0 or less.
+     * @param readBurst            the reads of a client admitted at once above its rate.
+     * @param writeRate            the writes per second of each client, unlimited if 0 or less.
+     * @param writeBurst           the writes of a client admitted at once above its rate.
+     * @param maxConcurrentReads   the maximum number of reads in flight, unlimited if 0 or less.
+     * @param maxConcurrentWrites  the maximum number of writes in flight, unlimited if 0 or less.
+     * @param maxClients           the maximum number of clients whose limits are kept.
+     * @param clientIdleTimeout    the time after which the limits of an idle client are dropped.
+     */
+    public OfferAdmissionFilter(String clientHeader, double readRate, int readBurst, double writeRate, int writeBurst,
+                                int maxConcurrentReads, int maxConcurrentWrites, long maxClients, Duration clientIdleTimeout) {
+        this.clientHeader = clientHeader == null || clientHeader.isEmpty() ? null : clientHeader;
+        this.readRate = readRate;
+        this.readBurst = readBurst;
+        this.writeRate = writeRate;
+        this.writeBurst = writeBurst;
+        this.reads = new ConcurrencyLimit(maxConcurrentReads);
+        this.writes = new ConcurrencyLimit(maxConcurrentWrites);
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(clientIdleTimeout)
+                .build();
+    }
+
+    /**
+     * Registers the metrics of the requests in flight and rejected.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("offer.admission.in-flight", reads, ConcurrencyLimit::getInFlight)
+                .description("Offer requests in flight")
+                .tag("kind", "read")
+                .register(registry);
+        Gauge.builder("offer.admission.in-flight", writes, ConcurrencyLimit::getInFlight)
+                .description("Offer requests in flight")
+                .tag("kind", "write")
+                .register(registry);
+        FunctionCounter.builder("offer.admission.rejected", rateRejections, LongAdder::sum)
+                .description("Offer requests rejected")
+                .tag("reason", "rate")
+                .register(registry);
+        FunctionCounter.builder("offer.admission.rejected", concurrencyRejections, LongAdder::sum)
+                .description("Offer requests rejected")
+                .tag("reason", "concurrency")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        final String path = urlPathHelper.getPathWithinApplication(request);
+        return !(path.equals(PATH) || path.startsWith(PATH + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final boolean write = isWrite(request.getMethod());
+        final TokenBucket bucket = getBucket(getClientKey(request), write);
+        if (bucket != null) {
+            final long now = System.nanoTime();
+            if (!bucket.tryAcquire(now)) {
+                rateRejections.increment();
+                final long seconds = TimeUnit.NANOSECONDS.toSeconds(bucket.nanosToNextToken(now) + 999_999_999);
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, seconds)));
+                reject(response, "Too many requests");
+                return;
+            }
+        }
+        if (urlPathHelper.getPathWithinApplication(request).equals(CHANGES_PATH)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        final ConcurrencyLimit limit = write ? writes : reads;
+        if (!limit.tryAcquire()) {
+            concurrencyRejections.increment();
+            reject(response, "Too many requests in flight");
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // the response is written from another thread, the request is in flight until complete
+                request.getAsyncContext().addListener(new ReleasingListener(limit));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limit.release();
+            }
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return !(HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method));
+    }
+
+    private String getClientKey(HttpServletRequest request) {
+        if (clientHeader != null) {
+            final String client = request.getHeader(clientHeader);
+            if (client != null && !client.isEmpty()) {
+                return client;
+            }
+        }
+        // a user name never collides with an address
+        final Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : request.getRemoteAddr();
+    }
+
+    private TokenBucket getBucket(String clientKey, boolean write) {
+        if ((write ? writeRate : readRate) <= 0) {
+            return null;
+        }
+        final Client client = clients.get(clientKey, key -> new Client(System.nanoTime()));
+        return write ? client.writes : client.reads;
+    }
+
+    private static void reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    /**
+     * Token buckets of a client.
+     */
+    private class Client {
+        private final TokenBucket reads;
+        private final TokenBucket writes;
+
+        Client(long now) {
+            this.reads = readRate > 0 ? new TokenBucket(readRate, readBurst, now) : null;
+            this.writes = writeRate > 0 ? new TokenBucket(writeRate, writeBurst, now) : null;
+        }
+    }
+
+    /**
+     * Listener releasing the limit of an asynchronous request once, when complete, failed or timed out.
+     */
+    private static class ReleasingListener implements AsyncListener {
+        private final ConcurrencyLimit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingListener(ConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the same request dispatched again is still in flight
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+    }
+}
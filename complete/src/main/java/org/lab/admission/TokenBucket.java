@@ -0,0 +1,58 @@
+package org.lab.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, refilled at a constant rate up to its capacity.
+ * The state is a single theoretical arrival time: the time at which the bucket is full again.
+ * Taking a token moves it one refill interval later, with a single compare-and-set, and is refused
+ * when it would move further than the capacity ahead of the current time.
+ * Times are in nanoseconds from System.nanoTime, and are compared by difference.
+ */
+public class TokenBucket {
+    private final long refillNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param rate     the number of tokens added per second.
+     * @param capacity the maximum number of tokens, taken at once by a burst of requests.
+     * @param now      the current time in nanoseconds.
+     */
+    public TokenBucket(double rate, int capacity, long now) {
+        this.refillNanos = Math.max(1, (long) (1_000_000_000 / rate));
+        this.capacityNanos = refillNanos * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if there is one left.
+     *
+     * @param now the current time in nanoseconds.
+     * @return true if a token was taken, false if the bucket is empty.
+     */
+    public boolean tryAcquire(long now) {
+        while (true) {
+            final long current = fullAt.get();
+            final long next = (current - now > 0 ? current : now) + refillNanos;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the time to wait for the next token.
+     *
+     * @param now the current time in nanoseconds.
+     * @return the time to wait in nanoseconds, 0 if a token is left.
+     */
+    public long nanosToNextToken(long now) {
+        return Math.max(0, fullAt.get() + refillNanos - now - capacityNanos);
+    }
+}
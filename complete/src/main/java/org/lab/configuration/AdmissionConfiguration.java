@@ -0,0 +1,31 @@
+package org.lab.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.admission.OfferAdmissionFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the admission control of the offer requests, in front of the servlet controllers.
+ * The filter runs after the one timing the requests, so that the requests rejected show in the request metrics.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "offer.admission.enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+    @Bean
+    public OfferAdmissionFilter offerAdmissionFilter(AdmissionProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        final OfferAdmissionFilter result = new OfferAdmissionFilter(properties.getClientHeader(),
+                properties.getReadRate(), properties.getReadBurst(), properties.getWriteRate(), properties.getWriteBurst(),
+                properties.getMaxConcurrentReads(), properties.getMaxConcurrentWrites(),
+                properties.getMaxClients(), properties.getClientIdleTimeout());
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
@@ -0,0 +1,142 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the admission control of the offer requests.
+ */
+@ConfigurationProperties(prefix = "offer.admission")
+public class AdmissionProperties {
+    /**
+     * Whether the requests over the limits are rejected with a 429 response.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Header identifying the client, to set only behind a gateway overwriting it, as clients could otherwise
+     * pick their own limits; without it, the client is identified by its authenticated user, or else its address.
+     */
+    private String clientHeader = "";
+
+    /**
+     * Reads per second of each client, unlimited if 0.
+     */
+    private double readRate = 1000;
+
+    /**
+     * Reads of a client admitted at once above its rate.
+     */
+    private int readBurst = 2000;
+
+    /**
+     * Writes per second of each client, unlimited if 0.
+     */
+    private double writeRate = 100;
+
+    /**
+     * Writes of a client admitted at once above its rate.
+     */
+    private int writeBurst = 200;
+
+    /**
+     * Maximum number of reads in flight, whatever the client, unlimited if 0.
+     */
+    private int maxConcurrentReads = 150;
+
+    /**
+     * Maximum number of writes in flight, whatever the client, unlimited if 0.
+     */
+    private int maxConcurrentWrites = 20;
+
+    /**
+     * Maximum number of clients whose limits are kept.
+     */
+    private long maxClients = 10000;
+
+    /**
+     * Time after which the limits of an idle client are dropped.
+     */
+    private Duration clientIdleTimeout = Duration.ofMinutes(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getClientHeader() {
+        return clientHeader;
+    }
+
+    public void setClientHeader(String clientHeader) {
+        this.clientHeader = clientHeader;
+    }
+
+    public double getReadRate() {
+        return readRate;
+    }
+
+    public void setReadRate(double readRate) {
+        this.readRate = readRate;
+    }
+
+    public int getReadBurst() {
+        return readBurst;
+    }
+
+    public void setReadBurst(int readBurst) {
+        this.readBurst = readBurst;
+    }
+
+    public double getWriteRate() {
+        return writeRate;
+    }
+
+    public void setWriteRate(double writeRate) {
+        this.writeRate = writeRate;
+    }
+
+    public int getWriteBurst() {
+        return writeBurst;
+    }
+
+    public void setWriteBurst(int writeBurst) {
+        this.writeBurst = writeBurst;
+    }
+
+    public int getMaxConcurrentReads() {
+        return maxConcurrentReads;
+    }
+
+    public void setMaxConcurrentReads(int maxConcurrentReads) {
+        this.maxConcurrentReads = maxConcurrentReads;
+    }
+
+    public int getMaxConcurrentWrites() {
+        return maxConcurrentWrites;
+    }
+
+    public void setMaxConcurrentWrites(int maxConcurrentWrites) {
+        this.maxConcurrentWrites = maxConcurrentWrites;
+    }
+
+    public long getMaxClients() {
+        return maxClients;
+    }
+
+    public void setMaxClients(long maxClients) {
+        this.maxClients = maxClients;
+    }
+
+    public Duration getClientIdleTimeout() {
+        return clientIdleTimeout;
+    }
+
+    public void setClientIdleTimeout(Duration clientIdleTimeout) {
+        this.clientIdleTimeout = clientIdleTimeout;
+    }
+}
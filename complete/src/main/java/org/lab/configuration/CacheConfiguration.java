@@ -0,0 +1,49 @@
+package org.lab.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.services.CachingOfferService;
+import org.lab.services.OfferService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Configuration for the in-memory cache in front of the service managing persistence.
+ * The cache is not needed when the offers are served from the catalog.
+ * With the write-behind queue, the cache is decorated by the queue, which is then the primary service.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+@ConditionalOnExpression("${offer.cache.enabled:true} and !${offer.catalog.enabled:false}")
+public class CacheConfiguration {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "offer.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+    public CachingOfferService cachingOfferService(@Qualifier(OfferService.STORAGE) OfferService offerService,
+                                                   CacheProperties properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return createCachingOfferService(offerService, properties, meterRegistry);
+    }
+
+    @Bean
+    @Qualifier(OfferService.WRITE_BEHIND_TARGET)
+    @ConditionalOnProperty(name = "offer.write-behind.enabled", havingValue = "true")
+    public CachingOfferService writeBehindCachingOfferService(@Qualifier(OfferService.STORAGE) OfferService offerService,
+                                                              CacheProperties properties,
+                                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        return createCachingOfferService(offerService, properties, meterRegistry);
+    }
+
+    private static CachingOfferService createCachingOfferService(OfferService offerService, CacheProperties properties,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        final CachingOfferService result = new CachingOfferService(offerService, properties.getMaximumSize(), properties.getTimeToLive());
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the in-memory offer cache.
+ */
+@ConfigurationProperties(prefix = "offer.cache")
+public class CacheProperties {
+    /**
+     * Whether offers read by id are cached.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of cached offers.
+     */
+    private long maximumSize = 100000;
+
+    /**
+     * Time to live of a cached offer.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+}
@@ -0,0 +1,49 @@
+package org.lab.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.services.CatalogOfferService;
+import org.lab.services.OfferService;
+import org.lab.storage.OfferCatalog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Configuration for the off-heap catalog serving the reads of all the offers, enabled with offer.catalog.enabled=true.
+ * The catalog holds every stored offer, so it replaces the offer cache.
+ * With the write-behind queue, the catalog is decorated by the queue, which is then the primary service.
+ */
+@Configuration
+@ConditionalOnProperty(name = "offer.catalog.enabled", havingValue = "true")
+public class CatalogConfiguration {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "offer.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+    public CatalogOfferService catalogOfferService(@Qualifier(OfferService.STORAGE) OfferService offerService,
+                                                   @Value("${offer.catalog.initial-capacity:1024}") int initialCapacity,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return createCatalogOfferService(offerService, initialCapacity, meterRegistry);
+    }
+
+    @Bean
+    @Qualifier(OfferService.WRITE_BEHIND_TARGET)
+    @ConditionalOnProperty(name = "offer.write-behind.enabled", havingValue = "true")
+    public CatalogOfferService writeBehindCatalogOfferService(@Qualifier(OfferService.STORAGE) OfferService offerService,
+                                                              @Value("${offer.catalog.initial-capacity:1024}") int initialCapacity,
+                                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        return createCatalogOfferService(offerService, initialCapacity, meterRegistry);
+    }
+
+    private static CatalogOfferService createCatalogOfferService(OfferService offerService, int initialCapacity,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        final CatalogOfferService result = new CatalogOfferService(offerService, new OfferCatalog(initialCapacity));
+        result.load();
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
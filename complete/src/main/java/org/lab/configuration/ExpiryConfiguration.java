@@ -0,0 +1,33 @@
+package org.lab.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.expiry.OfferExpirySweeper;
+import org.lab.repositories.ArchivedOfferRepository;
+import org.lab.services.OfferService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the sweeper of the expired offers, enabled with offer.expiry.enabled=true.
+ * The sweeper deletes through the primary offer service, whatever the storage.
+ */
+@Configuration
+@EnableConfigurationProperties(ExpiryProperties.class)
+@ConditionalOnProperty(name = "offer.expiry.enabled", havingValue = "true")
+public class ExpiryConfiguration {
+
+    @Bean
+    public OfferExpirySweeper offerExpirySweeper(OfferService offerService,
+                                                 ArchivedOfferRepository archive,
+                                                 ExpiryProperties properties,
+                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        final OfferExpirySweeper result = new OfferExpirySweeper(offerService, properties.isArchive() ? archive : null,
+                properties.getRetention(), properties.getBatchSize(), properties.getMaxBatches(),
+                properties.getBatchDelay(), properties.getInterval());
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
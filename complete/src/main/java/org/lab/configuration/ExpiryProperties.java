@@ -0,0 +1,102 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the sweeper of the expired offers.
+ */
+@ConfigurationProperties(prefix = "offer.expiry")
+public class ExpiryProperties {
+    /**
+     * Whether the expired offers are deleted in the background.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Time an offer is kept after its end date, in days.
+     */
+    private Duration retention = Duration.ofDays(30);
+
+    /**
+     * Whether the expired offers are moved to the archive table, rather than purged only.
+     */
+    private boolean archive = true;
+
+    /**
+     * Interval between two sweeps.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Maximum number of offers deleted in one batch, with one short write.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Maximum number of batches in one sweep.
+     */
+    private int maxBatches = 100;
+
+    /**
+     * Delay between two batches of a sweep.
+     */
+    private Duration batchDelay = Duration.ofMillis(100);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public boolean isArchive() {
+        return archive;
+    }
+
+    public void setArchive(boolean archive) {
+        this.archive = archive;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxBatches() {
+        return maxBatches;
+    }
+
+    public void setMaxBatches(int maxBatches) {
+        this.maxBatches = maxBatches;
+    }
+
+    public Duration getBatchDelay() {
+        return batchDelay;
+    }
+
+    public void setBatchDelay(Duration batchDelay) {
+        this.batchDelay = batchDelay;
+    }
+}
@@ -0,0 +1,21 @@
+package org.lab.configuration;
+
+import org.lab.services.OfferChangeFeed;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the change feed of the offers, streamed to the consumers over Server-Sent Events.
+ */
+@Configuration
+@EnableConfigurationProperties(FeedProperties.class)
+@ConditionalOnProperty(name = "offer.feed.enabled", havingValue = "true", matchIfMissing = true)
+public class FeedConfiguration {
+
+    @Bean
+    public OfferChangeFeed offerChangeFeed(FeedProperties properties) {
+        return new OfferChangeFeed(properties.getCapacity());
+    }
+}
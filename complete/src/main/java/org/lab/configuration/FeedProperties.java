@@ -0,0 +1,102 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the change feed of the offers.
+ */
+@ConfigurationProperties(prefix = "offer.feed")
+public class FeedProperties {
+    /**
+     * Whether the changes of the offers are streamed under /offer/changes.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of latest changes kept for the consumers, rounded up to a power of two.
+     */
+    private int capacity = 65536;
+
+    /**
+     * Interval between two reads of the feed for each consumer.
+     */
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    /**
+     * Interval after which a consumer without changes gets a comment, detecting closed connections.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * Time after which a stream is completed, and resumed by the consumer.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Number of threads reading the feed for the consumers, the changes being sent from other threads.
+     */
+    private int threads = 2;
+
+    /**
+     * Maximum number of events read for a consumer and waiting to be sent to it.
+     */
+    private int queueCapacity = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,27 @@
+package org.lab.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.index.OfferHistory;
+import org.lab.repositories.OfferRevisionRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the history of the price and period of the offers, stored in the offer_revision table
+ * and completed on startup with the current revisions loaded with the indexes.
+ */
+@Configuration
+@EnableConfigurationProperties(HistoryProperties.class)
+public class HistoryConfiguration {
+
+    @Bean
+    public OfferHistory offerHistory(HistoryProperties properties, OfferRevisionRepository repository,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        final OfferHistory result = new OfferHistory(repository, properties.getMaxRevisions(),
+                properties.getMaximumSize(), properties.getTimeToLive());
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
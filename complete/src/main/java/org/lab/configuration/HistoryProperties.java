@@ -0,0 +1,50 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the history of the offers.
+ */
+@ConfigurationProperties(prefix = "offer.history")
+public class HistoryProperties {
+    /**
+     * Maximum number of revisions kept for each offer, the oldest ones being dropped.
+     */
+    private int maxRevisions = 100;
+
+    /**
+     * Maximum size in bytes of the histories cached in memory, the least used ones being evicted.
+     */
+    private long maximumSize = 67108864;
+
+    /**
+     * Time to live of a cached history, after which the revisions recorded by other instances are read.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+    public int getMaxRevisions() {
+        return maxRevisions;
+    }
+
+    public void setMaxRevisions(int maxRevisions) {
+        this.maxRevisions = maxRevisions;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(Duration timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+}
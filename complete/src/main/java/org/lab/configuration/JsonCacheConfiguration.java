@@ -0,0 +1,29 @@
+package org.lab.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.services.OfferJsonCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the cache of the JSON representation of the offers read by id, in servlet mode.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "offer.json-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class JsonCacheConfiguration {
+
+    @Bean
+    public OfferJsonCache offerJsonCache(ObjectMapper objectMapper,
+                                         @Value("${offer.json-cache.maximum-size:100000}") long maximumSize,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        final OfferJsonCache result = new OfferJsonCache(objectMapper, maximumSize);
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
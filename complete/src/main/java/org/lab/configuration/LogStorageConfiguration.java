@@ -0,0 +1,30 @@
+package org.lab.configuration;
+
+import org.lab.services.LogOfferService;
+import org.lab.services.OfferService;
+import org.lab.storage.OfferLog;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Configuration for the storage of the offers in an append-only log, enabled with offer.storage=log.
+ * The log replaces the JPA repository for the offers, which still holds the sequence of the offer ids.
+ */
+@Configuration
+@EnableConfigurationProperties(LogStorageProperties.class)
+@ConditionalOnProperty(name = "offer.storage", havingValue = "log")
+public class LogStorageConfiguration {
+
+    @Bean
+    @Qualifier(OfferService.STORAGE)
+    public LogOfferService logOfferService(LogStorageProperties properties) throws IOException {
+        final OfferLog offerLog = new OfferLog(Paths.get(properties.getDir()), properties.getSegmentSize(), properties.isSync());
+        return new LogOfferService(offerLog, properties.getCompactionInterval(), properties.getCompactionThreshold());
+    }
+}
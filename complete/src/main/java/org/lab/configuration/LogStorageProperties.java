@@ -0,0 +1,76 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the append-only offer log storage.
+ */
+@ConfigurationProperties(prefix = "offer.log")
+public class LogStorageProperties {
+    /**
+     * Directory of the log segment files.
+     */
+    private String dir = "./data/log";
+
+    /**
+     * Size in bytes of a log segment file.
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * Whether each write is forced to the disk before returning, surviving operating system crashes.
+     */
+    private boolean sync = false;
+
+    /**
+     * Interval between two compactions of the log.
+     */
+    private Duration compactionInterval = Duration.ofMinutes(1);
+
+    /**
+     * Fraction of live bytes under which a sealed segment is compacted.
+     */
+    private double compactionThreshold = 0.5;
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+}
@@ -0,0 +1,67 @@
+package org.lab.configuration;
+
+import org.lab.ids.OfferIdAllocator;
+import org.lab.services.OfferService;
+import org.lab.services.ReactiveOfferService;
+import org.lab.services.ReactiveOfferServiceImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration for the reactive execution mode, enabled with spring.main.web-application-type=reactive.
+ * Requests are served by Netty, and the blocking persistence calls run on a bounded scheduler,
+ * or on virtual threads when enabled with offer.virtual-threads.enabled=true.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration {
+    private static final String TOMCAT_METRICS_REACTIVE_CUSTOMIZER = "contextCapturingReactiveTomcatCustomizer";
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        // Tomcat is also on the classpath for the servlet mode, and would be preferred otherwise
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public static BeanFactoryPostProcessor tomcatReactiveCustomizerRemover() {
+        // the Tomcat metrics customize the reactive Tomcat factory with a lambda, whose factory type cannot be
+        // resolved: it is applied to the Netty factory too, and its cast failure is only tolerated on Java 8
+        return beanFactory -> {
+            if (beanFactory instanceof BeanDefinitionRegistry
+                    && beanFactory.containsBeanDefinition(TOMCAT_METRICS_REACTIVE_CUSTOMIZER)) {
+                ((BeanDefinitionRegistry) beanFactory).removeBeanDefinition(TOMCAT_METRICS_REACTIVE_CUSTOMIZER);
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler offerServiceScheduler(@Value("${offer.reactive.pool-size:10}") int poolSize,
+                                           @Qualifier(VirtualThreadConfiguration.EXECUTOR_NAME) ObjectProvider<ExecutorService> virtualThreadExecutor) {
+        final ExecutorService executor = virtualThreadExecutor.getIfAvailable();
+        if (executor != null) {
+            // the calls in flight are then bounded by the connection pool only
+            return Schedulers.fromExecutorService(executor);
+        }
+        return Schedulers.fromExecutorService(Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("offer-service-")));
+    }
+
+    @Bean
+    public ReactiveOfferService reactiveOfferService(OfferService offerService, OfferIdAllocator offerIdAllocator,
+                                                     Scheduler offerServiceScheduler) {
+        return new ReactiveOfferServiceImpl(offerService, offerIdAllocator, offerServiceScheduler);
+    }
+}
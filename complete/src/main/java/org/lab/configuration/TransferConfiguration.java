@@ -0,0 +1,46 @@
+package org.lab.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.lab.ids.OfferIdAllocator;
+import org.lab.services.OfferService;
+import org.lab.transfer.OfferExporter;
+import org.lab.transfer.OfferImporter;
+import org.lab.transfer.OfferTransferRunner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Configuration for the bulk import and export of the offer files, through the primary offer service
+ * whatever the storage, and for the runner transferring the files given on the command line.
+ */
+@Configuration
+@EnableConfigurationProperties(TransferProperties.class)
+public class TransferConfiguration {
+
+    @Bean
+    public OfferImporter offerImporter(OfferService offerService,
+                                       OfferIdAllocator offerIdAllocator,
+                                       ObjectProvider<ObjectMapper> objectMapper,
+                                       TransferProperties properties) {
+        return new OfferImporter(offerService, offerIdAllocator, objectMapper.getIfAvailable(() -> Jackson2ObjectMapperBuilder.json().build()),
+                properties.getChunkSize(), properties.getParallelism());
+    }
+
+    @Bean
+    public OfferExporter offerExporter(OfferService offerService,
+                                       ObjectProvider<ObjectMapper> objectMapper,
+                                       TransferProperties properties) {
+        return new OfferExporter(offerService, objectMapper.getIfAvailable(() -> Jackson2ObjectMapperBuilder.json().build()),
+                properties.getPageSize());
+    }
+
+    @Bean
+    public OfferTransferRunner offerTransferRunner(OfferImporter offerImporter,
+                                                   OfferExporter offerExporter,
+                                                   TransferProperties properties) {
+        return new OfferTransferRunner(offerImporter, offerExporter, properties.getImportFile(), properties.getExportFile());
+    }
+}
@@ -0,0 +1,74 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of the bulk import and export of the offer files.
+ */
+@ConfigurationProperties(prefix = "offer.transfer")
+public class TransferProperties {
+    /**
+     * Number of lines of an imported file validated and written together.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Number of threads validating the lines of an imported file.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of offers read with each cursor of an export.
+     */
+    private int pageSize = 10000;
+
+    /**
+     * File imported on startup, CSV for a .csv file and NDJSON otherwise.
+     */
+    private String importFile;
+
+    /**
+     * File the offers are exported to on startup, CSV for a .csv file and NDJSON otherwise.
+     */
+    private String exportFile;
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getImportFile() {
+        return importFile;
+    }
+
+    public void setImportFile(String importFile) {
+        this.importFile = importFile;
+    }
+
+    public String getExportFile() {
+        return exportFile;
+    }
+
+    public void setExportFile(String exportFile) {
+        this.exportFile = exportFile;
+    }
+}
@@ -0,0 +1,82 @@
+package org.lab.configuration;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Configuration running each HTTP request, and the repository calls made while serving it, on its own virtual thread,
+ * enabled with offer.virtual-threads.enabled=true on Java 21 or later.
+ * A virtual thread waiting on the database releases its carrier thread, so the number of requests in flight
+ * is no longer bound by a fixed pool of worker threads. The project still targets Java 8, so virtual threads
+ * are created through reflection.
+ */
+@Configuration
+@ConditionalOnProperty(name = "offer.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements DisposableBean {
+    public static final String EXECUTOR_NAME = "virtualThreadExecutor";
+
+    private ExecutorService executor;
+
+    @Bean(name = EXECUTOR_NAME, destroyMethod = "")
+    public ExecutorService virtualThreadExecutor() {
+        // shut down on destroy through its interface, its class is not accessible to reflection
+        executor = newVirtualThreadPerTaskExecutor("offer-virtual-");
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer(
+            @Qualifier(EXECUTOR_NAME) ExecutorService executor) {
+        // the connector executor replaces the worker pool, server.tomcat.max-threads is then ignored
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            final ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if (protocolHandler instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) protocolHandler).setExecutor(executor);
+            }
+        });
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread for each task.
+     *
+     * @param prefix the prefix of the thread names.
+     * @return an executor starting a new virtual thread for each task.
+     * @throws IllegalStateException if virtual threads are not supported by the running JVM.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on Java "
+                    + System.getProperty("java.version"), e);
+        } catch (final IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to create virtual threads", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.lab.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.services.OfferService;
+import org.lab.services.WriteBehindOfferService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Configuration for the write-behind queue of the offer writes, enabled with offer.write-behind.enabled=true.
+ * The queue decorates the cache or the catalog when enabled, otherwise the storage, so that the offers queued
+ * are read before any of them. On shutdown the queued writes are written before the storage is closed.
+ */
+@Configuration
+@EnableConfigurationProperties(WriteBehindProperties.class)
+@ConditionalOnProperty(name = "offer.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfiguration {
+
+    @Bean
+    @Primary
+    public WriteBehindOfferService writeBehindOfferService(@Qualifier(OfferService.WRITE_BEHIND_TARGET) ObjectProvider<OfferService> target,
+                                                           @Qualifier(OfferService.STORAGE) OfferService storage,
+                                                           WriteBehindProperties properties,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        final WriteBehindOfferService result = new WriteBehindOfferService(target.getIfAvailable(() -> storage),
+                properties.getCapacity(), properties.getBatchSize(), properties.getFlushInterval(), properties.getEnqueueTimeout(),
+                properties.getMaxAttempts(), properties.getAwaitTimeout());
+        meterRegistry.ifAvailable(result::registerMetrics);
+        return result;
+    }
+}
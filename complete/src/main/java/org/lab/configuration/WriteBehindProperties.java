@@ -0,0 +1,102 @@
+package org.lab.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Properties of the write-behind queue of the offer writes.
+ */
+@ConfigurationProperties(prefix = "offer.write-behind")
+public class WriteBehindProperties {
+    /**
+     * Whether the writes of single offers are acknowledged once queued, and written in the background.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of offers with a queued write.
+     */
+    private int capacity = 10000;
+
+    /**
+     * Maximum number of offers written in one batch.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Time a batch waits for more writes before being written, unless full.
+     */
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    /**
+     * Time a write waits for room in the full queue before failing.
+     */
+    private Duration enqueueTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Number of failed attempts after which a queued write is dropped.
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * Time a versioned save or a batch waits for the queued writes of the same offers before failing.
+     */
+    private Duration awaitTimeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getEnqueueTimeout() {
+        return enqueueTimeout;
+    }
+
+    public void setEnqueueTimeout(Duration enqueueTimeout) {
+        this.enqueueTimeout = enqueueTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getAwaitTimeout() {
+        return awaitTimeout;
+    }
+
+    public void setAwaitTimeout(Duration awaitTimeout) {
+        this.awaitTimeout = awaitTimeout;
+    }
+}
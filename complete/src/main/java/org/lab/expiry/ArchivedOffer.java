@@ -0,0 +1,114 @@
+package org.lab.expiry;
+
+import org.lab.Offer;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Copy of an expired offer moved to the archive, with the time it was archived.
+ */
+@Entity
+@Table(name = "archived_offer")
+public class ArchivedOffer {
+    @Id
+    private Integer id;
+
+    private String product;
+
+    private BigDecimal price;
+
+    private LocalDate start;
+
+    private LocalDate end;
+
+    private Long version;
+
+    private Instant lastModified;
+
+    @Column(nullable = false)
+    private Instant archived;
+
+    public ArchivedOffer() {
+    }
+
+    public ArchivedOffer(Offer offer, Instant archived) {
+        this.id = offer.getId();
+        this.product = offer.getProduct();
+        this.price = offer.getPrice();
+        this.start = offer.getStart();
+        this.end = offer.getEnd();
+        this.version = offer.getVersion();
+        this.lastModified = offer.getLastModified();
+        this.archived = archived;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public void setProduct(String product) {
+        this.product = product;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDate start) {
+        this.start = start;
+    }
+
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDate end) {
+        this.end = end;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public Instant getArchived() {
+        return archived;
+    }
+
+    public void setArchived(Instant archived) {
+        this.archived = archived;
+    }
+}
@@ -0,0 +1,175 @@
+package org.lab.expiry;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.Offer;
+import org.lab.repositories.ArchivedOfferRepository;
+import org.lab.services.OfferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sweeper deleting in the background the offers expired for longer than the retention period
+ * (offer.expiry.enabled=true), optionally moving them to the archive first.
+ * A sweep deletes the offers by batches through the offer service, each batch in its own short write,
+ * so that the locks taken are few and brief, and the caches and indexes stay in sync with the storage.
+ * The number of batches of a sweep is bounded, and the batches are spaced by a delay, so that a sweep
+ * never takes over the storage from the requests.
+ * The offers purged and archived are counted in the offer.expiry metrics.
+ */
+public class OfferExpirySweeper implements Closeable {
+    private final static Logger LOG = LoggerFactory.getLogger(OfferExpirySweeper.class);
+
+    private final OfferService offerService;
+    private final ArchivedOfferRepository archive;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration batchDelay;
+    private final Clock clock = Clock.systemDefaultZone();
+    private final ScheduledExecutorService executor;
+    private final AtomicLong purgedOffers = new AtomicLong();
+    private final AtomicLong archivedOffers = new AtomicLong();
+
+    /**
+     * Creates a sweeper, sweeping at each interval.
+     *
+     * @param offerService the offer service.
+     * @param archive      the repository of the archived offers, or null if the offers are purged only.
+     * @param retention    the time an expired offer is kept.
+     * @param batchSize    the maximum number of offers deleted in one batch.
+     * @param maxBatches   the maximum number of batches in one sweep.
+     * @param batchDelay   the delay between two batches.
+     * @param interval     the interval between two sweeps.
+     */
+    public OfferExpirySweeper(OfferService offerService, ArchivedOfferRepository archive, Duration retention,
+                              int batchSize, int maxBatches, Duration batchDelay, Duration interval) {
+        this.offerService = offerService;
+        this.archive = archive;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.batchDelay = batchDelay;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "offer-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long delay = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::run, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the metrics of the offers purged and archived.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("offer.expiry.purged", this, OfferExpirySweeper::getPurgedOffers)
+                .description("Expired offers deleted from the storage")
+                .register(registry);
+        FunctionCounter.builder("offer.expiry.archived", this, OfferExpirySweeper::getArchivedOffers)
+                .description("Expired offers moved to the archive")
+                .register(registry);
+    }
+
+    /**
+     * Returns the number of offers purged since the start, archived or not.
+     *
+     * @return the number of offers purged.
+     */
+    public long getPurgedOffers() {
+        return purgedOffers.get();
+    }
+
+    /**
+     * Returns the number of offers archived since the start.
+     *
+     * @return the number of offers archived.
+     */
+    public long getArchivedOffers() {
+        return archivedOffers.get();
+    }
+
+    /**
+     * Deletes the offers whose end date is older than the retention period, by batches,
+     * until none is left or the maximum number of batches is reached.
+     *
+     * @return the number of offers deleted.
+     */
+    public int sweep() {
+        final LocalDate endBefore = LocalDate.now(clock).minusDays(retention.toDays());
+        int result = 0;
+        for (int batch = 0; batch < maxBatches && !executor.isShutdown(); batch++) {
+            if (batch > 0 && !batchDelay.isZero()) {
+                try {
+                    Thread.sleep(batchDelay.toMillis());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            final Set<Integer> ids = offerService.deleteExpiredOffers(endBefore, batchSize, this::archive);
+            purgedOffers.addAndGet(ids.size());
+            if (archive != null) {
+                archivedOffers.addAndGet(ids.size());
+            }
+            result += ids.size();
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        if (result > 0) {
+            LOG.info("Purged {} offers ended before {}", result, endBefore);
+        }
+        return result;
+    }
+
+    private void archive(List<Offer> offers) {
+        if (archive == null) {
+            return;
+        }
+        final Instant now = clock.instant();
+        final List<ArchivedOffer> copies = new ArrayList<>(offers.size());
+        for (final Offer offer : offers) {
+            copies.add(new ArchivedOffer(offer, now));
+        }
+        // an offer archived again, when its deletion failed, replaces the archived copy
+        archive.saveAll(copies);
+    }
+
+    private void run() {
+        try {
+            sweep();
+        } catch (final RuntimeException e) {
+            // the offers left are deleted at the next sweep
+            LOG.error("Offer expiry sweep failed", e);
+        }
+    }
+
+    /**
+     * Stops the sweeps, waiting for the current batch to complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
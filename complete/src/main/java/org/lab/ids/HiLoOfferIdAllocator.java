@@ -0,0 +1,176 @@
+package org.lab.ids;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.services.OfferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allocator of offer ids reserving blocks of ids from a persistent sequence (hi/lo).
+ * Ids of the current block are allocated locally without locking, and only reserving a new block
+ * requires a round trip to the database, where the sequence row is locked for the update.
+ * A new block never starts below the greatest stored id, so that the sequence catches up with offers stored
+ * with explicit ids, or restored from a durable store.
+ * Threads wait for a new block on a lock rather than a monitor, which would pin virtual threads to their carrier.
+ * The ids left in the current block and the blocks reserved are exposed as metrics.
+ */
+@Service
+public class HiLoOfferIdAllocator implements OfferIdAllocator {
+    private final static Logger LOG = LoggerFactory.getLogger(HiLoOfferIdAllocator.class);
+    private static final String SEQUENCE_NAME = "offer";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private OfferService offerService;
+    private int blockSize = 100;
+    private final Lock reserveLock = new ReentrantLock();
+    private final AtomicLong reservedBlocks = new AtomicLong();
+    private volatile Block block = new Block(0, 0);
+
+    @PersistenceContext
+    public void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        // a block is reserved in its own transaction, independent from the caller one
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Autowired
+    public void setOfferService(OfferService offerService) {
+        this.offerService = offerService;
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("offer.ids.remaining", this, HiLoOfferIdAllocator::getRemainingIds)
+                .description("Offer ids left in the reserved block")
+                .register(meterRegistry);
+        FunctionCounter.builder("offer.ids.blocks.reserved", this, HiLoOfferIdAllocator::getReservedBlocks)
+                .description("Blocks of offer ids reserved from the sequence")
+                .register(meterRegistry);
+    }
+
+    @Value("${offer.id.block-size:100}")
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Integer nextId() {
+        while (true) {
+            final Block current = block;
+            final long id = current.next();
+            if (id > 0) {
+                return (int) id;
+            }
+            reserveLock.lock();
+            try {
+                // another thread may have already replaced the exhausted block
+                if (block == current) {
+                    block = reserveBlock();
+                }
+            } finally {
+                reserveLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of ids left in the current block.
+     *
+     * @return the number of ids left in the current block.
+     */
+    public long getRemainingIds() {
+        return block.remaining();
+    }
+
+    /**
+     * Returns the number of blocks reserved since startup.
+     *
+     * @return the number of blocks reserved since startup.
+     */
+    public long getReservedBlocks() {
+        return reservedBlocks.get();
+    }
+
+    private Block reserveBlock() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                final Block result = transactionTemplate.execute(status -> {
+                    IdSequence sequence = entityManager.find(IdSequence.class, SEQUENCE_NAME, LockModeType.PESSIMISTIC_WRITE);
+                    if (sequence == null) {
+                        sequence = new IdSequence(SEQUENCE_NAME, 1);
+                        entityManager.persist(sequence);
+                    }
+                    final Integer maxId = offerService.getMaxId();
+                    final long first = maxId == null ? sequence.getNextValue() : Math.max(sequence.getNextValue(), maxId + 1L);
+                    final long limit = first + blockSize;
+                    if (limit - 1 > Integer.MAX_VALUE) {
+                        throw new IllegalStateException("Offer ids exhausted");
+                    }
+                    sequence.setNextValue(limit);
+                    return new Block(first, limit);
+                });
+                reservedBlocks.incrementAndGet();
+                LOG.debug("Reserved offer ids from {} to {}", result.first, result.limit - 1);
+                return result;
+            } catch (final DataIntegrityViolationException e) {
+                // the sequence row was concurrently created by another node
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Block of reserved ids, from first (included) to limit (excluded).
+     */
+    private static final class Block {
+        private final long first;
+        private final long limit;
+        private final AtomicLong next;
+
+        Block(long first, long limit) {
+            this.first = first;
+            this.limit = limit;
+            this.next = new AtomicLong(first);
+        }
+
+        /**
+         * Returns the next id of the block, or -1 if the block is exhausted.
+         */
+        long next() {
+            final long id = next.getAndIncrement();
+            return id < limit ? id : -1;
+        }
+
+        long remaining() {
+            return Math.max(0, limit - next.get());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.lab.ids;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Persistent sequence from which blocks of ids are reserved.
+ * The next value is the first id of the next block to reserve.
+ */
+@Entity
+@Table(name = "id_sequence")
+public class IdSequence {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long nextValue;
+
+    public IdSequence() {
+    }
+
+    public IdSequence(String name, long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
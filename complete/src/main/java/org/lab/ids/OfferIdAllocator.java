@@ -0,0 +1,9 @@
+package org.lab.ids;
+
+/**
+ * Interface for the allocation of offer ids.
+ * Allocated ids are positive and never repeat, across restarts and across nodes sharing the same database.
+ */
+public interface OfferIdAllocator {
+    Integer nextId();
+}
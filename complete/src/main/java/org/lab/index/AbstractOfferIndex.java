@@ -0,0 +1,155 @@
+package org.lab.index;
+
+import org.lab.Offer;
+import org.lab.services.OfferChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base class for the in-memory indexes of offers.
+ * An index is loaded on startup by the {@link OfferIndexLoader}, and kept in sync with the change events of the offer service.
+ * Subclasses update their structures under the write lock, and read them under the read lock,
+ * unless they are concurrent: their changes are then applied without the lock once loaded.
+ */
+public abstract class AbstractOfferIndex {
+    private final static Logger LOG = LoggerFactory.getLogger(AbstractOfferIndex.class);
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Set<Integer> changedWhileLoading;
+
+    /**
+     * Starts loading the stored offers, from now on the changed offers are tracked.
+     */
+    void startLoading() {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a page of loaded offers.
+     * Offers changed while loading are not overwritten with the loaded ones.
+     *
+     * @param page the loaded offers.
+     */
+    void load(List<Offer> page) {
+        lock.writeLock().lock();
+        try {
+            final List<Offer> offers = new ArrayList<>(page.size());
+            for (final Offer offer : page) {
+                if (!changedWhileLoading.contains(offer.getId())) {
+                    offers.add(offer);
+                }
+            }
+            putAll(offers);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Completes the loading of the stored offers.
+     */
+    void finishLoading() {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = null;
+            LOG.info("Loaded {} offers in {}", indexedOffers(), getClass().getSimpleName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onOfferChange(OfferChangeEvent event) {
+        if (isConcurrent() && changedWhileLoading == null) {
+            apply(event);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(event.getId());
+            }
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(OfferChangeEvent event) {
+        if (event.getType() == OfferChangeEvent.Type.SAVED) {
+            put(event.getOffer());
+        } else {
+            remove(event.getId());
+        }
+    }
+
+    /**
+     * Returns the number of indexed offers.
+     *
+     * @return the number of indexed offers.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexedOffers();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether the index applies the changes of different offers concurrently, each one atomically,
+     * in which case they are applied without the lock once the index is loaded.
+     *
+     * @return true if the index is concurrent.
+     */
+    protected boolean isConcurrent() {
+        return false;
+    }
+
+    /**
+     * Adds or replaces the offer in the index, called under the write lock, or without lock if the index is concurrent.
+     *
+     * @param offer the offer.
+     */
+    protected abstract void put(Offer offer);
+
+    /**
+     * Adds or replaces a page of loaded offers in the index, called under the write lock.
+     *
+     * @param offers the offers.
+     */
+    protected void putAll(List<Offer> offers) {
+        for (final Offer offer : offers) {
+            put(offer);
+        }
+    }
+
+    /**
+     * Removes the offer with the given id from the index, if present, called under the write lock,
+     * or without lock if the index is concurrent.
+     *
+     * @param id the offer id.
+     */
+    protected abstract void remove(Integer id);
+
+    /**
+     * Returns the number of indexed offers, called under a lock.
+     *
+     * @return the number of indexed offers.
+     */
+    protected abstract int indexedOffers();
+}
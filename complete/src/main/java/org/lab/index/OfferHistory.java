@@ -0,0 +1,281 @@
+package org.lab.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.lab.Offer;
+import org.lab.OfferRevision;
+import org.lab.repositories.OfferRevisionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * History of the price and period of the offers, answering what they were at a given time.
+ * The history of an offer gets a revision each time its price or period changes, and a deleted revision when
+ * it is deleted; a change of the product only is not recorded. On startup, the current revision of each offer is
+ * recorded unless already stored. The revisions are appended to the offer_revision table, durable with the database,
+ * and only the latest ones of each offer are kept.
+ * The histories read or changed recently are cached in memory, bounded in total size and expiring after their
+ * time to live, so that the revisions recorded by other instances of the service are read once expired.
+ * The revisions of a cached offer are delta-encoded in a chunk of bytes, each new revision being appended to it.
+ * The histories are updated and read without the index lock, each one atomically in its map entry.
+ * The current offers are read from the offer service as before, the history is read only when asked for.
+ */
+public class OfferHistory extends AbstractOfferIndex {
+    private final static Logger LOG = LoggerFactory.getLogger(OfferHistory.class);
+    // estimated memory of a history besides its bytes
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final OfferRevisionRepository repository;
+    private final int maxRevisions;
+    private final Cache<Integer, Chunk> histories;
+
+    /**
+     * Creates a history.
+     *
+     * @param repository   the repository storing the revisions.
+     * @param maxRevisions the maximum number of revisions kept for each offer.
+     * @param maximumSize  the maximum size in bytes of the cached histories.
+     * @param timeToLive   the time to live of a cached history.
+     */
+    public OfferHistory(OfferRevisionRepository repository, int maxRevisions, long maximumSize, Duration timeToLive) {
+        this.repository = repository;
+        this.maxRevisions = maxRevisions;
+        this.histories = Caffeine.newBuilder()
+                .maximumWeight(maximumSize)
+                .<Integer, Chunk>weigher((id, chunk) -> chunk.bytes.length + ENTRY_OVERHEAD)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Registers the metrics of the cached histories, named offerHistory.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, histories, "offerHistory");
+    }
+
+    /**
+     * Returns the revisions of an offer kept in the history.
+     *
+     * @param id the offer id.
+     * @return the revisions of the offer, oldest first, or null if none is kept.
+     */
+    public List<OfferRevision> getRevisions(Integer id) {
+        final Chunk chunk = histories.get(id, this::read);
+        if (chunk.count == 0) {
+            return null;
+        }
+        final List<OfferRevision> revisions = OfferRevisionCodec.decode(id, chunk.bytes, chunk.length);
+        return revisions.subList(Math.max(0, revisions.size() - maxRevisions), revisions.size());
+    }
+
+    /**
+     * Returns the revision of an offer in effect at the given time.
+     * The first revision kept is assumed in effect since ever when its time is not known.
+     *
+     * @param id   the offer id.
+     * @param time the time.
+     * @return the revision in effect, deleted if the offer was deleted then, or null if the time is before
+     * the first revision kept or no revision is kept.
+     */
+    public OfferRevision findAsOf(Integer id, Instant time) {
+        final List<OfferRevision> revisions = getRevisions(id);
+        if (revisions == null) {
+            return null;
+        }
+        OfferRevision result = null;
+        for (final OfferRevision revision : revisions) {
+            if (revision.getValidFrom() != null && revision.getValidFrom().isAfter(time)) {
+                break;
+            }
+            result = revision;
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    protected void put(Offer offer) {
+        final OfferRevision revision = OfferRevision.of(offer);
+        final boolean[] appended = {false, false};
+        histories.asMap().compute(offer.getId(), (id, cached) -> {
+            final Chunk chunk = cached == null ? read(id) : cached;
+            if (chunk.last != null && !chunk.last.isDeleted()
+                    && (isStale(revision, chunk.last) || isSamePriceAndPeriod(revision, chunk.last))) {
+                return chunk;
+            }
+            appended[0] = true;
+            appended[1] = chunk.isFull(maxRevisions);
+            return chunk.append(revision, maxRevisions);
+        });
+        if (appended[0]) {
+            store(revision, appended[1]);
+        }
+    }
+
+    @Override
+    protected void putAll(List<Offer> offers) {
+        if (offers.isEmpty()) {
+            return;
+        }
+        // the current revisions are compared with the last stored ones in a single query, and not cached
+        final Map<Integer, OfferRevision> stored = new HashMap<>();
+        final List<Integer> ids = offers.stream().map(Offer::getId).collect(Collectors.toList());
+        for (final StoredOfferRevision last : repository.findLastByOfferIdIn(ids)) {
+            stored.put(last.getOfferId(), decode(last));
+        }
+        final List<StoredOfferRevision> appended = new ArrayList<>();
+        for (final Offer offer : offers) {
+            final OfferRevision revision = OfferRevision.of(offer);
+            final OfferRevision last = stored.get(offer.getId());
+            if (last == null || last.isDeleted()
+                    || !(isStale(revision, last) || isSamePriceAndPeriod(revision, last))) {
+                appended.add(encode(revision));
+            }
+        }
+        repository.saveAll(appended);
+    }
+
+    @Override
+    protected void remove(Integer id) {
+        final OfferRevision[] appended = {null};
+        histories.asMap().compute(id, (key, cached) -> {
+            final Chunk chunk = cached == null ? read(key) : cached;
+            if (chunk.last == null || chunk.last.isDeleted()) {
+                return chunk;
+            }
+            appended[0] = new OfferRevision(key, chunk.last.getVersion(), Instant.now(), null, null, null, true);
+            return chunk.append(appended[0], maxRevisions);
+        });
+        if (appended[0] != null) {
+            store(appended[0], false);
+        }
+    }
+
+    @Override
+    protected int indexedOffers() {
+        return (int) histories.estimatedSize();
+    }
+
+    private Chunk read(Integer id) {
+        final List<StoredOfferRevision> stored = repository.findByOfferId(id);
+        Chunk result = new Chunk();
+        for (final StoredOfferRevision revision : stored.subList(Math.max(0, stored.size() - maxRevisions), stored.size())) {
+            result = result.append(decode(revision), maxRevisions);
+        }
+        return result;
+    }
+
+    private void store(OfferRevision revision, boolean trim) {
+        try {
+            repository.save(encode(revision));
+            if (trim) {
+                final List<Long> ids = repository.findIdsByOfferId(revision.getId());
+                if (ids.size() > maxRevisions) {
+                    repository.deleteByIdIn(ids.subList(maxRevisions, ids.size()));
+                }
+            }
+        } catch (final RuntimeException e) {
+            // the cached history is read again from the stored revisions
+            LOG.warn("Failed to store the revision {} of offer {}", revision.getVersion(), revision.getId(), e);
+            histories.invalidate(revision.getId());
+        }
+    }
+
+    private static StoredOfferRevision encode(OfferRevision revision) {
+        return new StoredOfferRevision(revision.getId(), revision.getValidFrom(),
+                OfferRevisionCodec.encode(Collections.singletonList(revision)));
+    }
+
+    private static OfferRevision decode(StoredOfferRevision stored) {
+        return OfferRevisionCodec.decode(stored.getOfferId(), stored.getRevision(), stored.getRevision().length).get(0);
+    }
+
+    private static boolean isStale(OfferRevision revision, OfferRevision last) {
+        // an event arriving after a later one of the same offer
+        return revision.getVersion() != null && last.getVersion() != null && revision.getVersion() <= last.getVersion();
+    }
+
+    private static boolean isSamePriceAndPeriod(OfferRevision revision, OfferRevision last) {
+        // the prices are compared regardless of their scale, 400 as sent and 400.00 as read from the database
+        final boolean samePrice = revision.getPrice() == null || last.getPrice() == null
+                ? revision.getPrice() == last.getPrice()
+                : revision.getPrice().compareTo(last.getPrice()) == 0;
+        return samePrice
+                && Objects.equals(revision.getStart(), last.getStart())
+                && Objects.equals(revision.getEnd(), last.getEnd());
+    }
+
+    /**
+     * Encoded revisions of an offer, never changed once in the map: a revision is appended past the length
+     * of the chunk in the same bytes when there is room, in a new chunk, so that the readers of the previous one
+     * decode the bytes they know without a lock. The bytes grow by doubling, and the oldest revisions are dropped
+     * once twice as many as kept, so that an append costs the encoding of a single revision on average.
+     */
+    private static final class Chunk {
+        private final byte[] bytes;
+        private final int length;
+        private final int count;
+        // values of the last revision, from which the next one is encoded
+        private final OfferRevisionCodec.State state;
+        private final OfferRevision last;
+
+        Chunk() {
+            this(new byte[0], 0, 0, new OfferRevisionCodec.State(), null);
+        }
+
+        private Chunk(byte[] bytes, int length, int count, OfferRevisionCodec.State state, OfferRevision last) {
+            this.bytes = bytes;
+            this.length = length;
+            this.count = count;
+            this.state = state;
+            this.last = last;
+        }
+
+        boolean isFull(int maxRevisions) {
+            // the oldest revisions are dropped on the next append, from the stored ones as well
+            return count >= 2 * maxRevisions;
+        }
+
+        Chunk append(OfferRevision revision, int maxRevisions) {
+            if (isFull(maxRevisions)) {
+                return compact(maxRevisions).append(revision, maxRevisions);
+            }
+            final OfferRevisionCodec.State nextState = state.copy();
+            final byte[] delta = OfferRevisionCodec.encode(nextState, revision);
+            final byte[] nextBytes = length + delta.length <= bytes.length
+                    ? bytes : Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + delta.length));
+            System.arraycopy(delta, 0, nextBytes, length, delta.length);
+            return new Chunk(nextBytes, length + delta.length, count + 1, nextState, revision);
+        }
+
+        private Chunk compact(int maxRevisions) {
+            final List<OfferRevision> revisions = OfferRevisionCodec.decode(last.getId(), bytes, length);
+            Chunk result = new Chunk();
+            for (final OfferRevision revision : revisions.subList(Math.max(0, revisions.size() - maxRevisions + 1), revisions.size())) {
+                result = result.append(revision, maxRevisions);
+            }
+            return result;
+        }
+    }
+}
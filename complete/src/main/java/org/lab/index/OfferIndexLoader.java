@@ -0,0 +1,95 @@
+package org.lab.index;
+
+import org.lab.Offer;
+import org.lab.services.OfferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the in-memory indexes of offers on startup.
+ * The stored offers are read page by page in a single pass, and each page is added to all the indexes,
+ * so that a restart on a large store reads it only once whatever the number of indexes.
+ * The indexes are loaded when the application context starts, before the web server, so that no request
+ * is answered from an index still loading.
+ */
+@Component
+public class OfferIndexLoader implements SmartLifecycle {
+    private final static Logger LOG = LoggerFactory.getLogger(OfferIndexLoader.class);
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private OfferService offerService;
+    private List<AbstractOfferIndex> indexes;
+    private volatile boolean running;
+
+    @Autowired
+    public void setOfferService(OfferService offerService) {
+        this.offerService = offerService;
+    }
+
+    @Autowired
+    public void setIndexes(List<AbstractOfferIndex> indexes) {
+        this.indexes = indexes;
+    }
+
+    @Override
+    public void start() {
+        load();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Loads all the stored offers in the indexes.
+     */
+    public void load() {
+        final long start = System.currentTimeMillis();
+        indexes.forEach(AbstractOfferIndex::startLoading);
+        final List<Offer> page = new ArrayList<>(LOAD_PAGE_SIZE);
+        int loaded = 0;
+        Integer afterId = 0;
+        do {
+            page.clear();
+            offerService.listAllOffers(afterId, LOAD_PAGE_SIZE, page::add);
+            for (final AbstractOfferIndex index : indexes) {
+                index.load(page);
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+            loaded += page.size();
+        } while (page.size() == LOAD_PAGE_SIZE);
+        indexes.forEach(AbstractOfferIndex::finishLoading);
+        LOG.info("Loaded {} offers in {} indexes in {} ms", loaded, indexes.size(), System.currentTimeMillis() - start);
+    }
+}
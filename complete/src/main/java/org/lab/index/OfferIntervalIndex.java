@@ -0,0 +1,239 @@
+package org.lab.index;
+
+import org.lab.Offer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of the offers by their period of validity.
+ * Periods are kept in an interval tree, a treap ordered by start date and augmented with the latest end date
+ * of each subtree, which answers the offers active on a date in O(log n + k) expected time, a page of them
+ * being selected by id in a heap of the page size.
+ * Offers are also kept ordered by end date and id, to answer the pages of the offers expiring within a range of dates.
+ */
+@Component
+public class OfferIntervalIndex extends AbstractOfferIndex {
+    private final Random random = new Random();
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final NavigableMap<Long, NavigableSet<Integer>> idsByEnd = new TreeMap<>();
+    private Node root;
+
+    /**
+     * Returns a page of the offers active on the date, whose period of validity includes it, ordered by id.
+     *
+     * @param date  the date.
+     * @param after the id after which the page starts.
+     * @param limit the maximum number of offers returned.
+     * @return the offers active on the date.
+     */
+    public List<Offer> findActiveOn(LocalDate date, int after, int limit) {
+        // the offers of the lowest ids, the highest at the head to be replaced
+        final PriorityQueue<Offer> page = new PriorityQueue<>(Comparator.comparing(Offer::getId).reversed());
+        lock.readLock().lock();
+        try {
+            collectActive(root, date.toEpochDay(), after, limit, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+        final List<Offer> result = new ArrayList<>(page);
+        result.sort(Comparator.comparing(Offer::getId));
+        return result;
+    }
+
+    /**
+     * Returns a page of the offers whose end date is between the given dates, both included,
+     * ordered by end date and id.
+     *
+     * @param from     the first end date.
+     * @param to       the last end date.
+     * @param afterEnd the end date of the offer after which the page starts, or null for the first page.
+     * @param after    the id of the offer after which the page starts, ignored for the first page.
+     * @param limit    the maximum number of offers returned.
+     * @return the offers whose end date is between the given dates.
+     */
+    public List<Offer> findEndingBetween(LocalDate from, LocalDate to, LocalDate afterEnd, int after, int limit) {
+        final List<Offer> result = new ArrayList<>();
+        final long first = afterEnd == null ? from.toEpochDay() : Math.max(from.toEpochDay(), afterEnd.toEpochDay());
+        lock.readLock().lock();
+        try {
+            final Map<Long, NavigableSet<Integer>> ends = idsByEnd.subMap(first, true, to.toEpochDay(), true);
+            for (final Map.Entry<Long, NavigableSet<Integer>> entry : ends.entrySet()) {
+                final boolean resumed = afterEnd != null && entry.getKey() == afterEnd.toEpochDay();
+                for (final Integer id : resumed ? entry.getValue().tailSet(after, false) : entry.getValue()) {
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                    result.add(nodes.get(id).offer);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    protected int indexedOffers() {
+        return nodes.size();
+    }
+
+    @Override
+    protected void put(Offer offer) {
+        remove(offer.getId());
+        if (offer.getStart() == null || offer.getEnd() == null) {
+            return;
+        }
+        final Node node = new Node(offer, random.nextInt());
+        nodes.put(node.id, node);
+        idsByEnd.computeIfAbsent(node.end, end -> new TreeSet<>()).add(node.id);
+        root = insert(root, node);
+    }
+
+    @Override
+    protected void remove(Integer id) {
+        final Node node = nodes.remove(id);
+        if (node != null) {
+            final Set<Integer> ids = idsByEnd.get(node.end);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                idsByEnd.remove(node.end);
+            }
+            root = delete(root, node);
+        }
+    }
+
+    private static void collectActive(Node node, long day, int after, int limit, PriorityQueue<Offer> page) {
+        // no period in the subtree reaches the day
+        if (node == null || node.maxEnd < day) {
+            return;
+        }
+        collectActive(node.left, day, after, limit, page);
+        // periods in the right subtree start after this one
+        if (node.start > day) {
+            return;
+        }
+        if (node.end >= day && node.id > after) {
+            if (page.size() < limit) {
+                page.add(node.offer);
+            } else if (node.id < page.peek().getId()) {
+                page.poll();
+                page.add(node.offer);
+            }
+        }
+        collectActive(node.right, day, after, limit, page);
+    }
+
+    private static Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.compareTo(node) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, Node deleted) {
+        if (node == null) {
+            return null;
+        }
+        final int comparison = deleted.compareTo(node);
+        if (comparison < 0) {
+            node.left = delete(node.left, deleted);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, deleted);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else if (node.left.priority > node.right.priority) {
+            // rotate the node down until it has at most one child
+            node = rotateRight(node);
+            node.right = delete(node.right, deleted);
+        } else {
+            node = rotateLeft(node);
+            node.left = delete(node.left, deleted);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        final Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        final Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    /**
+     * Node of the treap, ordered by start day and id, with the latest end day of its subtree.
+     */
+    private static final class Node implements Comparable<Node> {
+        private final Offer offer;
+        private final int id;
+        private final long start;
+        private final long end;
+        private final int priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(Offer offer, int priority) {
+            this.offer = offer;
+            this.id = offer.getId();
+            this.start = offer.getStart().toEpochDay();
+            this.end = offer.getEnd().toEpochDay();
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            final int comparison = Long.compare(start, other.start);
+            return comparison != 0 ? comparison : Integer.compare(id, other.id);
+        }
+    }
+}
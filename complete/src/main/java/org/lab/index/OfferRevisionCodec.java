@@ -0,0 +1,213 @@
+package org.lab.index;
+
+import org.lab.OfferRevision;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Delta encoding of the revisions of an offer in a byte array, oldest first.
+ * Each revision starts with a byte of flags telling which fields changed since the previous revision,
+ * followed by the changes as variable-length integers: the time and the version differences,
+ * then the price, start and end differences when changed. A revision changing the price by a few cents
+ * and nothing else takes about 6 bytes. The first revision is encoded as a change from zero values.
+ */
+class OfferRevisionCodec {
+    private static final int PRICE = 1;
+    private static final int START = 2;
+    private static final int END = 4;
+    private static final int DELETED = 8;
+    private static final int NO_PRICE = 16;
+    private static final int SCALE = 32;
+    private static final int BIG_PRICE = 64;
+
+    private OfferRevisionCodec() {
+    }
+
+    /**
+     * Encodes revisions of the same offer.
+     *
+     * @param revisions the revisions, oldest first.
+     * @return the encoded revisions.
+     */
+    static byte[] encode(List<OfferRevision> revisions) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(revisions.size() * 8);
+        final State state = new State();
+        for (final OfferRevision revision : revisions) {
+            encode(out, state, revision);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a revision as a change from the previous one, and moves the state to it.
+     *
+     * @param state    the values of the previous revision, new ones for the first revision.
+     * @param revision the revision.
+     * @return the encoded revision.
+     */
+    static byte[] encode(State state, OfferRevision revision) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(8);
+        encode(out, state, revision);
+        return out.toByteArray();
+    }
+
+    private static void encode(ByteArrayOutputStream out, State state, OfferRevision revision) {
+        final BigDecimal price = revision.isDeleted() ? state.price : revision.getPrice();
+        final long start = revision.isDeleted() || revision.getStart() == null ? state.start : revision.getStart().toEpochDay();
+        final long end = revision.isDeleted() || revision.getEnd() == null ? state.end : revision.getEnd().toEpochDay();
+        int flags = revision.isDeleted() ? DELETED : 0;
+        if (!Objects.equals(price, state.price)) {
+            if (price == null) {
+                flags |= NO_PRICE;
+            } else {
+                flags |= PRICE;
+                if (price.scale() != state.scale()) {
+                    flags |= SCALE;
+                }
+                if (!isSmall(price) || !isSmall(state.price)) {
+                    flags |= BIG_PRICE;
+                }
+            }
+        }
+        if (start != state.start) {
+            flags |= START;
+        }
+        if (end != state.end) {
+            flags |= END;
+        }
+        out.write(flags);
+        final long time = revision.getValidFrom() == null ? 0 : revision.getValidFrom().toEpochMilli();
+        writeSigned(out, time - state.time);
+        writeSigned(out, version(revision) - state.version);
+        if ((flags & SCALE) != 0) {
+            writeSigned(out, price.scale());
+        }
+        if ((flags & BIG_PRICE) != 0) {
+            final byte[] bytes = price.unscaledValue().toByteArray();
+            writeSigned(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if ((flags & PRICE) != 0) {
+            writeSigned(out, price.unscaledValue().longValue() - state.unscaled());
+        }
+        if ((flags & START) != 0) {
+            writeSigned(out, start - state.start);
+        }
+        if ((flags & END) != 0) {
+            writeSigned(out, end - state.end);
+        }
+        state.time = time;
+        state.version = version(revision);
+        state.price = price;
+        state.start = start;
+        state.end = end;
+    }
+
+    /**
+     * Decodes the revisions of an offer.
+     *
+     * @param id     the offer id.
+     * @param bytes  the encoded revisions.
+     * @param length the number of bytes of the encoded revisions.
+     * @return the revisions, oldest first.
+     */
+    static List<OfferRevision> decode(Integer id, byte[] bytes, int length) {
+        final List<OfferRevision> result = new ArrayList<>();
+        final State state = new State();
+        final int[] position = {0};
+        while (position[0] < length) {
+            final int flags = bytes[position[0]++];
+            state.time += readSigned(bytes, position);
+            state.version += readSigned(bytes, position);
+            final int scale = (flags & SCALE) != 0 ? (int) readSigned(bytes, position) : state.scale();
+            if ((flags & BIG_PRICE) != 0) {
+                final byte[] unscaled = new byte[(int) readSigned(bytes, position)];
+                System.arraycopy(bytes, position[0], unscaled, 0, unscaled.length);
+                position[0] += unscaled.length;
+                state.price = new BigDecimal(new BigInteger(unscaled), scale);
+            } else if ((flags & PRICE) != 0) {
+                state.price = BigDecimal.valueOf(state.unscaled() + readSigned(bytes, position), scale);
+            } else if ((flags & NO_PRICE) != 0) {
+                state.price = null;
+            }
+            if ((flags & START) != 0) {
+                state.start += readSigned(bytes, position);
+            }
+            if ((flags & END) != 0) {
+                state.end += readSigned(bytes, position);
+            }
+            final boolean deleted = (flags & DELETED) != 0;
+            result.add(new OfferRevision(id, state.version, state.time == 0 ? null : Instant.ofEpochMilli(state.time),
+                    deleted ? null : state.price,
+                    deleted ? null : LocalDate.ofEpochDay(state.start),
+                    deleted ? null : LocalDate.ofEpochDay(state.end), deleted));
+        }
+        return result;
+    }
+
+    private static long version(OfferRevision revision) {
+        return revision.getVersion() == null ? 0 : revision.getVersion();
+    }
+
+    private static boolean isSmall(BigDecimal price) {
+        // the difference of two unscaled values of less than 63 bits fits in a long
+        return price == null || price.unscaledValue().bitLength() < 63;
+    }
+
+    private static void writeSigned(ByteArrayOutputStream out, long value) {
+        // zigzag, so that small negative differences take few bytes as well
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0) {
+            out.write((int) ((bits & 0x7F) | 0x80));
+            bits >>>= 7;
+        }
+        out.write((int) bits);
+    }
+
+    private static long readSigned(byte[] bytes, int[] position) {
+        long bits = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            bits |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+
+    /**
+     * Values of the previous revision, from which the differences are encoded.
+     */
+    static final class State {
+        private long time;
+        private long version;
+        private BigDecimal price;
+        private long start;
+        private long end;
+
+        State copy() {
+            final State result = new State();
+            result.time = time;
+            result.version = version;
+            result.price = price;
+            result.start = start;
+            result.end = end;
+            return result;
+        }
+
+        private int scale() {
+            return price == null ? 0 : price.scale();
+        }
+
+        private long unscaled() {
+            return price == null ? 0 : price.unscaledValue().longValue();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.lab.index;
+
+import org.lab.Offer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of the offers by product.
+ * Products are normalized to lower case: a sorted map of products answers exact and prefix lookups in O(log n + k),
+ * and an inverted index of the product tokens, with the ids of each token sorted, answers token lookups
+ * by walking the ids of the rarest token in order and probing the others, up to the limit.
+ */
+@Component
+public class OfferSearchIndex extends AbstractOfferIndex {
+    private final Map<Integer, Offer> offers = new HashMap<>();
+    private final NavigableMap<String, SortedSet<Integer>> idsByProduct = new TreeMap<>();
+    private final Map<String, SortedSet<Integer>> idsByToken = new HashMap<>();
+
+    /**
+     * Returns the offers of the product, ordered by id.
+     *
+     * @param product the product, regardless of case.
+     * @param limit   the maximum number of offers returned.
+     * @return the offers of the product.
+     */
+    public List<Offer> findByProduct(String product, int limit) {
+        lock.readLock().lock();
+        try {
+            return getOffers(idsByProduct.getOrDefault(normalize(product), Collections.emptySortedSet()), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the offers whose product starts with the prefix, ordered by product.
+     *
+     * @param prefix the prefix, regardless of case.
+     * @param limit  the maximum number of offers returned.
+     * @return the offers whose product starts with the prefix.
+     */
+    public List<Offer> findByProductPrefix(String prefix, int limit) {
+        final String normalizedPrefix = normalize(prefix);
+        final List<Offer> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            final Map<String, SortedSet<Integer>> matches = idsByProduct.subMap(normalizedPrefix, true, normalizedPrefix + Character.MAX_VALUE, false);
+            for (final SortedSet<Integer> ids : matches.values()) {
+                result.addAll(getOffers(ids, limit - result.size()));
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offers whose product contains all the tokens of the text, ordered by id.
+     *
+     * @param text  the text, regardless of case.
+     * @param limit the maximum number of offers returned.
+     * @return the offers whose product contains all the tokens of the text.
+     */
+    public List<Offer> findByTokens(String text, int limit) {
+        final Set<String> tokens = tokenize(normalize(text));
+        lock.readLock().lock();
+        try {
+            // intersect starting from the rarest token
+            final List<SortedSet<Integer>> postings = new ArrayList<>(tokens.size());
+            for (final String token : tokens) {
+                final SortedSet<Integer> ids = idsByToken.get(token);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                postings.add(ids);
+            }
+            if (postings.isEmpty()) {
+                return Collections.emptyList();
+            }
+            postings.sort(Comparator.comparing(Set::size));
+            final List<Offer> result = new ArrayList<>();
+            for (final Integer id : postings.get(0)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (containedInAll(postings, id)) {
+                    result.add(offers.get(id));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected int indexedOffers() {
+        return offers.size();
+    }
+
+    @Override
+    protected void put(Offer offer) {
+        remove(offer.getId());
+        if (offer.getProduct() == null) {
+            return;
+        }
+        final Integer id = offer.getId();
+        final String product = normalize(offer.getProduct());
+        offers.put(id, offer);
+        idsByProduct.computeIfAbsent(product, key -> new TreeSet<>()).add(id);
+        for (final String token : tokenize(product)) {
+            idsByToken.computeIfAbsent(token, key -> new TreeSet<>()).add(id);
+        }
+    }
+
+    @Override
+    protected void remove(Integer id) {
+        final Offer offer = offers.remove(id);
+        if (offer != null) {
+            final String product = normalize(offer.getProduct());
+            removeId(idsByProduct, product, id);
+            for (final String token : tokenize(product)) {
+                removeId(idsByToken, token, id);
+            }
+        }
+    }
+
+    private static boolean containedInAll(List<SortedSet<Integer>> postings, Integer id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Offer> getOffers(SortedSet<Integer> ids, int limit) {
+        final List<Offer> result = new ArrayList<>(Math.min(limit, ids.size()));
+        for (final Integer id : ids) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(offers.get(id));
+        }
+        return result;
+    }
+
+    private static void removeId(Map<String, ? extends Set<Integer>> idsByKey, String key, Integer id) {
+        final Set<Integer> ids = idsByKey.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                idsByKey.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> tokenize(String text) {
+        final Set<String> result = new HashSet<>();
+        for (final String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+}
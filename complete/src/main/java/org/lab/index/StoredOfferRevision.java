@@ -0,0 +1,58 @@
+package org.lab.index;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Revision of an offer stored in the history table, appended once and never updated.
+ * The revision is delta-encoded on its own, from zero values, so that the revisions of an offer appended
+ * by several instances of the service decode in any order.
+ */
+@Entity
+@Table(name = "offer_revision", indexes = @Index(name = "offer_revision_offer", columnList = "offerId"))
+public class StoredOfferRevision {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "offer_revision_seq")
+    @SequenceGenerator(name = "offer_revision_seq", sequenceName = "offer_revision_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer offerId;
+
+    private Instant validFrom;
+
+    @Column(nullable = false, length = 1024)
+    private byte[] revision;
+
+    public StoredOfferRevision() {
+    }
+
+    public StoredOfferRevision(Integer offerId, Instant validFrom, byte[] revision) {
+        this.offerId = offerId;
+        this.validFrom = validFrom;
+        this.revision = revision;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getOfferId() {
+        return offerId;
+    }
+
+    public Instant getValidFrom() {
+        return validFrom;
+    }
+
+    public byte[] getRevision() {
+        return revision;
+    }
+}
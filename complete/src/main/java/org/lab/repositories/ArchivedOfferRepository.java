@@ -0,0 +1,12 @@
+package org.lab.repositories;
+
+import org.lab.expiry.ArchivedOffer;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+/**
+ * Repository of the archived offers, not exported over HTTP.
+ */
+@RepositoryRestResource(exported = false)
+public interface ArchivedOfferRepository extends CrudRepository<ArchivedOffer, Integer> {
+}
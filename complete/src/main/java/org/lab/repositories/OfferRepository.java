@@ -1,9 +1,82 @@
 package org.lab.repositories;
 
 import org.lab.Offer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @RepositoryRestResource
 public interface OfferRepository extends CrudRepository<Offer, Integer> {
+
+    /**
+     * Streams the offers with an id greater than the given one, by ascending id.
+     * Rows are read with a forward-only cursor, so the stream must be consumed and closed within a transaction.
+     *
+     * @param id       the id after which offers are returned.
+     * @param pageable the page bounding the number of offers.
+     * @return the stream of offers.
+     */
+    @RestResource(exported = false)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select o from Offer o where o.id > :id order by o.id")
+    Stream<Offer> streamByIdGreaterThan(@Param("id") Integer id, Pageable pageable);
+
+    /**
+     * Returns the greatest id of the stored offers.
+     *
+     * @return the greatest id, or null if no offer is stored.
+     */
+    @RestResource(exported = false)
+    @Query("select max(o.id) from Offer o")
+    Integer findMaxId();
+
+    /**
+     * Returns the ids of the stored offers among the given ones.
+     *
+     * @param ids the ids to look for.
+     * @return the ids of the stored offers.
+     */
+    @RestResource(exported = false)
+    @Query("select o.id from Offer o where o.id in :ids")
+    List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Returns the offers ending before the given date, by ascending end date, locking them until the end
+     * of the transaction. The range is read from the index on the end date.
+     *
+     * @param date     the date before which offers end.
+     * @param pageable the page bounding the number of offers.
+     * @return the offers.
+     */
+    @RestResource(exported = false)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Offer o where o.end < :date order by o.end")
+    List<Offer> findByEndBefore(@Param("date") LocalDate date, Pageable pageable);
+
+    /**
+     * Deletes the offers with the given ids in a single statement.
+     *
+     * @param ids the ids of the offers to delete.
+     * @return the number of deleted offers.
+     */
+    @RestResource(exported = false)
+    @Modifying
+    @Query("delete from Offer o where o.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,58 @@
+package org.lab.repositories;
+
+import org.lab.index.StoredOfferRevision;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository of the revisions of the offer history, not exported over HTTP.
+ */
+@RepositoryRestResource(exported = false)
+public interface OfferRevisionRepository extends CrudRepository<StoredOfferRevision, Long> {
+
+    /**
+     * Returns the revisions of an offer, oldest first.
+     *
+     * @param offerId the offer id.
+     * @return the revisions.
+     */
+    @Query("select r from StoredOfferRevision r where r.offerId = :offerId order by r.validFrom, r.id")
+    List<StoredOfferRevision> findByOfferId(@Param("offerId") Integer offerId);
+
+    /**
+     * Returns the ids of the revisions of an offer, latest first.
+     *
+     * @param offerId the offer id.
+     * @return the ids of the revisions.
+     */
+    @Query("select r.id from StoredOfferRevision r where r.offerId = :offerId order by r.validFrom desc, r.id desc")
+    List<Long> findIdsByOfferId(@Param("offerId") Integer offerId);
+
+    /**
+     * Returns the revision appended last of each of the given offers having revisions.
+     *
+     * @param offerIds the offer ids.
+     * @return the revisions, one per offer at most.
+     */
+    @Query("select r from StoredOfferRevision r where r.offerId in :offerIds"
+            + " and r.id = (select max(s.id) from StoredOfferRevision s where s.offerId = r.offerId)")
+    List<StoredOfferRevision> findLastByOfferIdIn(@Param("offerIds") Collection<Integer> offerIds);
+
+    /**
+     * Deletes the revisions with the given ids in a single statement.
+     *
+     * @param ids the ids of the revisions to delete.
+     * @return the number of deleted revisions.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from StoredOfferRevision r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
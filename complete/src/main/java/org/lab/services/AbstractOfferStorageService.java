@@ -0,0 +1,95 @@
+package org.lab.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Base class for the services managing the persistence of the offers.
+ * An OfferChangeEvent is published for each offer saved or deleted, and the storage calls are timed
+ * in the offer.repository metric, tagged with the operation.
+ * Batch writes are performed in chunks of offer.batch.chunk-size items, each one written by {@link #writeChunk}.
+ */
+public abstract class AbstractOfferStorageService implements OfferService {
+    protected ApplicationEventPublisher eventPublisher;
+    protected int chunkSize = 500;
+    protected Timer listTimer;
+    protected Timer getTimer;
+    protected Timer getBatchTimer;
+    protected Timer saveTimer;
+    protected Timer patchTimer;
+    protected Timer deleteTimer;
+    protected Timer saveBatchTimer;
+    protected Timer updateBatchTimer;
+    protected Timer deleteBatchTimer;
+    protected Timer deleteExpiredTimer;
+
+    protected AbstractOfferStorageService() {
+        setMeterRegistry(Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        listTimer = repositoryTimer(meterRegistry, "list");
+        getTimer = repositoryTimer(meterRegistry, "get");
+        getBatchTimer = repositoryTimer(meterRegistry, "getBatch");
+        saveTimer = repositoryTimer(meterRegistry, "save");
+        patchTimer = repositoryTimer(meterRegistry, "patch");
+        deleteTimer = repositoryTimer(meterRegistry, "delete");
+        saveBatchTimer = repositoryTimer(meterRegistry, "saveBatch");
+        updateBatchTimer = repositoryTimer(meterRegistry, "updateBatch");
+        deleteBatchTimer = repositoryTimer(meterRegistry, "deleteBatch");
+        deleteExpiredTimer = repositoryTimer(meterRegistry, "deleteExpired");
+    }
+
+    private static Timer repositoryTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("offer.repository")
+                .description("Calls to the offer repository")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @Value("${offer.batch.chunk-size:500}")
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes consecutive chunks of the items, then publishes the change events returned for each chunk.
+     *
+     * @param items  the items.
+     * @param timer  the timer recording the write of each chunk.
+     * @param action the action performed on each chunk, returning the change events.
+     * @param <T>    the type of items.
+     */
+    protected <T> void forEachChunk(List<T> items, Timer timer, Function<List<T>, List<OfferChangeEvent>> action) {
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            final List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            final List<OfferChangeEvent> events = timer.record(() -> writeChunk(chunk, action));
+            for (final OfferChangeEvent event : events) {
+                eventPublisher.publishEvent(event);
+            }
+        }
+    }
+
+    /**
+     * Writes a chunk of items, performing the action on it.
+     *
+     * @param chunk  the chunk.
+     * @param action the action performed on the chunk, returning the change events.
+     * @param <T>    the type of items.
+     * @return the change events.
+     */
+    protected abstract <T> List<OfferChangeEvent> writeChunk(List<T> chunk, Function<List<T>, List<OfferChangeEvent>> action);
+}
@@ -0,0 +1,241 @@
+package org.lab.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.lab.Offer;
+import org.lab.OfferPatch;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service caching in memory the offers read through another service.
+ * The cache is bounded in size, and an offer is evicted after a time to live or once its end date has passed,
+ * whichever comes first. Writes invalidate the cached offers, even when they fail, as a write rejected
+ * because of a stale version reveals that the cached offer may be stale.
+ * An offer missing from the cache is loaded outside of the cache locks, so that a thread waiting on the database
+ * never blocks other cache operations, nor pins a virtual thread to its carrier.
+ * The cache size, hits, misses and evictions are exposed as metrics of the offers cache.
+ */
+public class CachingOfferService implements OfferService {
+    private final OfferService offerService;
+    private final Cache<Integer, Offer> cache;
+    private final Clock clock;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingOfferService(OfferService offerService, long maximumSize, Duration timeToLive) {
+        this(offerService, maximumSize, timeToLive, Clock.systemDefaultZone());
+    }
+
+    CachingOfferService(OfferService offerService, long maximumSize, Duration timeToLive, Clock clock) {
+        this.offerService = offerService;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new OfferExpiry(timeToLive))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the statistics of the cache, including hits, misses and evictions.
+     *
+     * @return the statistics of the cache.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the approximate number of cached offers.
+     *
+     * @return the approximate number of cached offers.
+     */
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Registers the metrics of the cache, named offers.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "offers");
+    }
+
+    @Override
+    public Iterable<Offer> listAllOffers() {
+        return offerService.listAllOffers();
+    }
+
+    @Override
+    public void listAllOffers(Integer afterId, int limit, Consumer<Offer> action) {
+        offerService.listAllOffers(afterId, limit, action);
+    }
+
+    @Override
+    public Offer getOfferById(Integer id) {
+        final Offer cachedOffer = cache.getIfPresent(id);
+        if (cachedOffer != null) {
+            return cachedOffer;
+        }
+        final long loadInvalidations = invalidations.get();
+        final Offer offer = offerService.getOfferById(id);
+        if (offer != null) {
+            // the loaded offer may be stale if it was written meanwhile, the check is atomic with the invalidation
+            cache.asMap().compute(id, (key, current) -> invalidations.get() == loadInvalidations ? offer : current);
+        }
+        return offer;
+    }
+
+    /**
+     * The cached offers are returned as they are, the others are loaded with one call and cached.
+     */
+    @Override
+    public List<Offer> getOffersByIds(Collection<Integer> ids) {
+        final Map<Integer, Offer> cachedOffers = cache.getAllPresent(ids);
+        final List<Offer> result = new ArrayList<>(cachedOffers.values());
+        final List<Integer> missingIds = new ArrayList<>(ids.size() - cachedOffers.size());
+        for (final Integer id : ids) {
+            if (!cachedOffers.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return result;
+        }
+        final long loadInvalidations = invalidations.get();
+        final List<Offer> loadedOffers = offerService.getOffersByIds(missingIds);
+        for (final Offer offer : loadedOffers) {
+            cache.asMap().compute(offer.getId(), (key, current) -> invalidations.get() == loadInvalidations ? offer : current);
+        }
+        result.addAll(loadedOffers);
+        return result;
+    }
+
+    @Override
+    public Offer saveOffer(Offer offer) {
+        try {
+            return offerService.saveOffer(offer);
+        } finally {
+            invalidate(offer.getId());
+        }
+    }
+
+    @Override
+    public Offer patchOffer(Integer id, OfferPatch patch) {
+        try {
+            return offerService.patchOffer(id, patch);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public void deleteOffer(Integer id) {
+        try {
+            offerService.deleteOffer(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public Integer getMaxId() {
+        return offerService.getMaxId();
+    }
+
+    @Override
+    public List<Offer> saveOffers(List<Offer> offers) {
+        try {
+            return offerService.saveOffers(offers);
+        } finally {
+            invalidateAll(offers.stream().map(Offer::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Override
+    public Set<Integer> updateOffers(List<Offer> offers) {
+        try {
+            return offerService.updateOffers(offers);
+        } finally {
+            invalidateAll(offers.stream().map(Offer::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Override
+    public Set<Integer> deleteOffers(Collection<Integer> ids) {
+        final Set<Integer> result = offerService.deleteOffers(ids);
+        invalidateAll(result);
+        return result;
+    }
+
+    @Override
+    public Set<Integer> deleteExpiredOffers(LocalDate endBefore, int limit, Consumer<List<Offer>> action) {
+        final Set<Integer> result = offerService.deleteExpiredOffers(endBefore, limit, action);
+        invalidateAll(result);
+        return result;
+    }
+
+    private void invalidate(Integer id) {
+        // counted before invalidating, so that a concurrent load started earlier does not cache its offer
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    private void invalidateAll(Collection<Integer> ids) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll(ids);
+    }
+
+    /**
+     * Expiry of a cached offer, at the end of its time to live or at the end of the offer end date.
+     */
+    private class OfferExpiry implements Expiry<Integer, Offer> {
+        private final Duration timeToLive;
+
+        OfferExpiry(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        private long getExpiryNanos(Offer offer) {
+            final LocalDate end = offer.getEnd();
+            if (end != null) {
+                final Duration untilEnd = Duration.between(clock.instant(), end.plusDays(1).atStartOfDay(clock.getZone()));
+                if (untilEnd.compareTo(timeToLive) < 0) {
+                    return untilEnd.isNegative() ? 0L : untilEnd.toNanos();
+                }
+            }
+            return timeToLive.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Integer id, Offer offer, long currentTime) {
+            return getExpiryNanos(offer);
+        }
+
+        @Override
+        public long expireAfterUpdate(Integer id, Offer offer, long currentTime, long currentDuration) {
+            return getExpiryNanos(offer);
+        }
+
+        @Override
+        public long expireAfterRead(Integer id, Offer offer, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
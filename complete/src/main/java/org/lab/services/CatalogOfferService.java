@@ -0,0 +1,210 @@
+package org.lab.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import org.lab.storage.OfferCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Read-optimized service serving the offers from a columnar off-heap catalog of all the stored offers,
+ * loaded on creation from another service.
+ * Reads never reach the other service, and materialize the offers from the catalog.
+ * Writes go through the other service, and the catalog applies the change events it publishes once committed,
+ * so that a batch failing half way leaves the catalog in sync with the storage.
+ * Writes of the same offer are serialized by lock stripes of the offer ids, so that the catalog applies them
+ * in the same order as the storage, while writes of other offers go through concurrently.
+ * A batch holds the stripes of all its offers, a deletion of the expired offers holds them all.
+ * The number of offers and the direct memory of the catalog are exposed as metrics.
+ */
+public class CatalogOfferService implements OfferService {
+    private final static Logger LOG = LoggerFactory.getLogger(CatalogOfferService.class);
+    private static final int LOAD_PAGE_SIZE = 10000;
+    private static final int LOCK_STRIPES = 1024;
+
+    private final OfferService offerService;
+    private final OfferCatalog catalog;
+    private final Lock[] writeLocks = new Lock[LOCK_STRIPES];
+
+    public CatalogOfferService(OfferService offerService, OfferCatalog catalog) {
+        this.offerService = offerService;
+        this.catalog = catalog;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Loads all the stored offers in the catalog, page by page.
+     */
+    public void load() {
+        final long start = System.currentTimeMillis();
+        final List<Offer> page = new ArrayList<>(LOAD_PAGE_SIZE);
+        Integer afterId = 0;
+        do {
+            page.clear();
+            offerService.listAllOffers(afterId, LOAD_PAGE_SIZE, page::add);
+            catalog.putAll(page);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        LOG.info("Loaded {} offers in the catalog in {} ms", catalog.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Registers the metrics of the catalog.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("offer.catalog.size", catalog, OfferCatalog::size)
+                .description("Offers in the catalog")
+                .register(registry);
+        Gauge.builder("offer.catalog.memory", catalog, OfferCatalog::getAllocatedBytes)
+                .description("Direct memory allocated for the columns of the catalog")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public Iterable<Offer> listAllOffers() {
+        final List<Offer> result = new ArrayList<>();
+        catalog.forEach(0, Integer.MAX_VALUE, result::add);
+        return result;
+    }
+
+    @Override
+    public void listAllOffers(Integer afterId, int limit, Consumer<Offer> action) {
+        catalog.forEach(afterId, limit, action);
+    }
+
+    @Override
+    public Offer getOfferById(Integer id) {
+        return catalog.get(id);
+    }
+
+    @Override
+    public List<Offer> getOffersByIds(Collection<Integer> ids) {
+        final List<Offer> result = new ArrayList<>(ids.size());
+        for (final Integer id : ids) {
+            final Offer offer = catalog.get(id);
+            if (offer != null) {
+                result.add(offer);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Integer getMaxId() {
+        return catalog.getMaxId();
+    }
+
+    @Override
+    public Offer saveOffer(Offer offer) {
+        return write(stripesOf(Collections.singleton(offer.getId())), () -> offerService.saveOffer(offer));
+    }
+
+    @Override
+    public Offer patchOffer(Integer id, OfferPatch patch) {
+        return write(stripesOf(Collections.singleton(id)), () -> offerService.patchOffer(id, patch));
+    }
+
+    @Override
+    public void deleteOffer(Integer id) {
+        write(stripesOf(Collections.singleton(id)), () -> {
+            offerService.deleteOffer(id);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Offer> saveOffers(List<Offer> offers) {
+        return write(stripesOf(getIds(offers)), () -> offerService.saveOffers(offers));
+    }
+
+    @Override
+    public Set<Integer> updateOffers(List<Offer> offers) {
+        return write(stripesOf(getIds(offers)), () -> offerService.updateOffers(offers));
+    }
+
+    @Override
+    public Set<Integer> deleteOffers(Collection<Integer> ids) {
+        return write(stripesOf(ids), () -> offerService.deleteOffers(ids));
+    }
+
+    @Override
+    public Set<Integer> deleteExpiredOffers(LocalDate endBefore, int limit, Consumer<List<Offer>> action) {
+        // the offers deleted are only known once deleted
+        final BitSet stripes = new BitSet(LOCK_STRIPES);
+        stripes.set(0, LOCK_STRIPES);
+        return write(stripes, () -> offerService.deleteExpiredOffers(endBefore, limit, action));
+    }
+
+    private static List<Integer> getIds(List<Offer> offers) {
+        final List<Integer> result = new ArrayList<>(offers.size());
+        for (final Offer offer : offers) {
+            result.add(offer.getId());
+        }
+        return result;
+    }
+
+    private static BitSet stripesOf(Collection<Integer> ids) {
+        final BitSet result = new BitSet(LOCK_STRIPES);
+        for (final Integer id : ids) {
+            result.set(id == null ? 0 : Math.floorMod(id, LOCK_STRIPES));
+        }
+        return result;
+    }
+
+    /**
+     * Performs a write of the other service holding the given lock stripes, taken in ascending order.
+     *
+     * @param stripes the indexes of the lock stripes.
+     * @param write   the write.
+     * @param <T>     the type of result.
+     * @return the result of the write.
+     */
+    private <T> T write(BitSet stripes, Supplier<T> write) {
+        for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+            writeLocks[i].lock();
+        }
+        try {
+            return write.get();
+        } finally {
+            for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+                writeLocks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies to the catalog an offer saved or deleted by the other service, once committed.
+     *
+     * @param event the change event.
+     */
+    @EventListener
+    public void onOfferChange(OfferChangeEvent event) {
+        if (event.getType() == OfferChangeEvent.Type.SAVED) {
+            catalog.putAll(Collections.singletonList(event.getOffer()));
+        } else {
+            catalog.removeAll(Collections.singletonList(event.getId()));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package org.lab.services;
+
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import org.lab.storage.OfferLog;
+import org.lab.util.OfferValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Implementation of the service managing persistence in an append-only log of offers (offer.storage=log).
+ * Offers are written to and read from the memory-mapped log without any JPA entity management,
+ * and the log is compacted in the background.
+ * Each chunk of a batch write is written to the log under a single lock.
+ * Offers are versioned by the log, see {@link OfferLog}.
+ */
+public class LogOfferService extends AbstractOfferStorageService implements Closeable {
+    private final static Logger LOG = LoggerFactory.getLogger(LogOfferService.class);
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    private final OfferLog offerLog;
+    private final ScheduledExecutorService compactionExecutor;
+    private volatile int expiredScanAfterId;
+
+    public LogOfferService(OfferLog offerLog, Duration compactionInterval, double compactionThreshold) {
+        this.offerLog = offerLog;
+        this.compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "offer-log-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = compactionInterval.toMillis();
+        compactionExecutor.scheduleWithFixedDelay(() -> compact(compactionThreshold), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the underlying log.
+     *
+     * @return the underlying log.
+     */
+    public OfferLog getOfferLog() {
+        return offerLog;
+    }
+
+    @Override
+    public Iterable<Offer> listAllOffers() {
+        final List<Offer> result = new ArrayList<>();
+        offerLog.forEach(0, Integer.MAX_VALUE, result::add);
+        return result;
+    }
+
+    @Override
+    public void listAllOffers(Integer afterId, int limit, Consumer<Offer> action) {
+        // the time includes the action performed on each offer
+        listTimer.record(() -> offerLog.forEach(afterId, limit, action));
+    }
+
+    @Override
+    public Offer getOfferById(Integer id) {
+        return getTimer.record(() -> offerLog.get(id));
+    }
+
+    @Override
+    public List<Offer> getOffersByIds(Collection<Integer> ids) {
+        return getBatchTimer.record(() -> {
+            final List<Offer> result = new ArrayList<>(ids.size());
+            for (final Integer id : ids) {
+                final Offer offer = offerLog.get(id);
+                if (offer != null) {
+                    result.add(offer);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Offer saveOffer(Offer offer) {
+        saveTimer.record(() -> offerLog.putAll(Collections.singletonList(offer)));
+        eventPublisher.publishEvent(OfferChangeEvent.saved(offer));
+        return offer;
+    }
+
+    /**
+     * The patch is applied to the stored offer under the write lock of the log, checking its version and
+     * the period of validity of the patched offer.
+     */
+    @Override
+    public Offer patchOffer(Integer id, OfferPatch patch) {
+        final Offer result = patchTimer.record(() -> {
+            if (patch.isEmpty()) {
+                final Offer storedOffer = offerLog.get(id);
+                checkVersion(id, patch, storedOffer);
+                return storedOffer;
+            }
+            return offerLog.update(id, storedOffer -> {
+                checkVersion(id, patch, storedOffer);
+                patch.applyTo(storedOffer);
+                if (!OfferValidator.getInstance().isPeriodValid(storedOffer)) {
+                    throw new DataIntegrityViolationException("Offer with id " + id + " would end before its start");
+                }
+                return storedOffer;
+            });
+        });
+        if (result != null && !patch.isEmpty()) {
+            eventPublisher.publishEvent(OfferChangeEvent.saved(result));
+        }
+        return result;
+    }
+
+    private static void checkVersion(Integer id, OfferPatch patch, Offer storedOffer) {
+        if (storedOffer != null && patch.getVersion() != null && !patch.getVersion().equals(storedOffer.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Offer.class, id);
+        }
+    }
+
+    @Override
+    public void deleteOffer(Integer id) {
+        final Set<Integer> deletedIds = deleteTimer.record(() -> offerLog.deleteAll(Collections.singletonList(id)));
+        if (deletedIds.isEmpty()) {
+            throw new EmptyResultDataAccessException("No offer found with id " + id, 1);
+        }
+        eventPublisher.publishEvent(OfferChangeEvent.deleted(id));
+    }
+
+    @Override
+    public Integer getMaxId() {
+        return offerLog.getMaxId();
+    }
+
+    @Override
+    public List<Offer> saveOffers(List<Offer> offers) {
+        forEachChunk(offers, saveBatchTimer, chunk -> {
+            offerLog.putAll(chunk);
+            final List<OfferChangeEvent> events = new ArrayList<>(chunk.size());
+            for (final Offer offer : chunk) {
+                events.add(OfferChangeEvent.saved(offer));
+            }
+            return events;
+        });
+        return offers;
+    }
+
+    @Override
+    public Set<Integer> updateOffers(List<Offer> offers) {
+        final Set<Integer> result = new HashSet<>();
+        forEachChunk(offers, updateBatchTimer, chunk -> {
+            final Set<Integer> updatedIds = offerLog.replaceAll(chunk);
+            final List<OfferChangeEvent> events = new ArrayList<>(updatedIds.size());
+            for (final Offer offer : chunk) {
+                if (updatedIds.contains(offer.getId())) {
+                    events.add(OfferChangeEvent.saved(offer));
+                }
+            }
+            result.addAll(updatedIds);
+            return events;
+        });
+        return result;
+    }
+
+    @Override
+    public Set<Integer> deleteOffers(Collection<Integer> ids) {
+        final Set<Integer> result = new HashSet<>();
+        forEachChunk(new ArrayList<>(ids), deleteBatchTimer, chunk -> {
+            final Set<Integer> deletedIds = offerLog.deleteAll(chunk);
+            final List<OfferChangeEvent> events = new ArrayList<>(deletedIds.size());
+            for (final Integer id : deletedIds) {
+                events.add(OfferChangeEvent.deleted(id));
+            }
+            result.addAll(deletedIds);
+            return events;
+        });
+        return result;
+    }
+
+    /**
+     * The log has no index on the end date, the offers to delete are found scanning the log by ascending id,
+     * each call resuming after the last offer scanned by the previous one, until the end of the log.
+     * The offers are checked again, passed to the action and deleted under the write lock of the log,
+     * so that an offer no longer expired, as it has been updated meanwhile, is neither passed nor deleted.
+     */
+    @Override
+    public Set<Integer> deleteExpiredOffers(LocalDate endBefore, int limit, Consumer<List<Offer>> action) {
+        final Set<Integer> result = deleteExpiredTimer.record(() -> {
+            final List<Integer> ids = new ArrayList<>();
+            final List<Offer> page = new ArrayList<>(SCAN_PAGE_SIZE);
+            int afterId = expiredScanAfterId;
+            boolean scanned = false;
+            while (ids.size() < limit && !scanned) {
+                page.clear();
+                offerLog.forEach(afterId, SCAN_PAGE_SIZE, page::add);
+                scanned = page.size() < SCAN_PAGE_SIZE;
+                for (final Offer offer : page) {
+                    if (ids.size() >= limit) {
+                        scanned = false;
+                        break;
+                    }
+                    afterId = offer.getId();
+                    if (offer.getEnd().isBefore(endBefore)) {
+                        ids.add(offer.getId());
+                    }
+                }
+            }
+            // the next scan starts over once the end of the log is reached
+            expiredScanAfterId = scanned ? 0 : afterId;
+            if (ids.isEmpty()) {
+                return Collections.<Integer>emptySet();
+            }
+            return offerLog.deleteAll(ids, offer -> offer.getEnd().isBefore(endBefore), action);
+        });
+        for (final Integer id : result) {
+            eventPublisher.publishEvent(OfferChangeEvent.deleted(id));
+        }
+        return result;
+    }
+
+    /**
+     * Stops the background compaction and closes the log.
+     */
+    @Override
+    public void close() {
+        compactionExecutor.shutdownNow();
+        offerLog.close();
+    }
+
+    @Override
+    protected <T> List<OfferChangeEvent> writeChunk(List<T> chunk, Function<List<T>, List<OfferChangeEvent>> action) {
+        return action.apply(chunk);
+    }
+
+    private void compact(double threshold) {
+        try {
+            final int compactedSegments = offerLog.compact(threshold);
+            if (compactedSegments > 0) {
+                LOG.info("Compacted {} segments of the offer log", compactedSegments);
+            }
+        } catch (final RuntimeException e) {
+            // a failed compaction leaves the log consistent, it is retried at the next interval
+            LOG.error("Offer log compaction failed", e);
+        }
+    }
+}
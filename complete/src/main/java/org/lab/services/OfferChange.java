@@ -0,0 +1,45 @@
+package org.lab.services;
+
+import org.lab.Offer;
+
+/**
+ * Change of an offer in the change feed, numbered by an increasing sequence.
+ * The offer is the created or updated one, it is null when the offer has been deleted.
+ */
+public class OfferChange {
+
+    /**
+     * Type of change. An offer is created when saved with its first version.
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Integer id;
+    private final Offer offer;
+
+    OfferChange(long sequence, Type type, Integer id, Offer offer) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.offer = offer;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Offer getOffer() {
+        return offer;
+    }
+}
@@ -0,0 +1,47 @@
+package org.lab.services;
+
+import org.lab.Offer;
+
+/**
+ * Event published once an offer has been saved or deleted in the system.
+ * The offer is the saved one, it is null when the offer has been deleted.
+ */
+public class OfferChangeEvent {
+
+    /**
+     * Type of change.
+     */
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    private final Type type;
+    private final Integer id;
+    private final Offer offer;
+
+    private OfferChangeEvent(Type type, Integer id, Offer offer) {
+        this.type = type;
+        this.id = id;
+        this.offer = offer;
+    }
+
+    public static OfferChangeEvent saved(Offer offer) {
+        return new OfferChangeEvent(Type.SAVED, offer.getId(), offer);
+    }
+
+    public static OfferChangeEvent deleted(Integer id) {
+        return new OfferChangeEvent(Type.DELETED, id, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Offer getOffer() {
+        return offer;
+    }
+}
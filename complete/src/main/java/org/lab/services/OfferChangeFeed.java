@@ -0,0 +1,112 @@
+package org.lab.services;
+
+import org.lab.Offer;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Feed of the latest changes of the offers, held in a ring buffer of fixed capacity.
+ * Each offer saved or deleted in the storage, whatever it is, is appended with the next sequence number,
+ * overwriting the oldest change once the buffer is full.
+ * Readers never lock the buffer: a reader behind by more than the capacity finds its next change overwritten,
+ * and has to start again from the current state of the offers, so slow readers never hold up the writers.
+ * Writers never lock it either: a change takes its sequence number with an atomic increment, then is stored
+ * in its slot with a compare-and-set; a reader stops before a change numbered but not stored yet,
+ * and reads it on its next read.
+ * Sequence numbers start again from 1 on each start of the application, with a new epoch.
+ */
+public class OfferChangeFeed {
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicReferenceArray<OfferChange> ring;
+    private final int mask;
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    /**
+     * Creates an empty feed.
+     *
+     * @param capacity the number of changes kept, rounded up to a power of two.
+     */
+    public OfferChangeFeed(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the epoch of the sequence numbers, the time the feed was created.
+     *
+     * @return the epoch of the sequence numbers.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the sequence number of the latest change.
+     *
+     * @return the sequence number of the latest change, 0 if none.
+     */
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * Returns at most limit changes with a sequence number greater than the given one, by ascending sequence.
+     *
+     * @param afterSequence the sequence number after which changes are read.
+     * @param limit         the maximum number of changes to read.
+     * @return the changes, or null if the change following the given sequence number has been overwritten.
+     */
+    public List<OfferChange> read(long afterSequence, int limit) {
+        final long last = Math.min(lastSequence.get(), afterSequence + limit);
+        final List<OfferChange> result = new ArrayList<>((int) Math.max(last - afterSequence, 0));
+        for (long sequence = afterSequence + 1; sequence <= last; sequence++) {
+            final OfferChange change = ring.get(index(sequence));
+            if (change == null || change.getSequence() < sequence) {
+                // numbered, not stored yet
+                break;
+            }
+            if (change.getSequence() > sequence) {
+                // a later change has overwritten the expected one
+                return null;
+            }
+            result.add(change);
+        }
+        return result;
+    }
+
+    /**
+     * Appends an offer saved or deleted to the feed.
+     *
+     * @param event the change event.
+     */
+    @EventListener
+    public void onOfferChange(OfferChangeEvent event) {
+        final Offer offer = event.getOffer();
+        final OfferChange.Type type;
+        if (event.getType() == OfferChangeEvent.Type.DELETED) {
+            type = OfferChange.Type.DELETED;
+        } else {
+            type = offer.getVersion() != null && offer.getVersion() == 0 ? OfferChange.Type.CREATED : OfferChange.Type.UPDATED;
+        }
+        final long sequence = lastSequence.incrementAndGet();
+        final OfferChange change = new OfferChange(sequence, type, event.getId(), offer);
+        final int index = index(sequence);
+        OfferChange current;
+        do {
+            current = ring.get(index);
+            if (current != null && current.getSequence() > sequence) {
+                // the writers have gone round the buffer meanwhile, the change is already overwritten
+                return;
+            }
+        } while (!ring.compareAndSet(index, current, change));
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
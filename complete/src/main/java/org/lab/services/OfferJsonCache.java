@@ -0,0 +1,98 @@
+package org.lab.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.lab.Offer;
+import org.springframework.context.event.EventListener;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Cache of the JSON representation of the offers, as UTF-8 bytes, so that reads of an offer serialize it once.
+ * The bytes of an offer are used only for the same version and time of the last update of the offer read,
+ * so that they are never stale whatever the order of concurrent reads and writes.
+ * Saved and deleted offers are evicted on their change events, as their bytes will not be used any more.
+ * Offers without version are serialized without caching.
+ * The cache size, hits, misses and evictions are exposed as metrics of the offerJson cache.
+ */
+public class OfferJsonCache {
+    private final ObjectWriter writer;
+    private final Cache<Integer, SerializedOffer> cache;
+
+    public OfferJsonCache(ObjectMapper objectMapper, long maximumSize) {
+        this.writer = objectMapper.writerFor(Offer.class);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Registers the metrics of the cache, named offerJson.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "offerJson");
+    }
+
+    /**
+     * Returns the JSON representation of the offer, serialized on the first read of its version.
+     *
+     * @param offer the offer, with an id.
+     * @return the JSON representation, as UTF-8 bytes.
+     */
+    public byte[] toJson(Offer offer) {
+        final SerializedOffer cachedOffer = cache.getIfPresent(offer.getId());
+        if (cachedOffer != null && cachedOffer.isSerializationOf(offer)) {
+            return cachedOffer.json;
+        }
+        final byte[] result;
+        try {
+            result = writer.writeValueAsBytes(offer);
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (offer.getVersion() != null) {
+            cache.put(offer.getId(), new SerializedOffer(offer.getVersion(), offer.getLastModified(), result));
+        }
+        return result;
+    }
+
+    /**
+     * Evicts the bytes of an offer saved or deleted.
+     *
+     * @param event the change event.
+     */
+    @EventListener
+    public void onOfferChange(OfferChangeEvent event) {
+        cache.invalidate(event.getId());
+    }
+
+    /**
+     * JSON representation of a version of an offer.
+     */
+    private static final class SerializedOffer {
+        private final long version;
+        private final Instant lastModified;
+        private final byte[] json;
+
+        SerializedOffer(long version, Instant lastModified, byte[] json) {
+            this.version = version;
+            this.lastModified = lastModified;
+            this.json = json;
+        }
+
+        boolean isSerializationOf(Offer offer) {
+            // a deleted offer added again has the same version, with another time of update
+            return offer.getVersion() != null && offer.getVersion() == version && Objects.equals(offer.getLastModified(), lastModified);
+        }
+    }
+}
@@ -1,16 +1,109 @@
 package org.lab.services;
 
 import org.lab.Offer;
+import org.lab.OfferPatch;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Interface for the service managing persistence.
  */
 public interface OfferService {
+    /**
+     * Qualifier of the service storing the offers, decorated by the other services.
+     */
+    String STORAGE = "offerStorage";
+
+    /**
+     * Qualifier of the service decorated by the write-behind queue, in place of the primary one, when enabled.
+     */
+    String WRITE_BEHIND_TARGET = "offerWriteBehindTarget";
+
     Iterable<Offer> listAllOffers();
 
+    /**
+     * Passes to the action, by ascending id, at most limit offers with an id greater than the given one.
+     * Offers are streamed from the repository, without holding the whole page in memory.
+     *
+     * @param afterId the id after which offers are listed.
+     * @param limit   the maximum number of offers to list.
+     * @param action  the action performed on each offer.
+     */
+    void listAllOffers(Integer afterId, int limit, Consumer<Offer> action);
+
     Offer getOfferById(Integer id);
 
+    /**
+     * Returns the stored offers among the given ids, in no particular order.
+     * Offers are read with one query per chunk of ids.
+     *
+     * @param ids the ids of the offers.
+     * @return the stored offers, the ids not stored are skipped.
+     */
+    List<Offer> getOffersByIds(Collection<Integer> ids);
+
     Offer saveOffer(Offer offer);
 
+    /**
+     * Changes the fields present in the patch of a stored offer, without reading and writing the whole offer.
+     * The patch is applied only if its version, when present, matches the stored one, otherwise an
+     * ObjectOptimisticLockingFailureException is thrown. A patch ending the offer before its start, once applied,
+     * fails with a DataIntegrityViolationException. An empty patch changes nothing.
+     *
+     * @param id    the offer id.
+     * @param patch the patch, with valid fields.
+     * @return the patched offer, or null if no offer is stored with the id.
+     */
+    Offer patchOffer(Integer id, OfferPatch patch);
+
     void deleteOffer(Integer id);
+
+    /**
+     * Returns the greatest id of the stored offers.
+     *
+     * @return the greatest id of the stored offers, or null if no offer is stored.
+     */
+    Integer getMaxId();
+
+    /**
+     * Saves the offers, adding the new ones and replacing the stored ones.
+     * Offers are written with JDBC batches and committed in chunks.
+     *
+     * @param offers the offers to save.
+     * @return the saved offers.
+     */
+    List<Offer> saveOffers(List<Offer> offers);
+
+    /**
+     * Updates the offers already stored, skipping the others and those whose version does not match the stored one.
+     * Offers are written with JDBC batches and committed in chunks.
+     *
+     * @param offers the offers to update.
+     * @return the ids of the updated offers.
+     */
+    Set<Integer> updateOffers(List<Offer> offers);
+
+    /**
+     * Deletes the offers with the given ids, skipping the ids not stored.
+     * Offers are deleted in chunks, with one statement per chunk.
+     *
+     * @param ids the ids of the offers to delete.
+     * @return the ids of the deleted offers.
+     */
+    Set<Integer> deleteOffers(Collection<Integer> ids);
+
+    /**
+     * Deletes at most limit offers ending before the given date, in one short write.
+     * The action is passed the offers before they are deleted, within the same transaction when the storage has one.
+     *
+     * @param endBefore the date before which the deleted offers end.
+     * @param limit     the maximum number of offers to delete.
+     * @param action    the action performed on the offers to delete.
+     * @return the ids of the deleted offers.
+     */
+    Set<Integer> deleteExpiredOffers(LocalDate endBefore, int limit, Consumer<List<Offer>> action);
 }
@@ -1,39 +1,328 @@
 package org.lab.services;
 
 import org.lab.Offer;
+import org.lab.OfferPatch;
 import org.lab.repositories.OfferRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Implementation of the service managing persistence.
+ * Implementation of the service managing persistence in the JPA repository, the default storage (offer.storage=jpa).
+ * Each chunk of a batch write is written in its own transaction.
+ * An offer saved without version replaces the stored one, an offer saved with a version only if it matches
+ * the stored one, otherwise an ObjectOptimisticLockingFailureException is thrown.
+ * A patch is applied with a single update statement of the changed columns, checking the version and the period
+ * of validity in its where clause, so that the offer is read only once, after the update.
  */
 @Service
-public class OfferServiceImpl implements OfferService {
+@Qualifier(OfferService.STORAGE)
+@ConditionalOnProperty(name = "offer.storage", havingValue = "jpa", matchIfMissing = true)
+public class OfferServiceImpl extends AbstractOfferStorageService {
     private OfferRepository offerRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
 
     @Autowired
     public void setOfferRepository(OfferRepository offerRepository) {
         this.offerRepository = offerRepository;
     }
 
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     @Override
     public Iterable<Offer> listAllOffers() {
         return offerRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void listAllOffers(Integer afterId, int limit, Consumer<Offer> action) {
+        // the time includes the action performed on each offer while streaming
+        listTimer.record(() -> {
+            try (Stream<Offer> offers = offerRepository.streamByIdGreaterThan(afterId, PageRequest.of(0, limit))) {
+                offers.forEach(offer -> {
+                    action.accept(offer);
+                    // keep the persistence context from growing with the listed offers
+                    entityManager.detach(offer);
+                });
+            }
+        });
+    }
+
     @Override
     public Offer getOfferById(Integer id) {
-        return offerRepository.findById(id).orElse(null);
+        return getTimer.record(() -> offerRepository.findById(id).orElse(null));
+    }
+
+    @Override
+    public List<Offer> getOffersByIds(Collection<Integer> ids) {
+        final List<Integer> idList = new ArrayList<>(ids);
+        final List<Offer> result = new ArrayList<>(idList.size());
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            final List<Integer> chunk = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+            getBatchTimer.record(() -> offerRepository.findAllById(chunk).forEach(result::add));
+        }
+        return result;
     }
 
     @Override
     public Offer saveOffer(Offer offer) {
-        return offerRepository.save(offer);
+        final Offer result = saveTimer.record(() -> transactionTemplate.execute(status -> {
+            final Offer storedOffer = entityManager.find(Offer.class, offer.getId());
+            checkVersion(offer, storedOffer);
+            if (storedOffer == null) {
+                entityManager.persist(offer);
+                return offer;
+            }
+            return entityManager.merge(offer);
+        }));
+        eventPublisher.publishEvent(OfferChangeEvent.saved(result));
+        return result;
+    }
+
+    @Override
+    public Offer patchOffer(Integer id, OfferPatch patch) {
+        if (patch.hasStart() && patch.hasEnd() && patch.getStart() != null && patch.getEnd() != null
+                && patch.getEnd().isBefore(patch.getStart())) {
+            throw new DataIntegrityViolationException("Offer with id " + id + " would end before its start");
+        }
+        final Offer result = patchTimer.record(() -> transactionTemplate.execute(status -> {
+            if (!patch.isEmpty() && createPatchQuery(id, patch).executeUpdate() == 1) {
+                return entityManager.find(Offer.class, id);
+            }
+            // nothing updated, the reason is found reading the offer
+            final Offer storedOffer = entityManager.find(Offer.class, id);
+            if (storedOffer != null && patch.getVersion() != null && !patch.getVersion().equals(storedOffer.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Offer.class, id);
+            }
+            if (storedOffer != null && !patch.isEmpty()) {
+                throw new DataIntegrityViolationException("Offer with id " + id + " would end before its start");
+            }
+            return storedOffer;
+        }));
+        if (result != null && !patch.isEmpty()) {
+            eventPublisher.publishEvent(OfferChangeEvent.saved(result));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the statement updating the columns changed by the patch, with the next version and the current time.
+     * A date changed alone is checked against the other stored date, so that no row is updated when the period
+     * of validity would be invalid, as for a version not matching the stored one.
+     *
+     * @param id    the offer id.
+     * @param patch the patch.
+     * @return the update statement.
+     */
+    private Query createPatchQuery(Integer id, OfferPatch patch) {
+        final StringBuilder jpql = new StringBuilder("update Offer o set o.version = o.version + 1, o.lastModified = :lastModified");
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", id);
+        parameters.put("lastModified", Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        if (patch.hasProduct()) {
+            jpql.append(", o.product = :product");
+            parameters.put("product", patch.getProduct());
+        }
+        if (patch.hasPrice()) {
+            jpql.append(", o.price = :price");
+            parameters.put("price", patch.getPrice());
+        }
+        if (patch.hasStart()) {
+            jpql.append(", o.start = :start");
+            parameters.put("start", patch.getStart());
+        }
+        if (patch.hasEnd()) {
+            jpql.append(", o.end = :end");
+            parameters.put("end", patch.getEnd());
+        }
+        jpql.append(" where o.id = :id");
+        if (patch.getVersion() != null) {
+            jpql.append(" and o.version = :version");
+            parameters.put("version", patch.getVersion());
+        }
+        if (patch.hasStart() && !patch.hasEnd()) {
+            jpql.append(" and o.end >= :start");
+        }
+        if (patch.hasEnd() && !patch.hasStart()) {
+            jpql.append(" and o.start <= :end");
+        }
+        final Query result = entityManager.createQuery(jpql.toString());
+        parameters.forEach(result::setParameter);
+        return result;
     }
 
     @Override
     public void deleteOffer(Integer id) {
-        offerRepository.deleteById(id);
+        deleteTimer.record(() -> offerRepository.deleteById(id));
+        eventPublisher.publishEvent(OfferChangeEvent.deleted(id));
+    }
+
+    @Override
+    public Integer getMaxId() {
+        return offerRepository.findMaxId();
+    }
+
+    @Override
+    public List<Offer> saveOffers(List<Offer> offers) {
+        final List<Offer> result = new ArrayList<>(offers.size());
+        forEachChunk(offers, saveBatchTimer, chunk -> {
+            final List<OfferChangeEvent> events = new ArrayList<>(chunk.size());
+            final Map<Integer, Offer> storedOffers = loadStoredOffers(chunk);
+            for (final Offer offer : chunk) {
+                final Offer storedOffer = storedOffers.get(offer.getId());
+                checkVersion(offer, storedOffer);
+                final Offer savedOffer;
+                if (storedOffer != null) {
+                    savedOffer = entityManager.merge(offer);
+                } else {
+                    // persisting avoids the select issued by a merge
+                    entityManager.persist(offer);
+                    savedOffer = offer;
+                }
+                storedOffers.put(offer.getId(), savedOffer);
+                result.add(savedOffer);
+                events.add(OfferChangeEvent.saved(savedOffer));
+            }
+            return events;
+        });
+        return result;
+    }
+
+    @Override
+    public Set<Integer> updateOffers(List<Offer> offers) {
+        final Set<Integer> result = new HashSet<>();
+        forEachChunk(offers, updateBatchTimer, chunk -> {
+            final List<OfferChangeEvent> events = new ArrayList<>(chunk.size());
+            final Map<Integer, Offer> storedOffers = loadStoredOffers(chunk);
+            for (final Offer offer : chunk) {
+                final Offer storedOffer = storedOffers.get(offer.getId());
+                // an offer modified since the client read it is skipped, as a missing one
+                if (storedOffer != null && (offer.getVersion() == null || offer.getVersion().equals(storedOffer.getVersion()))) {
+                    checkVersion(offer, storedOffer);
+                    events.add(OfferChangeEvent.saved(entityManager.merge(offer)));
+                    result.add(offer.getId());
+                }
+            }
+            return events;
+        });
+        return result;
+    }
+
+    @Override
+    public Set<Integer> deleteOffers(Collection<Integer> ids) {
+        final Set<Integer> result = new HashSet<>();
+        forEachChunk(new ArrayList<>(ids), deleteBatchTimer, chunk -> {
+            final List<OfferChangeEvent> events = new ArrayList<>(chunk.size());
+            final List<Integer> storedIds = offerRepository.findIdsByIdIn(chunk);
+            if (!storedIds.isEmpty()) {
+                offerRepository.deleteByIdIn(storedIds);
+                for (final Integer id : storedIds) {
+                    events.add(OfferChangeEvent.deleted(id));
+                }
+                result.addAll(storedIds);
+            }
+            return events;
+        });
+        return result;
+    }
+
+    /**
+     * The offers to delete are read from the index on the end date and locked, so that an offer updated meanwhile
+     * is deleted only once its update is committed, and it is still expired.
+     */
+    @Override
+    public Set<Integer> deleteExpiredOffers(LocalDate endBefore, int limit, Consumer<List<Offer>> action) {
+        final List<Integer> ids = deleteExpiredTimer.record(() -> transactionTemplate.execute(status -> {
+            final List<Offer> offers = offerRepository.findByEndBefore(endBefore, PageRequest.of(0, limit));
+            final List<Integer> result = offers.stream().map(Offer::getId).collect(Collectors.toList());
+            if (!offers.isEmpty()) {
+                action.accept(offers);
+                offerRepository.deleteByIdIn(result);
+            }
+            return result;
+        }));
+        for (final Integer id : ids) {
+            eventPublisher.publishEvent(OfferChangeEvent.deleted(id));
+        }
+        return new HashSet<>(ids);
+    }
+
+    /**
+     * The chunk is written in its own transaction, the persistence context being flushed and cleared at its end.
+     */
+    @Override
+    protected <T> List<OfferChangeEvent> writeChunk(List<T> chunk, Function<List<T>, List<OfferChangeEvent>> action) {
+        return transactionTemplate.execute(status -> {
+            final List<OfferChangeEvent> result = action.apply(chunk);
+            entityManager.flush();
+            entityManager.clear();
+            return result;
+        });
+    }
+
+    /**
+     * Loads in the persistence context the stored offers with the ids of the given ones, with a single query.
+     * Following merges of these offers then do not need to select them one by one.
+     *
+     * @param offers the offers.
+     * @return the stored offers by id.
+     */
+    private Map<Integer, Offer> loadStoredOffers(List<Offer> offers) {
+        final List<Integer> ids = offers.stream().map(Offer::getId).collect(Collectors.toList());
+        final Map<Integer, Offer> result = new HashMap<>();
+        for (final Offer offer : offerRepository.findAllById(ids)) {
+            result.put(offer.getId(), offer);
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the version of the offer, if any, matches the version of the stored offer.
+     * An offer without version takes the version and the time of the last update of the stored offer,
+     * so that merging it replaces the stored offer, and leaves it unchanged when equal.
+     *
+     * @param offer       the offer to save.
+     * @param storedOffer the stored offer with the same id, or null.
+     * @throws ObjectOptimisticLockingFailureException if the versions do not match.
+     */
+    private static void checkVersion(Offer offer, Offer storedOffer) {
+        if (offer.getVersion() != null && (storedOffer == null || !offer.getVersion().equals(storedOffer.getVersion()))) {
+            throw new ObjectOptimisticLockingFailureException(Offer.class, offer.getId());
+        }
+        if (storedOffer != null) {
+            offer.setVersion(storedOffer.getVersion());
+            offer.setLastModified(storedOffer.getLastModified());
+        }
     }
 }
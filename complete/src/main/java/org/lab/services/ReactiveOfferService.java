@@ -0,0 +1,61 @@
+package org.lab.services;
+
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Interface for the non-blocking service managing persistence.
+ * Operations complete asynchronously, without blocking the calling thread.
+ */
+public interface ReactiveOfferService {
+    Flux<Offer> listAllOffers(Integer afterId, int limit);
+
+    Mono<Offer> getOfferById(Integer id);
+
+    /**
+     * Returns the stored offers with the given ids, see {@link OfferService#getOffersByIds(Collection)}.
+     *
+     * @param ids the offer ids.
+     * @return the stored offers, the missing ones being left out.
+     */
+    Mono<List<Offer>> getOffersByIds(Collection<Integer> ids);
+
+    /**
+     * Allocates an id to the offer and saves it, ignoring the version sent.
+     *
+     * @param offer the offer to add.
+     * @return the saved offer.
+     */
+    Mono<Offer> addOffer(Offer offer);
+
+    Mono<Offer> saveOffer(Offer offer);
+
+    /**
+     * Changes the fields present in the patch of a stored offer, see {@link OfferService#patchOffer(Integer, OfferPatch)}.
+     *
+     * @param id    the offer id.
+     * @param patch the patch, with valid fields.
+     * @return the patched offer, or empty if no offer is stored with the id.
+     */
+    Mono<Offer> patchOffer(Integer id, OfferPatch patch);
+
+    Mono<Void> deleteOffer(Integer id);
+
+    /**
+     * Allocates an id to each offer and saves them.
+     *
+     * @param offers the offers to add.
+     * @return the saved offers.
+     */
+    Mono<List<Offer>> addOffers(List<Offer> offers);
+
+    Mono<Set<Integer>> updateOffers(List<Offer> offers);
+
+    Mono<Set<Integer>> deleteOffers(Collection<Integer> ids);
+}
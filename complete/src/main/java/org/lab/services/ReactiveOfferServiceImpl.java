@@ -0,0 +1,96 @@
+package org.lab.services;
+
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import org.lab.ids.OfferIdAllocator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of the non-blocking service managing persistence.
+ * JDBC and JPA only offer blocking calls, so the calls to the offer service run on a dedicated scheduler,
+ * sized after the connection pool, and the threads serving requests are never blocked.
+ */
+public class ReactiveOfferServiceImpl implements ReactiveOfferService {
+    private final OfferService offerService;
+    private final OfferIdAllocator offerIdAllocator;
+    private final Scheduler scheduler;
+
+    public ReactiveOfferServiceImpl(OfferService offerService, OfferIdAllocator offerIdAllocator, Scheduler scheduler) {
+        this.offerService = offerService;
+        this.offerIdAllocator = offerIdAllocator;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Flux<Offer> listAllOffers(Integer afterId, int limit) {
+        return Flux.<Offer>create(sink -> {
+            try {
+                offerService.listAllOffers(afterId, limit, sink::next);
+                sink.complete();
+            } catch (final RuntimeException e) {
+                sink.error(e);
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Offer> getOfferById(Integer id) {
+        return Mono.fromCallable(() -> offerService.getOfferById(id)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<Offer>> getOffersByIds(Collection<Integer> ids) {
+        return Mono.fromCallable(() -> offerService.getOffersByIds(ids)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Offer> addOffer(Offer offer) {
+        return Mono.fromCallable(() -> {
+            // allocating may reserve a new block of ids from the database
+            offer.setId(offerIdAllocator.nextId());
+            offer.setVersion(null);
+            return offerService.saveOffer(offer);
+        }).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Offer> saveOffer(Offer offer) {
+        return Mono.fromCallable(() -> offerService.saveOffer(offer)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Offer> patchOffer(Integer id, OfferPatch patch) {
+        return Mono.fromCallable(() -> offerService.patchOffer(id, patch)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Void> deleteOffer(Integer id) {
+        return Mono.<Void>fromRunnable(() -> offerService.deleteOffer(id)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<Offer>> addOffers(List<Offer> offers) {
+        return Mono.fromCallable(() -> {
+            for (final Offer offer : offers) {
+                offer.setId(offerIdAllocator.nextId());
+            }
+            return offerService.saveOffers(offers);
+        }).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Set<Integer>> updateOffers(List<Offer> offers) {
+        return Mono.fromCallable(() -> offerService.updateOffers(offers)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Set<Integer>> deleteOffers(Collection<Integer> ids) {
+        return Mono.fromCallable(() -> offerService.deleteOffers(ids)).subscribeOn(scheduler);
+    }
+}
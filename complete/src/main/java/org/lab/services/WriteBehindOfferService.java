@@ -0,0 +1,467 @@
+package org.lab.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Service acknowledging the writes of single offers as soon as they are queued, then writing them in batches
+ * through another service from a background thread (offer.write-behind.enabled=true).
+ * The writes queued for the same offer are merged, only the latest one is written.
+ * The queue is bounded: a write of an offer not queued yet waits for room, and fails after a timeout,
+ * so that the writers are slowed down to the pace of the storage.
+ * An offer read by id is the latest one queued, until it is written, so that clients read their own writes;
+ * the other reads, and the change events, follow the offers once written.
+ * Versioned saves and batches are written through, once the queued writes of the same offers are written,
+ * and fail if they are not written after a timeout.
+ * A failed batch is written again one offer at a time, so that a write failing alone does not hold back the others;
+ * a write is retried a flush interval later, and dropped after a maximum number of attempts.
+ * On close, the queued writes are written before returning.
+ */
+public class WriteBehindOfferService implements OfferService, Closeable {
+    private final static Logger LOG = LoggerFactory.getLogger(WriteBehindOfferService.class);
+
+    private final OfferService offerService;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long enqueueTimeoutNanos;
+    private final int maxAttempts;
+    private final long awaitTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    // queued writes by id, in the order of their first write
+    private final LinkedHashMap<Integer, Write> pending = new LinkedHashMap<>();
+    // writes taken by the writer thread, visible to the reads until written
+    private final Map<Integer, Write> inFlight = new HashMap<>();
+    private final Thread writer;
+    private int flushRequests;
+    private long droppedCount;
+    private volatile boolean closed;
+
+    public WriteBehindOfferService(OfferService offerService, int capacity, int batchSize, Duration flushInterval, Duration enqueueTimeout,
+                                   int maxAttempts, Duration awaitTimeout) {
+        this.offerService = offerService;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.awaitTimeoutNanos = awaitTimeout.toNanos();
+        this.writer = new Thread(this::writeQueued, "offer-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Registers the metrics of the queue.
+     *
+     * @param registry the meter registry.
+     */
+    public void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("offer.write-behind.pending", this, WriteBehindOfferService::getPendingCount)
+                .description("Offer writes queued and not written yet")
+                .register(registry);
+        FunctionCounter.builder("offer.write-behind.dropped", this, WriteBehindOfferService::getDroppedCount)
+                .description("Offer writes dropped after failing repeatedly")
+                .register(registry);
+    }
+
+    /**
+     * Returns the number of writes queued or being written.
+     *
+     * @return the number of writes queued or being written.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size() + inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of writes dropped after failing repeatedly.
+     *
+     * @return the number of dropped writes.
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterable<Offer> listAllOffers() {
+        return offerService.listAllOffers();
+    }
+
+    @Override
+    public void listAllOffers(Integer afterId, int limit, Consumer<Offer> action) {
+        offerService.listAllOffers(afterId, limit, action);
+    }
+
+    @Override
+    public Offer getOfferById(Integer id) {
+        final Write write;
+        lock.lock();
+        try {
+            write = getQueued(id);
+        } finally {
+            lock.unlock();
+        }
+        return write != null ? write.offer : offerService.getOfferById(id);
+    }
+
+    @Override
+    public List<Offer> getOffersByIds(Collection<Integer> ids) {
+        final List<Offer> result = new ArrayList<>(ids.size());
+        final List<Integer> missingIds = new ArrayList<>(ids.size());
+        lock.lock();
+        try {
+            for (final Integer id : ids) {
+                final Write write = getQueued(id);
+                if (write == null) {
+                    missingIds.add(id);
+                } else if (write.offer != null) {
+                    result.add(write.offer);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!missingIds.isEmpty()) {
+            result.addAll(offerService.getOffersByIds(missingIds));
+        }
+        return result;
+    }
+
+    @Override
+    public Offer saveOffer(Offer offer) {
+        // a versioned save is checked against the stored version, once the queued writes are written
+        if (offer.getVersion() == null && enqueue(new Write(offer.getId(), offer))) {
+            return offer;
+        }
+        awaitWritten(Collections.singleton(offer.getId()));
+        return offerService.saveOffer(offer);
+    }
+
+    @Override
+    public Offer patchOffer(Integer id, OfferPatch patch) {
+        // a patch is applied to the stored offer, once the queued writes are written
+        awaitWritten(Collections.singleton(id));
+        return offerService.patchOffer(id, patch);
+    }
+
+    @Override
+    public void deleteOffer(Integer id) {
+        if (getOfferById(id) == null) {
+            throw new EmptyResultDataAccessException("No offer found with id " + id, 1);
+        }
+        if (!enqueue(new Write(id, null))) {
+            offerService.deleteOffer(id);
+        }
+    }
+
+    @Override
+    public Integer getMaxId() {
+        return offerService.getMaxId();
+    }
+
+    @Override
+    public List<Offer> saveOffers(List<Offer> offers) {
+        awaitWritten(ids(offers));
+        return offerService.saveOffers(offers);
+    }
+
+    @Override
+    public Set<Integer> updateOffers(List<Offer> offers) {
+        awaitWritten(ids(offers));
+        return offerService.updateOffers(offers);
+    }
+
+    @Override
+    public Set<Integer> deleteOffers(Collection<Integer> ids) {
+        awaitWritten(ids);
+        return offerService.deleteOffers(ids);
+    }
+
+    @Override
+    public Set<Integer> deleteExpiredOffers(LocalDate endBefore, int limit, Consumer<List<Offer>> action) {
+        // the offers found expired are the written ones, the writes queued until now are written first
+        final List<Integer> queuedIds;
+        lock.lock();
+        try {
+            queuedIds = new ArrayList<>(pending.keySet());
+            queuedIds.addAll(inFlight.keySet());
+        } finally {
+            lock.unlock();
+        }
+        awaitWritten(queuedIds);
+        return offerService.deleteExpiredOffers(endBefore, limit, action);
+    }
+
+    /**
+     * Stops queueing the writes, and waits for the queued ones to be written.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Integer> ids(List<Offer> offers) {
+        final List<Integer> result = new ArrayList<>(offers.size());
+        for (final Offer offer : offers) {
+            result.add(offer.getId());
+        }
+        return result;
+    }
+
+    private Write getQueued(Integer id) {
+        final Write result = pending.get(id);
+        return result != null ? result : inFlight.get(id);
+    }
+
+    /**
+     * Queues a write, merged with the write of the same offer already queued.
+     *
+     * @param write the write.
+     * @return false if the service is closed, and the write has to be written through.
+     */
+    private boolean enqueue(Write write) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (pending.replace(write.id, write) != null) {
+                return true;
+            }
+            long nanos = enqueueTimeoutNanos;
+            while (pending.size() >= capacity) {
+                if (nanos <= 0L) {
+                    throw new TransientDataAccessResourceException("Offer write queue is full");
+                }
+                nanos = notFull.awaitNanos(nanos);
+                if (closed) {
+                    return false;
+                }
+            }
+            pending.put(write.id, write);
+            if (pending.size() == 1 || pending.size() >= batchSize) {
+                ready.signal();
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while waiting for the offer write queue", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the queued writes of the offers with the given ids to be written, or dropped.
+     *
+     * @param ids the ids of the offers.
+     * @throws TransientDataAccessResourceException if the writes are still queued after the timeout.
+     */
+    private void awaitWritten(Collection<Integer> ids) {
+        lock.lock();
+        try {
+            flushRequests++;
+            ready.signal();
+            try {
+                long nanos = awaitTimeoutNanos;
+                for (final Integer id : ids) {
+                    while (getQueued(id) != null) {
+                        if (nanos <= 0L) {
+                            throw new TransientDataAccessResourceException("Queued write of the offer " + id + " not written in time");
+                        }
+                        nanos = written.awaitNanos(nanos);
+                    }
+                }
+            } finally {
+                flushRequests--;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while waiting for the offer writes", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loop of the writer thread, writing the queued writes by batch until closed and drained.
+     * A batch is written once full, once a write is awaited, or a flush interval after its first write,
+     * leaving time for the writes of the same offers to be merged.
+     */
+    private void writeQueued() {
+        while (true) {
+            final List<Write> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    ready.awaitUninterruptibly();
+                }
+                long nanos = flushIntervalNanos;
+                while (nanos > 0L && pending.size() < batchSize && flushRequests == 0 && !closed) {
+                    nanos = ready.awaitNanos(nanos);
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+                final Iterator<Write> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    final Write write = iterator.next();
+                    iterator.remove();
+                    inFlight.put(write.id, write);
+                    batch.add(write);
+                }
+                notFull.signalAll();
+            } catch (final InterruptedException e) {
+                // only the service interrupts its writer, which never happens
+                continue;
+            } finally {
+                lock.unlock();
+            }
+            final List<Write> failed = writeIsolatingFailures(batch);
+            lock.lock();
+            try {
+                final boolean retry = !failed.isEmpty() && !closed;
+                for (final Write write : batch) {
+                    inFlight.remove(write.id);
+                }
+                for (final Write write : failed) {
+                    if (closed) {
+                        LOG.error("Queued write of the offer {} lost on close", write.id);
+                    } else if (++write.attempts >= maxAttempts) {
+                        droppedCount++;
+                        LOG.error("Queued write of the offer {} dropped after {} attempts", write.id, write.attempts);
+                    } else {
+                        // a newer write of the same offer replaces the failed one
+                        pending.putIfAbsent(write.id, write);
+                    }
+                }
+                written.signalAll();
+                if (retry) {
+                    ready.awaitNanos(flushIntervalNanos);
+                }
+            } catch (final InterruptedException e) {
+                // retried at once
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of writes, then its writes one at a time if the batch failed, to find the failing ones.
+     *
+     * @param batch the writes, one per offer.
+     * @return the failed writes.
+     */
+    private List<Write> writeIsolatingFailures(List<Write> batch) {
+        if (write(batch)) {
+            return Collections.emptyList();
+        }
+        if (batch.size() == 1) {
+            return batch;
+        }
+        final List<Write> result = new ArrayList<>();
+        for (final Write write : batch) {
+            if (!write(Collections.singletonList(write))) {
+                result.add(write);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes a batch of writes through the other service, saves and deletes apart.
+     *
+     * @param batch the writes, one per offer.
+     * @return false if the batch failed.
+     */
+    private boolean write(List<Write> batch) {
+        final List<Offer> saved = new ArrayList<>(batch.size());
+        final List<Integer> deletedIds = new ArrayList<>();
+        for (final Write write : batch) {
+            if (write.offer != null) {
+                saved.add(write.offer);
+            } else {
+                deletedIds.add(write.id);
+            }
+        }
+        try {
+            if (!saved.isEmpty()) {
+                offerService.saveOffers(saved);
+            }
+            if (!deletedIds.isEmpty()) {
+                offerService.deleteOffers(deletedIds);
+            }
+            return true;
+        } catch (final RuntimeException e) {
+            LOG.warn("Queued writes of the offers " + ids(saved) + " and deletes of " + deletedIds + " failed", e);
+            return false;
+        }
+    }
+
+    /**
+     * Queued write of an offer, a delete when the offer is null.
+     */
+    private static final class Write {
+        private final Integer id;
+        private final Offer offer;
+        // failed attempts, counted by the writer thread
+        private int attempts;
+
+        Write(Integer id, Offer offer) {
+            this.id = id;
+            this.offer = offer;
+        }
+    }
+}
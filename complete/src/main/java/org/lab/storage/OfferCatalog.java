@@ -0,0 +1,383 @@
+package org.lab.storage;
+
+import org.lab.Offer;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Columnar in-memory catalog of offers, held in off-heap buffers.
+ * Each offer is a row of primitive columns: the id, the start and end dates as epoch days, the price as a long
+ * scaled by a per-row scale, the product as a code of a dictionary of the product names, the version,
+ * and the time of the last update in epoch milliseconds.
+ * Rows are ordered by id, so that an offer is found by binary search and offers are listed in id order;
+ * offers are mostly added with increasing ids, which appends a row. Deleted rows are marked,
+ * and removed once they make up a quarter of the rows.
+ * Offers are materialized only when read, so the catalog costs about 37 bytes of direct memory per offer,
+ * plus the distinct product names, instead of the objects of an offer on the heap.
+ * The rare offers whose price, dates or version do not fit the columns are kept aside on the heap.
+ * Writes are serialized, while reads run concurrently.
+ */
+public class OfferCatalog {
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    private static final byte NULL_PRICE = Byte.MIN_VALUE;
+    private static final byte OUTLIER = Byte.MAX_VALUE;
+    private static final byte DELETED = Byte.MIN_VALUE + 1;
+    private static final int NULL_PRODUCT = -1;
+    private static final int NULL_VERSION = Integer.MIN_VALUE;
+    private static final long NULL_LAST_MODIFIED = Long.MIN_VALUE;
+    private static final int MIN_COMPACTED_ROWS = 1024;
+    private static final int READ_BATCH_SIZE = 1000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<String> products = new ArrayList<>();
+    private final Map<String, Integer> productCodes = new HashMap<>();
+    private final Map<Integer, Offer> outliers = new HashMap<>();
+    private IntBuffer ids;
+    private IntBuffer starts;
+    private IntBuffer ends;
+    private LongBuffer unscaledPrices;
+    private ByteBuffer scales;
+    private IntBuffer productColumn;
+    private IntBuffer versions;
+    private LongBuffer lastModifiedColumn;
+    private int rows;
+    private int deletedRows;
+
+    public OfferCatalog(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    /**
+     * Returns the offer with the given id, materialized from its row.
+     *
+     * @param id the offer id.
+     * @return the offer, or null if not in the catalog.
+     */
+    public Offer get(Integer id) {
+        lock.readLock().lock();
+        try {
+            final int row = find(id);
+            return row >= 0 && scales.get(row) != DELETED ? toOffer(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes to the action, by ascending id, at most limit offers with an id greater than the given one.
+     * Offers are materialized in small batches, and the action is performed outside of the lock.
+     *
+     * @param afterId the id after which offers are listed.
+     * @param limit   the maximum number of offers to list.
+     * @param action  the action performed on each offer.
+     */
+    public void forEach(Integer afterId, int limit, Consumer<Offer> action) {
+        final List<Offer> batch = new ArrayList<>(Math.min(limit, READ_BATCH_SIZE));
+        int lastId = afterId;
+        int remaining = limit;
+        while (remaining > 0) {
+            batch.clear();
+            lock.readLock().lock();
+            try {
+                final int found = find(lastId);
+                for (int row = found >= 0 ? found + 1 : -found - 1; row < rows && batch.size() < Math.min(remaining, READ_BATCH_SIZE); row++) {
+                    if (scales.get(row) != DELETED) {
+                        batch.add(toOffer(row));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            batch.forEach(action);
+            lastId = batch.get(batch.size() - 1).getId();
+            remaining -= batch.size();
+        }
+    }
+
+    /**
+     * Returns the greatest id of the offers in the catalog.
+     *
+     * @return the greatest id, or null if the catalog is empty.
+     */
+    public Integer getMaxId() {
+        lock.readLock().lock();
+        try {
+            for (int row = rows - 1; row >= 0; row--) {
+                if (scales.get(row) != DELETED) {
+                    return ids.get(row);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of offers in the catalog.
+     *
+     * @return the number of offers.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows - deletedRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes of direct memory allocated for the columns.
+     *
+     * @return the number of bytes of direct memory.
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) ids.capacity() * (Integer.BYTES * 5 + Long.BYTES * 2 + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the offers, replacing the ones with the same ids.
+     *
+     * @param offers the offers, with an id.
+     */
+    public void putAll(Iterable<Offer> offers) {
+        lock.writeLock().lock();
+        try {
+            for (final Offer offer : offers) {
+                put(offer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the offers with the given ids, if present.
+     *
+     * @param ids the offer ids.
+     */
+    public void removeAll(Iterable<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            for (final Integer id : ids) {
+                final int row = find(id);
+                if (row >= 0 && scales.get(row) != DELETED) {
+                    scales.put(row, DELETED);
+                    outliers.remove(id);
+                    deletedRows++;
+                }
+            }
+            if (deletedRows >= MIN_COMPACTED_ROWS && deletedRows * 4 >= rows) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Offer offer) {
+        final int id = offer.getId();
+        int row = find(id);
+        if (row < 0) {
+            row = -row - 1;
+            if (rows == ids.capacity()) {
+                allocate(rows * 2);
+            }
+            // rows after the new one are shifted, unless it is appended
+            for (int from = rows - 1; from >= row; from--) {
+                copyRow(from, from + 1);
+            }
+            rows++;
+        } else if (scales.get(row) == DELETED) {
+            deletedRows--;
+        }
+        ids.put(row, id);
+        outliers.remove(id);
+        if (isOutlier(offer)) {
+            scales.put(row, OUTLIER);
+            outliers.put(id, copy(offer));
+            return;
+        }
+        starts.put(row, offer.getStart() == null ? NULL_DAY : (int) offer.getStart().toEpochDay());
+        ends.put(row, offer.getEnd() == null ? NULL_DAY : (int) offer.getEnd().toEpochDay());
+        final BigDecimal price = offer.getPrice();
+        if (price == null) {
+            scales.put(row, NULL_PRICE);
+        } else {
+            scales.put(row, (byte) price.scale());
+            unscaledPrices.put(row, price.unscaledValue().longValue());
+        }
+        productColumn.put(row, encodeProduct(offer.getProduct()));
+        versions.put(row, offer.getVersion() == null ? NULL_VERSION : offer.getVersion().intValue());
+        lastModifiedColumn.put(row, offer.getLastModified() == null ? NULL_LAST_MODIFIED : offer.getLastModified().toEpochMilli());
+    }
+
+    private static boolean isOutlier(Offer offer) {
+        final BigDecimal price = offer.getPrice();
+        final Long version = offer.getVersion();
+        final Instant lastModified = offer.getLastModified();
+        return (price != null && (price.scale() < 0 || price.scale() >= OUTLIER || price.unscaledValue().bitLength() >= Long.SIZE))
+                || !fitsColumn(offer.getStart()) || !fitsColumn(offer.getEnd())
+                || (version != null && (version <= NULL_VERSION || version > Integer.MAX_VALUE))
+                || (lastModified != null && (lastModified.getNano() % 1000000 != 0 || lastModified.getEpochSecond() <= NULL_LAST_MODIFIED / 1000
+                || lastModified.getEpochSecond() >= Long.MAX_VALUE / 1000));
+    }
+
+    private static boolean fitsColumn(LocalDate date) {
+        return date == null || (date.toEpochDay() > NULL_DAY && date.toEpochDay() <= Integer.MAX_VALUE);
+    }
+
+    private static Offer copy(Offer offer) {
+        final Offer result = new Offer();
+        result.setId(offer.getId());
+        result.setProduct(offer.getProduct());
+        result.setPrice(offer.getPrice());
+        result.setStart(offer.getStart());
+        result.setEnd(offer.getEnd());
+        result.setVersion(offer.getVersion());
+        result.setLastModified(offer.getLastModified());
+        return result;
+    }
+
+    private int encodeProduct(String product) {
+        if (product == null) {
+            return NULL_PRODUCT;
+        }
+        return productCodes.computeIfAbsent(product, name -> {
+            products.add(name);
+            return products.size() - 1;
+        });
+    }
+
+    private Offer toOffer(int row) {
+        final byte scale = scales.get(row);
+        if (scale == OUTLIER) {
+            return copy(outliers.get(ids.get(row)));
+        }
+        final Offer result = new Offer();
+        result.setId(ids.get(row));
+        final int start = starts.get(row);
+        if (start != NULL_DAY) {
+            result.setStart(LocalDate.ofEpochDay(start));
+        }
+        final int end = ends.get(row);
+        if (end != NULL_DAY) {
+            result.setEnd(LocalDate.ofEpochDay(end));
+        }
+        if (scale != NULL_PRICE) {
+            result.setPrice(BigDecimal.valueOf(unscaledPrices.get(row), scale));
+        }
+        final int product = productColumn.get(row);
+        if (product != NULL_PRODUCT) {
+            result.setProduct(products.get(product));
+        }
+        final int version = versions.get(row);
+        if (version != NULL_VERSION) {
+            result.setVersion((long) version);
+        }
+        final long lastModified = lastModifiedColumn.get(row);
+        if (lastModified != NULL_LAST_MODIFIED) {
+            result.setLastModified(Instant.ofEpochMilli(lastModified));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the row of the id, or (-(insertion row) - 1) if not found, as Arrays.binarySearch.
+     */
+    private int find(int id) {
+        // ids are mostly increasing, check the last row first
+        if (rows == 0 || ids.get(rows - 1) < id) {
+            return -rows - 1;
+        }
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleId = ids.get(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < rows; from++) {
+            if (scales.get(from) != DELETED) {
+                copyRow(from, to++);
+            }
+        }
+        rows = to;
+        deletedRows = 0;
+    }
+
+    private void copyRow(int from, int to) {
+        ids.put(to, ids.get(from));
+        starts.put(to, starts.get(from));
+        ends.put(to, ends.get(from));
+        unscaledPrices.put(to, unscaledPrices.get(from));
+        scales.put(to, scales.get(from));
+        productColumn.put(to, productColumn.get(from));
+        versions.put(to, versions.get(from));
+        lastModifiedColumn.put(to, lastModifiedColumn.get(from));
+    }
+
+    /**
+     * Allocates the columns with the given capacity, copying the current rows.
+     */
+    private void allocate(int capacity) {
+        final IntBuffer newIds = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        final IntBuffer newStarts = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        final IntBuffer newEnds = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        final LongBuffer newUnscaledPrices = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        final ByteBuffer newScales = ByteBuffer.allocateDirect(capacity);
+        final IntBuffer newProducts = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        final IntBuffer newVersions = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        final LongBuffer newLastModified = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        for (int row = 0; row < rows; row++) {
+            newIds.put(row, ids.get(row));
+            newStarts.put(row, starts.get(row));
+            newEnds.put(row, ends.get(row));
+            newUnscaledPrices.put(row, unscaledPrices.get(row));
+            newScales.put(row, scales.get(row));
+            newProducts.put(row, productColumn.get(row));
+            newVersions.put(row, versions.get(row));
+            newLastModified.put(row, lastModifiedColumn.get(row));
+        }
+        ids = newIds;
+        starts = newStarts;
+        ends = newEnds;
+        unscaledPrices = newUnscaledPrices;
+        scales = newScales;
+        productColumn = newProducts;
+        versions = newVersions;
+        lastModifiedColumn = newLastModified;
+    }
+}
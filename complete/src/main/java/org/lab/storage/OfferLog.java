@@ -0,0 +1,621 @@
+package org.lab.storage;
+
+import org.lab.Offer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of offers, stored in memory-mapped segment files.
+ * Each offer saved or deleted appends a record to the active segment, and an in-memory index maps each id
+ * to the location of its latest record, so that reads are served from the mapped pages without any query.
+ * A record is made of the length of its body, the CRC32 checksum of the body and the body itself.
+ * The length is written last, so that a record torn by a crash is never read as complete,
+ * and the checksum detects the records damaged on disk.
+ * On opening, the segments are replayed in order to rebuild the index, and the log is truncated after
+ * the last valid record. Compaction copies the live records of the sealed segments holding mostly stale records
+ * to the active segment, then deletes them.
+ * Each saved offer gets the next version and the time of the update. An offer saved with a version replaces
+ * the stored one only if the versions match, otherwise the whole write fails with nothing written.
+ * Written records reach the disk with the page cache, or on each write when the log is synced.
+ * Writes are serialized, while reads run concurrently.
+ */
+public class OfferLog implements Closeable {
+    private final static Logger LOG = LoggerFactory.getLogger(OfferLog.class);
+    private static final String SEGMENT_PREFIX = "offers-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final int READ_BATCH_SIZE = 1000;
+
+    private final Path dir;
+    private final int segmentSize;
+    private final boolean sync;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    private final NavigableMap<Integer, Long> locations = new TreeMap<>();
+    private Segment active;
+
+    /**
+     * Opens the log in the directory, recovering the records already written.
+     *
+     * @param dir         the directory of the segment files, created if missing.
+     * @param segmentSize the size in bytes of a segment file.
+     * @param sync        whether each write is forced to the disk before returning.
+     * @throws IOException if the segment files cannot be opened.
+     */
+    public OfferLog(Path dir, int segmentSize, boolean sync) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        Files.createDirectories(dir);
+        final NavigableMap<Integer, Path> paths = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path path : stream) {
+                final String name = path.getFileName().toString();
+                paths.put(Integer.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+            }
+        }
+        for (final Map.Entry<Integer, Path> entry : paths.entrySet()) {
+            // only the last segment may still be appended to
+            final Segment segment = openSegment(entry.getKey(), entry.getKey().equals(paths.lastKey()) ? segmentSize : 0);
+            segments.put(segment.number, segment);
+            replay(segment);
+        }
+        active = segments.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+        LOG.info("Opened offer log in {} with {} offers in {} segments", dir, locations.size(), segments.size());
+    }
+
+    /**
+     * Returns the offer with the given id.
+     *
+     * @param id the offer id.
+     * @return the offer, or null if not stored.
+     */
+    public Offer get(Integer id) {
+        lock.readLock().lock();
+        try {
+            final Long location = locations.get(id);
+            return location == null ? null : OfferRecord.toOffer(readBody(location));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns if the offer with the given id is stored.
+     *
+     * @param id the offer id.
+     * @return if the offer is stored.
+     */
+    public boolean contains(Integer id) {
+        lock.readLock().lock();
+        try {
+            return locations.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes to the action, by ascending id, at most limit offers with an id greater than the given one.
+     * Offers are read in small batches, and the action is performed outside of the lock.
+     *
+     * @param afterId the id after which offers are listed.
+     * @param limit   the maximum number of offers to list.
+     * @param action  the action performed on each offer.
+     */
+    public void forEach(Integer afterId, int limit, Consumer<Offer> action) {
+        final List<Offer> batch = new ArrayList<>(Math.min(limit, READ_BATCH_SIZE));
+        Integer lastId = afterId;
+        int remaining = limit;
+        while (remaining > 0) {
+            batch.clear();
+            lock.readLock().lock();
+            try {
+                for (final Long location : locations.tailMap(lastId, false).values()) {
+                    if (batch.size() == Math.min(remaining, READ_BATCH_SIZE)) {
+                        break;
+                    }
+                    batch.add(OfferRecord.toOffer(readBody(location)));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            batch.forEach(action);
+            lastId = batch.get(batch.size() - 1).getId();
+            remaining -= batch.size();
+        }
+    }
+
+    /**
+     * Returns the greatest id of the stored offers.
+     *
+     * @return the greatest id, or null if no offer is stored.
+     */
+    public Integer getMaxId() {
+        lock.readLock().lock();
+        try {
+            return locations.isEmpty() ? null : locations.lastKey();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of stored offers.
+     *
+     * @return the number of stored offers.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return locations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of segment files.
+     *
+     * @return the number of segment files.
+     */
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Saves the offers, adding the new ones and replacing the stored ones.
+     * The version and the time of the last update are set in the saved offers.
+     *
+     * @param offers the offers, with an id.
+     * @throws ObjectOptimisticLockingFailureException if the version of an offer does not match the stored one.
+     */
+    public void putAll(Collection<Offer> offers) {
+        lock.writeLock().lock();
+        try {
+            checkVersions(offers);
+            for (final Offer offer : offers) {
+                put(offer);
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored offers, skipping the others and those whose version does not match the stored one.
+     * The version and the time of the last update are set in the replaced offers.
+     *
+     * @param offers the offers, with an id.
+     * @return the ids of the replaced offers.
+     */
+    public Set<Integer> replaceAll(Collection<Offer> offers) {
+        final Set<Integer> result = new HashSet<>();
+        lock.writeLock().lock();
+        try {
+            for (final Offer offer : offers) {
+                final Long location = locations.get(offer.getId());
+                if (location != null && (offer.getVersion() == null || isStoredVersion(offer, location))) {
+                    put(offer);
+                    result.add(offer.getId());
+                }
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Replaces a stored offer with the one computed from it, under the write lock, so that no other write
+     * comes in between. The version and the time of the last update are set in the replacing offer.
+     * An exception thrown by the update fails the write, with nothing written.
+     *
+     * @param id     the offer id.
+     * @param update the function computing the replacing offer from a copy of the stored one.
+     * @return the replacing offer, or null if no offer is stored with the id.
+     */
+    public Offer update(Integer id, UnaryOperator<Offer> update) {
+        lock.writeLock().lock();
+        try {
+            final Long location = locations.get(id);
+            if (location == null) {
+                return null;
+            }
+            final Offer result = update.apply(OfferRecord.toOffer(readBody(location)));
+            put(result);
+            flush();
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the offers with the given ids, skipping the ids not stored.
+     *
+     * @param ids the offer ids.
+     * @return the ids of the deleted offers.
+     */
+    public Set<Integer> deleteAll(Collection<Integer> ids) {
+        return deleteAll(ids, null);
+    }
+
+    /**
+     * Deletes the offers with the given ids matching the condition, checked against the stored offers
+     * under the write lock, skipping the ids not stored.
+     *
+     * @param ids       the offer ids.
+     * @param condition the condition of the offers to delete, or null to delete them all.
+     * @return the ids of the deleted offers.
+     */
+    public Set<Integer> deleteAll(Collection<Integer> ids, Predicate<Offer> condition) {
+        return deleteAll(ids, condition, null);
+    }
+
+    /**
+     * Deletes the offers with the given ids matching the condition, checked against the stored offers
+     * under the write lock, skipping the ids not stored.
+     * The action is passed the stored offers to delete under the write lock, before they are deleted,
+     * so that nothing is deleted if it fails.
+     *
+     * @param ids       the offer ids.
+     * @param condition the condition of the offers to delete, or null to delete them all.
+     * @param action    the action performed on the offers to delete, or null.
+     * @return the ids of the deleted offers.
+     */
+    public Set<Integer> deleteAll(Collection<Integer> ids, Predicate<Offer> condition, Consumer<List<Offer>> action) {
+        final Set<Integer> result = new LinkedHashSet<>();
+        final List<Offer> offers = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (final Integer id : ids) {
+                final Long location = locations.get(id);
+                if (location == null || result.contains(id)) {
+                    continue;
+                }
+                if (condition == null && action == null) {
+                    result.add(id);
+                    continue;
+                }
+                final Offer offer = OfferRecord.toOffer(readBody(location));
+                if (condition == null || condition.test(offer)) {
+                    offers.add(offer);
+                    result.add(id);
+                }
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+            if (action != null) {
+                action.accept(offers);
+            }
+            for (final Integer id : result) {
+                append(OfferRecord.delete(id));
+                release(locations.remove(id));
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Compacts the sealed segments whose live records take less than the given fraction of their written bytes.
+     * The live records of each segment are copied to the active segment, then the segment file is deleted.
+     * A deletion record is copied only while an older segment may still hold the offer it deletes.
+     *
+     * @param threshold the fraction of live bytes under which a segment is compacted.
+     * @return the number of compacted segments.
+     */
+    public int compact(double threshold) {
+        final List<Integer> numbers;
+        lock.readLock().lock();
+        try {
+            if (active == null) {
+                return 0;
+            }
+            numbers = new ArrayList<>(segments.headMap(active.number, false).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        int result = 0;
+        for (final Integer number : numbers) {
+            // each segment is compacted under the write lock, letting reads and writes through in between
+            lock.writeLock().lock();
+            try {
+                final Segment segment = segments.get(number);
+                if (segment != null && segment.liveBytes < threshold * segment.position) {
+                    compact(segment);
+                    result++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forces the written records to the disk and releases the segments.
+     * Segment files stay mapped until their buffers are collected.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.buffer.force();
+                active = null;
+            }
+            segments.clear();
+            locations.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks that the version of each offer, if any, matches the version of the stored offer.
+     *
+     * @param offers the offers.
+     */
+    private void checkVersions(Collection<Offer> offers) {
+        for (final Offer offer : offers) {
+            if (offer.getVersion() != null) {
+                final Long location = locations.get(offer.getId());
+                if (location == null || !isStoredVersion(offer, location)) {
+                    throw new ObjectOptimisticLockingFailureException(Offer.class, offer.getId());
+                }
+            }
+        }
+    }
+
+    private boolean isStoredVersion(Offer offer, long location) {
+        return OfferRecord.getVersion(readBody(location)) == offer.getVersion();
+    }
+
+    private void put(Offer offer) {
+        final Long storedLocation = locations.get(offer.getId());
+        offer.setVersion(storedLocation == null ? 0L : OfferRecord.getVersion(readBody(storedLocation)) + 1);
+        offer.setLastModified(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        final byte[] body = OfferRecord.put(offer);
+        final long location = append(body);
+        release(locations.put(offer.getId(), location));
+        active.liveBytes += HEADER_SIZE + body.length;
+    }
+
+    private void flush() {
+        if (sync) {
+            active.buffer.force();
+        }
+    }
+
+    /**
+     * Appends a record to the active segment, rolling to a new segment when full.
+     *
+     * @param body the body of the record.
+     * @return the location of the record.
+     */
+    private long append(byte[] body) {
+        if (active == null) {
+            throw new IllegalStateException("Offer log closed");
+        }
+        final int size = HEADER_SIZE + body.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + size + " bytes larger than a segment");
+        }
+        if (active.position + size > active.buffer.capacity()) {
+            // a sealed segment is never written again
+            active.buffer.force();
+            active = createSegment(active.number + 1);
+        }
+        final MappedByteBuffer buffer = active.buffer;
+        final int position = active.position;
+        for (int i = 0; i < body.length; i++) {
+            buffer.put(position + HEADER_SIZE + i, body[i]);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // the record is complete once its length is written
+        buffer.putInt(position, body.length);
+        active.position += size;
+        return location(active.number, position);
+    }
+
+    /**
+     * Forgets the record at the given location, no longer live.
+     *
+     * @param location the location, or null.
+     */
+    private void release(Long location) {
+        if (location != null) {
+            final Segment segment = segments.get(segmentNumber(location));
+            segment.liveBytes -= HEADER_SIZE + segment.buffer.getInt(offset(location));
+        }
+    }
+
+    private byte[] readBody(long location) {
+        return readBody(segments.get(segmentNumber(location)).buffer, offset(location));
+    }
+
+    private static byte[] readBody(MappedByteBuffer buffer, int offset) {
+        final byte[] result = new byte[buffer.getInt(offset)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buffer.get(offset + HEADER_SIZE + i);
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the index from the records of the segment, stopping at the first missing or invalid record.
+     * The remainder of the segment is cleared after an invalid record, which may have been torn by a crash.
+     *
+     * @param segment the segment.
+     */
+    private void replay(Segment segment) {
+        final MappedByteBuffer buffer = segment.buffer;
+        final int capacity = buffer.capacity();
+        int position = 0;
+        while (position + HEADER_SIZE <= capacity) {
+            final int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (!isValid(buffer, position, length)) {
+                LOG.warn("Invalid record at {} in {}, truncating the segment", position, segment.path);
+                for (int i = position; i < capacity; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+            final int id = buffer.getInt(position + HEADER_SIZE + OfferRecord.ID_OFFSET);
+            if (OfferRecord.isPut(buffer.get(position + HEADER_SIZE + OfferRecord.TYPE_OFFSET))) {
+                release(locations.put(id, location(segment.number, position)));
+                segment.liveBytes += HEADER_SIZE + length;
+            } else {
+                release(locations.remove(id));
+            }
+            position += HEADER_SIZE + length;
+        }
+        segment.position = position;
+    }
+
+    private static boolean isValid(MappedByteBuffer buffer, int position, int length) {
+        if (length < OfferRecord.ID_OFFSET + 4 || length > buffer.capacity() - position - HEADER_SIZE) {
+            return false;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(readBody(buffer, position));
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    private void compact(Segment segment) {
+        final boolean olderSegments = segments.firstKey() < segment.number;
+        final MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position < segment.position) {
+            final byte[] body = readBody(buffer, position);
+            final Integer id = buffer.getInt(position + HEADER_SIZE + OfferRecord.ID_OFFSET);
+            if (OfferRecord.isPut(body[OfferRecord.TYPE_OFFSET])) {
+                final Long location = locations.get(id);
+                if (location != null && location == location(segment.number, position)) {
+                    locations.put(id, append(body));
+                    active.liveBytes += HEADER_SIZE + body.length;
+                }
+            } else if (olderSegments && !locations.containsKey(id)) {
+                append(body);
+            }
+            position += HEADER_SIZE + body.length;
+        }
+        // the copies must be on the disk before the segment is deleted
+        active.buffer.force();
+        segments.remove(segment.number);
+        try {
+            Files.delete(segment.path);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOG.debug("Compacted offer log segment {}", segment.path);
+    }
+
+    private Segment createSegment(int number) {
+        try {
+            final Segment result = openSegment(number, segmentSize);
+            segments.put(number, result);
+            return result;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the segment file, extending it to the minimum size.
+     *
+     * @param number      the segment number.
+     * @param minimumSize the minimum size of the file.
+     * @return the segment.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private Segment openSegment(int number, int minimumSize) throws IOException {
+        final Path path = dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        // the mapping stays valid once the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long size = Math.max(channel.size(), minimumSize);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment " + path + " too large");
+            }
+            return new Segment(number, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    private static long location(int segmentNumber, int offset) {
+        return ((long) segmentNumber << 32) | offset;
+    }
+
+    private static int segmentNumber(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Segment file of the log, mapped in memory.
+     */
+    private static final class Segment {
+        private final int number;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private long liveBytes;
+
+        Segment(int number, Path path, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
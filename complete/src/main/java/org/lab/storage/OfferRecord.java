@@ -0,0 +1,146 @@
+package org.lab.storage;
+
+import org.lab.Offer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Binary encoding of the records of the offer log.
+ * The body of a record starts with its type and the offer id. The body of a saved offer follows with a bit set
+ * of the null fields, the version, the time of the last update in epoch milliseconds, the start and end dates
+ * as epoch days, the price as scale and unscaled bytes, and the product as UTF-8 bytes.
+ * The body of a deleted offer has no other field.
+ */
+final class OfferRecord {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final int TYPE_OFFSET = 0;
+    static final int ID_OFFSET = 1;
+
+    private static final int VERSION_OFFSET = 6;
+    private static final int PUT_FIXED_SIZE = 48;
+    private static final int DELETE_SIZE = 5;
+    private static final int NULL_PRODUCT = 1;
+    private static final int NULL_PRICE = 2;
+    private static final int NULL_START = 4;
+    private static final int NULL_END = 8;
+    private static final int NULL_LAST_MODIFIED = 16;
+    private static final byte[] EMPTY = new byte[0];
+
+    private OfferRecord() {
+    }
+
+    /**
+     * Returns if the record of the given type saves an offer.
+     *
+     * @param type the record type.
+     * @return if the record saves an offer.
+     */
+    static boolean isPut(byte type) {
+        return type == PUT;
+    }
+
+    /**
+     * Returns the version of the offer saved by the record, without decoding the offer.
+     *
+     * @param body the body of a record saving an offer.
+     * @return the version of the offer.
+     */
+    static long getVersion(byte[] body) {
+        return ByteBuffer.wrap(body).getLong(VERSION_OFFSET);
+    }
+
+    /**
+     * Returns the body of the record saving the offer.
+     *
+     * @param offer the offer, with an id and a version.
+     * @return the body of the record.
+     */
+    static byte[] put(Offer offer) {
+        if (offer.getId() == null) {
+            throw new IllegalArgumentException("Offer without id");
+        }
+        final String product = offer.getProduct();
+        final BigDecimal price = offer.getPrice();
+        final LocalDate start = offer.getStart();
+        final LocalDate end = offer.getEnd();
+        final Instant lastModified = offer.getLastModified();
+        final byte[] productBytes = product == null ? EMPTY : product.getBytes(StandardCharsets.UTF_8);
+        final byte[] unscaledBytes = price == null ? EMPTY : price.unscaledValue().toByteArray();
+        if (unscaledBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Offer price too large");
+        }
+        final int nulls = (product == null ? NULL_PRODUCT : 0) | (price == null ? NULL_PRICE : 0)
+                | (start == null ? NULL_START : 0) | (end == null ? NULL_END : 0)
+                | (lastModified == null ? NULL_LAST_MODIFIED : 0);
+        return ByteBuffer.allocate(PUT_FIXED_SIZE + unscaledBytes.length + productBytes.length)
+                .put(PUT)
+                .putInt(offer.getId())
+                .put((byte) nulls)
+                .putLong(offer.getVersion())
+                .putLong(lastModified == null ? 0 : lastModified.toEpochMilli())
+                .putLong(start == null ? 0 : start.toEpochDay())
+                .putLong(end == null ? 0 : end.toEpochDay())
+                .putInt(price == null ? 0 : price.scale())
+                .putShort((short) unscaledBytes.length)
+                .put(unscaledBytes)
+                .putInt(productBytes.length)
+                .put(productBytes)
+                .array();
+    }
+
+    /**
+     * Returns the body of the record deleting the offer with the given id.
+     *
+     * @param id the offer id.
+     * @return the body of the record.
+     */
+    static byte[] delete(Integer id) {
+        return ByteBuffer.allocate(DELETE_SIZE).put(DELETE).putInt(id).array();
+    }
+
+    /**
+     * Returns the offer saved by the record.
+     *
+     * @param body the body of a record saving an offer.
+     * @return the offer.
+     */
+    static Offer toOffer(byte[] body) {
+        final ByteBuffer buffer = ByteBuffer.wrap(body);
+        // the type, a saved offer
+        buffer.get();
+        final Offer result = new Offer();
+        result.setId(buffer.getInt());
+        final int nulls = buffer.get();
+        result.setVersion(buffer.getLong());
+        final long lastModified = buffer.getLong();
+        if ((nulls & NULL_LAST_MODIFIED) == 0) {
+            result.setLastModified(Instant.ofEpochMilli(lastModified));
+        }
+        final long start = buffer.getLong();
+        final long end = buffer.getLong();
+        final int scale = buffer.getInt();
+        final byte[] unscaledBytes = new byte[buffer.getShort()];
+        buffer.get(unscaledBytes);
+        final byte[] productBytes = new byte[buffer.getInt()];
+        buffer.get(productBytes);
+        if ((nulls & NULL_PRODUCT) == 0) {
+            result.setProduct(new String(productBytes, StandardCharsets.UTF_8));
+        }
+        if ((nulls & NULL_PRICE) == 0) {
+            result.setPrice(new BigDecimal(new BigInteger(unscaledBytes), scale));
+        }
+        if ((nulls & NULL_START) == 0) {
+            result.setStart(LocalDate.ofEpochDay(start));
+        }
+        if ((nulls & NULL_END) == 0) {
+            result.setEnd(LocalDate.ofEpochDay(end));
+        }
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package org.lab.swagger;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -19,6 +20,7 @@ import static springfox.documentation.builders.PathSelectors.regex;
  * Swagger configuration.
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableSwagger2
 public class SwaggerConfig {
     private static final Set<String> DEFAULT_PRODUCES_AND_CONSUMES =
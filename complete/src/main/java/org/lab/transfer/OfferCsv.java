@@ -0,0 +1,131 @@
+package org.lab.transfer;
+
+import org.lab.Offer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * CSV lines of offers, with the columns named by a header line.
+ * Fields containing a comma or a quote are quoted, with the quotes doubled. A quoted field spanning several lines
+ * is not supported, so that the files are read line by line.
+ * The columns product, price, start and end are read, in any order, the others are ignored.
+ */
+final class OfferCsv {
+    static final String HEADER = "id,product,price,start,end,version,lastModified";
+    private static final String[] REQUIRED_COLUMNS = {"product", "price", "start", "end"};
+
+    private OfferCsv() {
+    }
+
+    /**
+     * Returns the parser of the lines following the header.
+     *
+     * @param header the header line.
+     * @return the parser of a line into an offer, throwing an IllegalArgumentException on an unreadable line.
+     * @throws IllegalArgumentException if a required column is missing.
+     */
+    static Function<String, Offer> parser(String header) {
+        final Map<String, Integer> columns = new HashMap<>();
+        final List<String> names = parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (final String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing column " + column);
+            }
+        }
+        final int product = columns.get("product");
+        final int price = columns.get("price");
+        final int start = columns.get("start");
+        final int end = columns.get("end");
+        return line -> {
+            final List<String> fields = parseLine(line);
+            if (fields.size() != names.size()) {
+                throw new IllegalArgumentException("Expected " + names.size() + " fields, found " + fields.size());
+            }
+            final Offer result = new Offer();
+            result.setProduct(fields.get(product));
+            result.setPrice(fields.get(price).trim().isEmpty() ? null : new BigDecimal(fields.get(price).trim()));
+            result.setStart(fields.get(start).trim().isEmpty() ? null : LocalDate.parse(fields.get(start).trim()));
+            result.setEnd(fields.get(end).trim().isEmpty() ? null : LocalDate.parse(fields.get(end).trim()));
+            return result;
+        };
+    }
+
+    /**
+     * Returns the fields of a line.
+     *
+     * @param line the line.
+     * @return the fields.
+     * @throws IllegalArgumentException if a quoted field is not terminated.
+     */
+    static List<String> parseLine(String line) {
+        final List<String> result = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                result.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        result.add(field.toString());
+        return result;
+    }
+
+    /**
+     * Returns the line of an offer, with the columns of the header.
+     *
+     * @param offer the offer.
+     * @return the line, without line separator.
+     */
+    static String format(Offer offer) {
+        return String.join(",",
+                toString(offer.getId()),
+                quote(offer.getProduct()),
+                offer.getPrice() == null ? "" : offer.getPrice().toPlainString(),
+                toString(offer.getStart()),
+                toString(offer.getEnd()),
+                toString(offer.getVersion()),
+                toString(offer.getLastModified()));
+    }
+
+    private static String toString(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
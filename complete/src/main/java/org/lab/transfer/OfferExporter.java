@@ -0,0 +1,79 @@
+package org.lab.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.lab.Offer;
+import org.lab.services.OfferService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exporter of all the offers to a file, by ascending id, in constant memory whatever the number of offers.
+ * Offers are read by pages following the last id written, each page streamed from the storage with
+ * a forward-only cursor and written while it is read, so that no read holds the storage for the whole export.
+ * An offer saved during the export is written if its id comes after the ones already written.
+ */
+public class OfferExporter {
+    private final OfferService offerService;
+    private final ObjectWriter offerWriter;
+    private final int pageSize;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param offerService the offer service.
+     * @param objectMapper the object mapper writing the NDJSON lines.
+     * @param pageSize     the number of offers read with each cursor.
+     */
+    public OfferExporter(OfferService offerService, ObjectMapper objectMapper, int pageSize) {
+        this.offerService = offerService;
+        this.offerWriter = objectMapper.writerFor(Offer.class);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Writes all the offers to the output stream, a CSV file starting with its header line.
+     *
+     * @param outputStream the output stream, left open.
+     * @param format       the format of the file.
+     * @return the number of offers written.
+     * @throws IOException if the offers cannot be written.
+     */
+    public long exportOffers(OutputStream outputStream, OfferFileFormat format) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == OfferFileFormat.CSV) {
+            writer.write(OfferCsv.HEADER);
+            writer.write('\n');
+        }
+        long result = 0;
+        final Offer[] last = new Offer[1];
+        final int[] count = new int[1];
+        do {
+            final Integer afterId = last[0] == null ? 0 : last[0].getId();
+            count[0] = 0;
+            try {
+                offerService.listAllOffers(afterId, pageSize, offer -> {
+                    try {
+                        writer.write(format == OfferFileFormat.CSV ? OfferCsv.format(offer) : offerWriter.writeValueAsString(offer));
+                        writer.write('\n');
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    last[0] = offer;
+                    count[0]++;
+                });
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+            result += count[0];
+        } while (count[0] == pageSize);
+        writer.flush();
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package org.lab.transfer;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Formats of the offer files imported and exported in bulk, with one offer per line:
+ * CSV with a header line naming the columns, or NDJSON with one JSON offer per line.
+ */
+public enum OfferFileFormat {
+    CSV(new MediaType("text", "csv")),
+    NDJSON(new MediaType("application", "x-ndjson"));
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final MediaType mediaType;
+
+    OfferFileFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns the format of a request body.
+     *
+     * @param contentType the Content-Type header.
+     * @return the format, NDJSON unless the header is CSV.
+     */
+    public static OfferFileFormat fromContentType(String contentType) {
+        try {
+            return contentType != null && CSV.mediaType.includes(MediaType.parseMediaType(contentType)) ? CSV : NDJSON;
+        } catch (final InvalidMediaTypeException e) {
+            return NDJSON;
+        }
+    }
+
+    /**
+     * Returns the format of a response, the one of the acceptable media types with the highest quality.
+     *
+     * @param accept the Accept header, or null.
+     * @return the format, NDJSON when the header is missing, invalid or does not include any of the formats.
+     */
+    public static OfferFileFormat negotiate(String accept) {
+        if (accept == null) {
+            return NDJSON;
+        }
+        final List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (final InvalidMediaTypeException e) {
+            return NDJSON;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (final MediaType acceptable : mediaTypes) {
+            if (acceptable.getQualityValue() == 0) {
+                continue;
+            }
+            for (final OfferFileFormat format : values()) {
+                if (acceptable.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return NDJSON;
+    }
+
+    /**
+     * Returns the format of a file from its extension.
+     *
+     * @param fileName the file name.
+     * @return CSV for a .csv file, NDJSON otherwise.
+     */
+    public static OfferFileFormat fromFileName(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+    }
+}
@@ -0,0 +1,26 @@
+package org.lab.transfer;
+
+/**
+ * Exception thrown when an import fails, after the offers of the lines written before the failure.
+ */
+public class OfferImportException extends RuntimeException {
+    private final long imported;
+
+    /**
+     * Creates an exception.
+     *
+     * @param imported the number of offers imported before the failure.
+     * @param cause    the failure.
+     */
+    public OfferImportException(long imported, Throwable cause) {
+        super("Import failed after " + imported + " offers: " + cause.getMessage(), cause);
+        this.imported = imported;
+    }
+
+    /**
+     * @return the number of offers imported before the failure, that stay imported.
+     */
+    public long getImported() {
+        return imported;
+    }
+}
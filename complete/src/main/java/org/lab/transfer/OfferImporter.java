@@ -0,0 +1,200 @@
+package org.lab.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.lab.Offer;
+import org.lab.OfferBatchResult;
+import org.lab.ids.OfferIdAllocator;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Importer of offer files, read line by line in constant memory whatever their size.
+ * Lines are read by chunks: each chunk is parsed and validated in parallel on a fork-join pool,
+ * while the previous chunk is written, so that at most three chunks are held at once.
+ * The valid offers of a chunk get new ids and are saved through the offer service, with its batch writes
+ * committed in chunks, and each invalid line is reported with its line number.
+ * The offers of the lines written before a failure of the storage stay imported.
+ */
+public class OfferImporter implements Closeable {
+    private static final String INVALID_OFFER = "Offer is invalid";
+
+    private final OfferService offerService;
+    private final OfferIdAllocator offerIdAllocator;
+    private final ObjectReader offerReader;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an importer.
+     *
+     * @param offerService     the offer service.
+     * @param offerIdAllocator the allocator of the ids of the imported offers.
+     * @param objectMapper     the object mapper reading the NDJSON lines.
+     * @param chunkSize        the number of lines validated and written together.
+     * @param parallelism      the number of threads validating the lines.
+     */
+    public OfferImporter(OfferService offerService, OfferIdAllocator offerIdAllocator, ObjectMapper objectMapper,
+                         int chunkSize, int parallelism) {
+        this.offerService = offerService;
+        this.offerIdAllocator = offerIdAllocator;
+        this.offerReader = objectMapper.readerFor(Offer.class);
+        this.chunkSize = chunkSize;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Imports the offers of a file, adding each valid offer with a new id.
+     * The ids, versions and times of the last update in the file are ignored.
+     *
+     * @param reader the reader of the file.
+     * @param format the format of the file.
+     * @param errors the action performed on the result of each invalid line, in the order of the lines.
+     * @return the number of offers imported.
+     * @throws OfferImportException if the file cannot be read or the offers cannot be saved,
+     *                              with the number of offers imported before.
+     */
+    public long importOffers(BufferedReader reader, OfferFileFormat format, Consumer<OfferBatchResult> errors) {
+        final long[] imported = new long[1];
+        try {
+            importOffers(reader, format, errors, imported);
+            return imported[0];
+        } catch (final IOException | RuntimeException e) {
+            throw new OfferImportException(imported[0], e);
+        }
+    }
+
+    private void importOffers(BufferedReader reader, OfferFileFormat format, Consumer<OfferBatchResult> errors,
+                              long[] imported) throws IOException {
+        long lineNumber = 0;
+        final Function<String, Offer> parser;
+        if (format == OfferFileFormat.CSV) {
+            final String header = reader.readLine();
+            lineNumber++;
+            try {
+                parser = OfferCsv.parser(header == null ? "" : header);
+            } catch (final IllegalArgumentException e) {
+                errors.accept(new OfferBatchResult(1, null, OfferBatchResult.Status.INVALID, e.getMessage()));
+                return;
+            }
+        } else {
+            parser = line -> {
+                try {
+                    return offerReader.readValue(line);
+                } catch (final JsonProcessingException e) {
+                    // without the location, holding the content of the line
+                    throw new IllegalArgumentException(e.getOriginalMessage(), e);
+                } catch (final IOException e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+            };
+        }
+        Future<List<Line>> pending = null;
+        try {
+            while (true) {
+                final List<Line> lines = new ArrayList<>(chunkSize);
+                String text;
+                while (lines.size() < chunkSize && (text = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (!text.trim().isEmpty()) {
+                        lines.add(new Line(lineNumber, text));
+                    }
+                }
+                // the next chunk is validated while the pending one is written
+                final Future<List<Line>> next = lines.isEmpty() ? null : pool.submit(() -> {
+                    lines.parallelStream().forEach(line -> line.parse(parser));
+                    return lines;
+                });
+                if (pending != null) {
+                    imported[0] += write(get(pending), errors);
+                }
+                pending = next;
+                if (next == null) {
+                    return;
+                }
+            }
+        } finally {
+            if (pending != null) {
+                pending.cancel(true);
+            }
+        }
+    }
+
+    private long write(List<Line> lines, Consumer<OfferBatchResult> errors) {
+        final List<Offer> offers = new ArrayList<>(lines.size());
+        for (final Line line : lines) {
+            if (line.error != null) {
+                errors.accept(new OfferBatchResult((int) Math.min(line.number, Integer.MAX_VALUE), null,
+                        OfferBatchResult.Status.INVALID, line.error));
+            } else {
+                line.offer.setId(offerIdAllocator.nextId());
+                offers.add(line.offer);
+            }
+        }
+        offerService.saveOffers(offers);
+        return offers.size();
+    }
+
+    private static List<Line> get(Future<List<Line>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Line of a file, with the offer parsed from it or the reason it is invalid.
+     */
+    private static class Line {
+        private final long number;
+        private final String text;
+        private Offer offer;
+        private String error;
+
+        Line(long number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+
+        void parse(Function<String, Offer> parser) {
+            try {
+                final Offer result = parser.apply(text);
+                if (result == null || !OfferUtils.isValid(result)) {
+                    error = INVALID_OFFER;
+                } else {
+                    // a new offer, saved without version
+                    result.setVersion(null);
+                    result.setLastModified(null);
+                    offer = result;
+                }
+            } catch (final RuntimeException e) {
+                error = "Unreadable offer: " + e.getMessage();
+            }
+        }
+    }
+}
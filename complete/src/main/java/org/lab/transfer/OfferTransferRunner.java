@@ -0,0 +1,69 @@
+package org.lab.transfer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runner importing and exporting the offer files given on the command line, once the application has started
+ * (offer.transfer.import-file and offer.transfer.export-file). The import runs first, each invalid line is logged.
+ * Run without web server (spring.main.web-application-type=none), the application stops once the files are done.
+ */
+public class OfferTransferRunner implements ApplicationRunner {
+    private final static Logger LOG = LoggerFactory.getLogger(OfferTransferRunner.class);
+
+    private final OfferImporter offerImporter;
+    private final OfferExporter offerExporter;
+    private final String importFile;
+    private final String exportFile;
+
+    /**
+     * Creates a runner.
+     *
+     * @param offerImporter the importer.
+     * @param offerExporter the exporter.
+     * @param importFile    the file to import, or null.
+     * @param exportFile    the file to export to, or null.
+     */
+    public OfferTransferRunner(OfferImporter offerImporter, OfferExporter offerExporter, String importFile, String exportFile) {
+        this.offerImporter = offerImporter;
+        this.offerExporter = offerExporter;
+        this.importFile = importFile;
+        this.exportFile = exportFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (importFile != null && !importFile.isEmpty()) {
+            final Path path = Paths.get(importFile);
+            final AtomicLong invalid = new AtomicLong();
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                final long imported = offerImporter.importOffers(reader, OfferFileFormat.fromFileName(importFile), error -> {
+                    invalid.incrementAndGet();
+                    LOG.warn("Line {} of {} skipped: {}", error.getIndex(), path, error.getMessage());
+                });
+                LOG.info("Imported {} offers from {}, {} invalid lines", imported, path, invalid.get());
+            } catch (final OfferImportException e) {
+                LOG.error("Import from {} failed, {} offers imported before", path, e.getImported());
+                throw e;
+            }
+        }
+        if (exportFile != null && !exportFile.isEmpty()) {
+            final Path path = Paths.get(exportFile);
+            try (OutputStream outputStream = Files.newOutputStream(path)) {
+                final long exported = offerExporter.exportOffers(outputStream, OfferFileFormat.fromFileName(exportFile));
+                LOG.info("Exported {} offers to {}", exported, path);
+            }
+        }
+    }
+}
@@ -4,14 +4,9 @@ import org.lab.Offer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.validation.ConstraintViolation;
-import javax.validation.Validation;
-import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Period;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -21,6 +16,14 @@ public class OfferUtils {
     private final static Logger LOG = LoggerFactory.getLogger(OfferUtils.class);
     private static final AtomicInteger COUNTER = new AtomicInteger(0);
 
+    /**
+     * Returns an id incremented on each call, starting from 1 when the class is loaded.
+     * Ids are only unique within the running JVM, offers stored in the system get their ids from an OfferIdAllocator.
+     *
+     * @return an id incremented on each call.
+     * @deprecated use an {@link org.lab.ids.OfferIdAllocator}.
+     */
+    @Deprecated
     public static Integer getIncrementalId() {
         return new Integer(COUNTER.incrementAndGet());
     }
@@ -54,23 +57,7 @@ public class OfferUtils {
      * @return if the offer is valid.
      */
     public static boolean isValid(Offer offer) {
-        boolean result = false;
-        if (offer != null) {
-            // Javax validation
-            final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-            final Validator validator = factory.getValidator();
-            final Set<ConstraintViolation<Offer>> violations = validator.validate(offer);
-            if (violations.isEmpty()) {
-                if (isPeriodValid(offer)) {
-                    result = true;
-                }
-            } else {
-                for (final ConstraintViolation<Offer> violation : violations) {
-                    LOG.info("PropertyPath: " + violation.getPropertyPath() + ", invalid value: " + violation.getInvalidValue() + ", " + violation.getMessage());
-                }
-            }
-        }
-        return result;
+        return OfferValidator.getInstance().isValid(offer);
     }
 
     /**
@@ -80,18 +67,7 @@ public class OfferUtils {
      * @return true if the period of validity (end - start) is non negative.
      */
     public static boolean isPeriodValid(Offer offer) {
-        boolean result = false;
-        if (offer != null) {
-            final LocalDate start = offer.getStart();
-            final LocalDate end = offer.getEnd();
-            if (start != null && end != null) {
-                final Period period = Period.between(start, end);
-                if (period.getDays() >= 0) {
-                    result = true;
-                }
-            }
-        }
-        return result;
+        return OfferValidator.getInstance().isPeriodValid(offer);
     }
 
     /**
@@ -123,12 +99,6 @@ public class OfferUtils {
      * @return true if the offer can be saved in the system.
      */
     public static boolean isStorable(Offer offer) {
-        boolean result = false;
-        if (isValid(offer)) {
-            if (offer.getId().intValue() > 0) {
-                result = true;
-            }
-        }
-        return result;
+        return OfferValidator.getInstance().isStorable(offer);
     }
 }
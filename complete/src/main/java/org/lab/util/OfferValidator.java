@@ -0,0 +1,160 @@
+package org.lab.util;
+
+import io.micrometer.core.instrument.Metrics;
+import org.lab.Offer;
+import org.lab.OfferPatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Validator for offers.
+ * The underlying javax validator is bootstrapped only once and shared, since it is thread-safe.
+ * The period of validity is checked comparing the dates directly.
+ * Each failure is counted in the offer.validation.failures metric, tagged with the failed constraint
+ * and the property, only invalid offers pay for the lookup of the counter.
+ * A patch is checked only on the fields it changes, against the constraint annotations of the offer.
+ */
+public final class OfferValidator {
+    private final static Logger LOG = LoggerFactory.getLogger(OfferValidator.class);
+    private static final String FAILURES_METRIC = "offer.validation.failures";
+    private static final OfferValidator INSTANCE = new OfferValidator(Validation.buildDefaultValidatorFactory().getValidator());
+
+    private final Validator validator;
+
+    OfferValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Returns the shared validator instance.
+     *
+     * @return the shared validator instance.
+     */
+    public static OfferValidator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns if the offer is valid.
+     * An offer is checked against its constraint annotations and its period of validity.
+     *
+     * @param offer the offer to validate.
+     * @return if the offer is valid.
+     */
+    public boolean isValid(Offer offer) {
+        boolean result = false;
+        if (offer != null) {
+            final Set<ConstraintViolation<Offer>> violations = validator.validate(offer);
+            if (violations.isEmpty()) {
+                result = isPeriodValid(offer);
+                if (!result) {
+                    countFailure("Period", "end");
+                }
+            } else {
+                for (final ConstraintViolation<Offer> violation : violations) {
+                    countFailure(violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName(),
+                            violation.getPropertyPath().toString());
+                    if (LOG.isInfoEnabled()) {
+                        LOG.info("PropertyPath: {}, invalid value: {}, {}", violation.getPropertyPath(), violation.getInvalidValue(), violation.getMessage());
+                    }
+                }
+            }
+        } else {
+            countFailure("NotNull", "offer");
+        }
+        return result;
+    }
+
+    /**
+     * Returns if the patch is valid.
+     * Each field present in the patch is checked against the constraint annotations of the same field of the offer,
+     * and the period of validity is checked when the patch sets both dates. A period made invalid by a single date
+     * is only known to the storage, checking it against the stored offer.
+     *
+     * @param patch the patch to validate.
+     * @return if the patch is valid.
+     */
+    public boolean isValid(OfferPatch patch) {
+        if (patch == null) {
+            countFailure("NotNull", "offer");
+            return false;
+        }
+        boolean result = true;
+        if (patch.hasProduct()) {
+            result &= isValidValue("product", patch.getProduct());
+        }
+        if (patch.hasPrice()) {
+            result &= isValidValue("price", patch.getPrice());
+        }
+        if (patch.hasStart()) {
+            result &= isValidValue("start", patch.getStart());
+        }
+        if (patch.hasEnd()) {
+            result &= isValidValue("end", patch.getEnd());
+        }
+        if (result && patch.hasStart() && patch.hasEnd() && patch.getEnd().isBefore(patch.getStart())) {
+            countFailure("Period", "end");
+            result = false;
+        }
+        return result;
+    }
+
+    private boolean isValidValue(String property, Object value) {
+        final Set<ConstraintViolation<Offer>> violations = validator.validateValue(Offer.class, property, value);
+        for (final ConstraintViolation<Offer> violation : violations) {
+            countFailure(violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName(), property);
+            if (LOG.isInfoEnabled()) {
+                LOG.info("PropertyPath: {}, invalid value: {}, {}", property, value, violation.getMessage());
+            }
+        }
+        return violations.isEmpty();
+    }
+
+    private static void countFailure(String constraint, String property) {
+        Metrics.counter(FAILURES_METRIC, "constraint", constraint, "property", property).increment();
+    }
+
+    /**
+     * Returns true if the period of validity (end - start) is non negative.
+     *
+     * @param offer the offer.
+     * @return true if the period of validity (end - start) is non negative.
+     */
+    public boolean isPeriodValid(Offer offer) {
+        boolean result = false;
+        if (offer != null) {
+            final LocalDate start = offer.getStart();
+            final LocalDate end = offer.getEnd();
+            if (start != null && end != null) {
+                result = !end.isBefore(start);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the offer can be saved in the system.
+     * The offer must be valid and with a valid id.
+     *
+     * @param offer the offer.
+     * @return true if the offer can be saved in the system.
+     */
+    public boolean isStorable(Offer offer) {
+        boolean result = false;
+        if (isValid(offer)) {
+            final Integer id = offer.getId();
+            if (id != null && id.intValue() > 0) {
+                result = true;
+            } else {
+                countFailure("Positive", "id");
+            }
+        }
+        return result;
+    }
+}
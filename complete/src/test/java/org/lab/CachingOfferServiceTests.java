@@ -0,0 +1,108 @@
+package org.lab;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lab.services.CachingOfferService;
+import org.lab.services.OfferService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.lab.OfferFixtures.offer;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests on the in-memory cache of offers.
+ */
+public class CachingOfferServiceTests {
+    private OfferService offerService;
+    private CachingOfferService cachingOfferService;
+
+    @Before
+    public void init() {
+        offerService = mock(OfferService.class);
+        cachingOfferService = new CachingOfferService(offerService, 100, Duration.ofMinutes(10));
+    }
+
+    private Offer createOffer(int id) {
+        final Offer offer = offer(id);
+        when(offerService.getOfferById(id)).thenReturn(offer);
+        return offer;
+    }
+
+    @Test
+    public void testOffersByIdsAreLoadedOnce() {
+        final Offer cachedOffer = createOffer(1);
+        cachingOfferService.getOfferById(1);
+        final Offer loadedOffer = createOffer(2);
+        when(offerService.getOffersByIds(Arrays.asList(2, 3))).thenReturn(Collections.singletonList(loadedOffer));
+        final List<Offer> offers = cachingOfferService.getOffersByIds(Arrays.asList(1, 2, 3));
+        assertEquals(Arrays.asList(cachedOffer, loadedOffer), offers);
+        assertSame(loadedOffer, cachingOfferService.getOfferById(2));
+        verify(offerService, never()).getOfferById(2);
+    }
+
+    @Test
+    public void testReadThrough() {
+        final Offer offer = createOffer(1);
+        assertSame(offer, cachingOfferService.getOfferById(1));
+        assertSame(offer, cachingOfferService.getOfferById(1));
+        verify(offerService, times(1)).getOfferById(1);
+        assertEquals(1, cachingOfferService.getStats().hitCount());
+        assertEquals(1, cachingOfferService.getStats().missCount());
+    }
+
+    @Test
+    public void testMissingOfferIsNotCached() {
+        assertNull(cachingOfferService.getOfferById(2));
+        assertNull(cachingOfferService.getOfferById(2));
+        verify(offerService, times(2)).getOfferById(2);
+    }
+
+    @Test
+    public void testSaveInvalidatesOffer() {
+        final Offer offer = createOffer(3);
+        cachingOfferService.getOfferById(3);
+        cachingOfferService.saveOffer(offer);
+        cachingOfferService.getOfferById(3);
+        verify(offerService, times(2)).getOfferById(3);
+    }
+
+    @Test
+    public void testDeleteInvalidatesOffer() {
+        createOffer(4);
+        cachingOfferService.getOfferById(4);
+        cachingOfferService.deleteOffer(4);
+        when(offerService.getOfferById(4)).thenReturn(null);
+        assertNull(cachingOfferService.getOfferById(4));
+    }
+
+    @Test
+    public void testOfferSavedWhileLoadingIsNotCached() {
+        final Offer offer = offer(6);
+        // the offer is saved by another request while its former version is being read
+        when(offerService.getOfferById(6)).thenAnswer(invocation -> {
+            cachingOfferService.saveOffer(offer);
+            return offer;
+        }).thenReturn(offer);
+        cachingOfferService.getOfferById(6);
+        cachingOfferService.getOfferById(6);
+        verify(offerService, times(2)).getOfferById(6);
+    }
+
+    @Test
+    public void testOfferPastItsEndDateIsNotRetained() {
+        final Offer offer = createOffer(5);
+        offer.setStart(LocalDate.now().minusDays(10));
+        offer.setEnd(LocalDate.now().minusDays(1));
+        cachingOfferService.getOfferById(5);
+        cachingOfferService.getOfferById(5);
+        verify(offerService, times(2)).getOfferById(5);
+    }
+}
@@ -0,0 +1,85 @@
+package org.lab;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lab.ids.OfferIdAllocator;
+import org.lab.index.OfferSearchIndex;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the durable storage modes, restarting the application on the same database file or offer log.
+ */
+public class DurableStorageTests {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .profiles("durable")
+                .properties("offer.data-dir=" + folder.getRoot().getAbsolutePath(), "logging.level.root=WARN")
+                .run(args);
+    }
+
+    @Test
+    public void testOffersAndIdsSurviveRestart() {
+        assertOffersAndIdsSurviveRestart();
+    }
+
+    @Test
+    public void testOffersAndIdsSurviveRestartWithLogStorage() {
+        assertOffersAndIdsSurviveRestart("--offer.storage=log");
+        assertTrue(new File(folder.getRoot(), "log/offers-0000000001.log").isFile());
+    }
+
+    @Test
+    public void testOffersAndIdsSurviveRestartWithCatalog() {
+        assertOffersAndIdsSurviveRestart("--offer.catalog.enabled=true");
+    }
+
+    @Test
+    public void testOffersAndIdsSurviveRestartWithWriteBehind() {
+        // the queued writes are written on shutdown, long before the flush interval
+        assertOffersAndIdsSurviveRestart("--offer.write-behind.enabled=true", "--offer.write-behind.flush-interval=1m");
+    }
+
+    @Test
+    public void testOffersAndIdsSurviveRestartWithWriteBehindAndCatalog() {
+        assertOffersAndIdsSurviveRestart("--offer.write-behind.enabled=true", "--offer.write-behind.flush-interval=1m",
+                "--offer.catalog.enabled=true");
+    }
+
+    private void assertOffersAndIdsSurviveRestart(String... args) {
+        final List<Integer> ids = new ArrayList<>();
+        try (ConfigurableApplicationContext context = start(args)) {
+            final OfferService offerService = context.getBean(OfferService.class);
+            final OfferIdAllocator offerIdAllocator = context.getBean(OfferIdAllocator.class);
+            for (int i = 0; i < 5; i++) {
+                final Offer offer = OfferUtils.getDefaultOffer();
+                offer.setId(offerIdAllocator.nextId());
+                ids.add(offerService.saveOffer(offer).getId());
+            }
+        }
+        try (ConfigurableApplicationContext context = start(args)) {
+            final OfferService offerService = context.getBean(OfferService.class);
+            for (final Integer id : ids) {
+                assertNotNull(offerService.getOfferById(id));
+            }
+            assertEquals(5, context.getBean(OfferSearchIndex.class).size());
+            final Integer nextId = context.getBean(OfferIdAllocator.class).nextId();
+            assertFalse(ids.contains(nextId));
+            assertTrue(nextId > ids.get(ids.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.lab;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.util.OfferUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests on the OfferController with the offers stored in the append-only log.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"offer.storage=log", "offer.log.dir=target/offer-log-${random.uuid}"})
+@AutoConfigureMockMvc
+public class LogOfferControllerTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void deleteOfferTwice() throws Exception {
+        final String response = this.mockMvc.perform(
+                post("/offer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(OfferUtils.getDefaultOffer())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        final Integer id = objectMapper.readValue(response, Offer.class).getId();
+        this.mockMvc.perform(delete("/offer/{id}", id))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(delete("/offer/{id}", id))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Problem to delete offer with id " + id));
+    }
+}
@@ -0,0 +1,141 @@
+package org.lab;
+
+import org.junit.Test;
+import org.lab.admission.ConcurrencyLimit;
+import org.lab.admission.OfferAdmissionFilter;
+import org.lab.admission.TokenBucket;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests on the admission control of the offer requests.
+ */
+public class OfferAdmissionTests {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static MockHttpServletResponse perform(OfferAdmissionFilter filter, String method, String path, String client,
+                                                   FilterChain chain) throws IOException, ServletException {
+        final MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletResponse perform(OfferAdmissionFilter filter, String method, String path, String client)
+            throws IOException, ServletException {
+        return perform(filter, method, path, client, new MockFilterChain());
+    }
+
+    @Test
+    public void testTokenBucketAdmitsABurstThenRefills() {
+        final long start = 42;
+        final TokenBucket bucket = new TokenBucket(10, 3, start);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire(start));
+        }
+        assertFalse(bucket.tryAcquire(start));
+        assertEquals(SECOND / 10, bucket.nanosToNextToken(start));
+        // one token every 100 ms
+        assertTrue(bucket.tryAcquire(start + SECOND / 10));
+        assertFalse(bucket.tryAcquire(start + SECOND / 10));
+        // never more than the capacity after a long idle time
+        final long later = start + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire(later));
+        }
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    @Test
+    public void testConcurrencyLimitIsReleased() {
+        final ConcurrencyLimit limit = new ConcurrencyLimit(2);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release();
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        assertTrue(new ConcurrencyLimit(0).tryAcquire());
+    }
+
+    @Test
+    public void testWritesOverTheRateOfAClientAreRejected() throws Exception {
+        final OfferAdmissionFilter filter = new OfferAdmissionFilter("X-Client-Id", 0, 0, 0.5, 2, 0, 0, 100, Duration.ofMinutes(1));
+        assertEquals(200, perform(filter, "POST", "/offer", "a").getStatus());
+        assertEquals(200, perform(filter, "PUT", "/offer/1", "a").getStatus());
+        final MockHttpServletResponse response = perform(filter, "POST", "/offer", "a");
+        assertEquals(429, response.getStatus());
+        assertEquals("Too many requests", response.getContentAsString());
+        // a token every 2 seconds
+        assertTrue(Integer.parseInt(response.getHeader("Retry-After")) <= 2);
+        // other clients, the reads and the other paths are not limited
+        assertEquals(200, perform(filter, "POST", "/offer", "b").getStatus());
+        assertEquals(200, perform(filter, "GET", "/offer/1", "a").getStatus());
+        assertEquals(200, perform(filter, "POST", "/actuator/prometheus", "a").getStatus());
+        // the address identifies the clients without header
+        assertEquals(200, perform(filter, "DELETE", "/offer/1", null).getStatus());
+    }
+
+    @Test
+    public void testClientsAreIdentifiedByAddressWithoutHeader() throws Exception {
+        final OfferAdmissionFilter filter = new OfferAdmissionFilter(null, 0, 0, 0.5, 1, 0, 0, 100, Duration.ofMinutes(1));
+        assertEquals(200, perform(filter, "POST", "/offer", "a").getStatus());
+        // a header sent by the client does not give it other limits
+        assertEquals(429, perform(filter, "POST", "/offer", "b").getStatus());
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/offer");
+        request.setUserPrincipal(() -> "user");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void testRequestsOverTheConcurrencyLimitAreRejected() throws Exception {
+        final OfferAdmissionFilter filter = new OfferAdmissionFilter("X-Client-Id", 0, 0, 0, 0, 1, 1, 100, Duration.ofMinutes(1));
+        final MockHttpServletResponse[] nested = new MockHttpServletResponse[3];
+        final MockHttpServletResponse response = perform(filter, "GET", "/offer/1", "a", (request, servletResponse) -> {
+            // while the read is in flight
+            nested[0] = perform(filter, "GET", "/offer/2", "b");
+            nested[1] = perform(filter, "POST", "/offer", "b");
+            nested[2] = perform(filter, "GET", "/offer", "b", (request2, servletResponse2) -> { });
+        });
+        assertEquals(200, response.getStatus());
+        assertEquals(429, nested[0].getStatus());
+        assertEquals("Too many requests in flight", nested[0].getContentAsString());
+        assertNull(nested[0].getHeader("Retry-After"));
+        assertEquals(200, nested[1].getStatus());
+        assertEquals(429, nested[2].getStatus());
+        // released once done
+        assertEquals(200, perform(filter, "GET", "/offer/2", "b").getStatus());
+    }
+
+    @Test
+    public void testAsynchronousRequestsAreInFlightUntilComplete() throws Exception {
+        final OfferAdmissionFilter filter = new OfferAdmissionFilter("X-Client-Id", 0, 0, 0, 0, 1, 1, 100, Duration.ofMinutes(1));
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/offer");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (servletRequest, servletResponse) -> servletRequest.startAsync());
+        // the response is still streamed
+        assertEquals(429, perform(filter, "GET", "/offer/2", "b").getStatus());
+        // the change feed is not limited
+        assertEquals(200, perform(filter, "GET", "/offer/changes", "b").getStatus());
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(200, perform(filter, "GET", "/offer/2", "b").getStatus());
+    }
+}
@@ -0,0 +1,158 @@
+package org.lab;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lab.services.CatalogOfferService;
+import org.lab.services.OfferChangeEvent;
+import org.lab.services.OfferService;
+import org.lab.storage.OfferCatalog;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+import static org.lab.OfferFixtures.offer;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests on the off-heap catalog of offers, and on the service reading from it.
+ */
+public class OfferCatalogTests {
+    private OfferCatalog catalog;
+
+    @Before
+    public void init() {
+        catalog = new OfferCatalog(4);
+    }
+
+    private List<Integer> listIds(Integer afterId, int limit) {
+        final List<Integer> result = new ArrayList<>();
+        catalog.forEach(afterId, limit, offer -> result.add(offer.getId()));
+        return result;
+    }
+
+    private static void assertSameOffer(Offer expected, Offer actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getProduct(), actual.getProduct());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getStart(), actual.getStart());
+        assertEquals(expected.getEnd(), actual.getEnd());
+    }
+
+    @Test
+    public void testOffersAreMaterializedFromTheColumns() {
+        final Offer offer = offer(1);
+        final Offer emptyOffer = new Offer();
+        emptyOffer.setId(2);
+        final Offer largePrice = offer(3);
+        largePrice.setPrice(new BigDecimal("123456789012345678901234567890.5"));
+        final Offer farDate = offer(4);
+        farDate.setEnd(LocalDate.MAX);
+        final List<Offer> offers = Arrays.asList(offer, emptyOffer, largePrice, farDate);
+        catalog.putAll(offers);
+        for (final Offer expected : offers) {
+            assertSameOffer(expected, catalog.get(expected.getId()));
+        }
+        assertNotSame(offer, catalog.get(1));
+        assertNull(catalog.get(5));
+    }
+
+    @Test
+    public void testRowsStayOrderedById() {
+        catalog.putAll(Arrays.asList(offer(10), offer(30), offer(20), offer(5), offer(40)));
+        final Offer offer = offer(20);
+        offer.setPrice(new BigDecimal("12.50"));
+        catalog.putAll(Collections.singletonList(offer));
+        catalog.removeAll(Collections.singletonList(40));
+        assertEquals(Arrays.asList(5, 10, 20, 30), listIds(0, 10));
+        assertEquals(Arrays.asList(20, 30), listIds(10, 10));
+        assertEquals(Arrays.asList(10, 20), listIds(7, 2));
+        assertEquals(new BigDecimal("12.50"), catalog.get(20).getPrice());
+        assertEquals(30, catalog.getMaxId().intValue());
+        assertEquals(4, catalog.size());
+    }
+
+    @Test
+    public void testDeletedRowsAreCompacted() {
+        catalog.putAll(IntStream.rangeClosed(1, 3000).mapToObj(OfferFixtures::offer).collect(Collectors.toList()));
+        catalog.removeAll(IntStream.rangeClosed(1, 3000).filter(id -> id % 2 == 0).boxed().collect(Collectors.toList()));
+        catalog.putAll(Collections.singletonList(offer(2)));
+        assertEquals(1501, catalog.size());
+        assertEquals(Arrays.asList(1, 2, 3, 5), listIds(0, 4));
+        assertNull(catalog.get(4));
+        assertEquals(2999, catalog.getMaxId().intValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testServiceReadsFromTheCatalog() {
+        final OfferService offerService = mock(OfferService.class);
+        doAnswer(invocation -> {
+            final Integer afterId = invocation.getArgument(0);
+            if (afterId == 0) {
+                invocation.<Consumer<Offer>>getArgument(2).accept(offer(1));
+            }
+            return null;
+        }).when(offerService).listAllOffers(any(Integer.class), anyInt(), any(Consumer.class));
+        final CatalogOfferService catalogOfferService = new CatalogOfferService(offerService, catalog);
+        catalogOfferService.load();
+        final Offer offer = offer(2);
+        when(offerService.saveOffer(offer)).thenReturn(offer);
+        catalogOfferService.saveOffer(offer);
+        catalogOfferService.onOfferChange(OfferChangeEvent.saved(offer));
+        catalogOfferService.onOfferChange(OfferChangeEvent.deleted(1));
+        assertNull(catalogOfferService.getOfferById(1));
+        assertSameOffer(offer, catalogOfferService.getOfferById(2));
+        assertEquals(2, catalogOfferService.getMaxId().intValue());
+        verify(offerService).saveOffer(offer);
+        verify(offerService, never()).getOfferById(any());
+        verify(offerService, times(1)).listAllOffers(eq(0), anyInt(), any(Consumer.class));
+    }
+
+    @Test
+    public void testWritesOfOtherOffersAreNotBlocked() throws Exception {
+        final OfferService offerService = mock(OfferService.class);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(offerService.saveOffer(any())).thenAnswer(invocation -> {
+            final Offer offer = invocation.getArgument(0);
+            if (offer.getId() == 1) {
+                started.countDown();
+                release.await();
+            }
+            return offer;
+        });
+        final CatalogOfferService catalogService = new CatalogOfferService(offerService, catalog);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Offer> blocked = executor.submit(() -> catalogService.saveOffer(offer(1)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // another offer is written meanwhile, the same one waits for the write in flight
+            assertEquals(2, catalogService.saveOffer(offer(2)).getId().intValue());
+            final Future<Offer> waiting = executor.submit(() -> catalogService.saveOffer(offer(1)));
+            Thread.sleep(50);
+            assertFalse(waiting.isDone());
+            release.countDown();
+            assertEquals(1, blocked.get(5, TimeUnit.SECONDS).getId().intValue());
+            assertEquals(1, waiting.get(5, TimeUnit.SECONDS).getId().intValue());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
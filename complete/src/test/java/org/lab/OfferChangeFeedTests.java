@@ -0,0 +1,155 @@
+package org.lab;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lab.configuration.FeedProperties;
+import org.lab.services.OfferChange;
+import org.lab.services.OfferChangeEvent;
+import org.lab.services.OfferChangeFeed;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.lab.OfferFixtures.offer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests on the change feed of the offers and on its stream of Server-Sent Events.
+ */
+public class OfferChangeFeedTests {
+    private OfferChangeFeed feed;
+    private OfferChangeController changeController;
+    private MockMvc mockMvc;
+
+    @Before
+    public void init() {
+        feed = new OfferChangeFeed(4);
+        final FeedProperties properties = new FeedProperties();
+        properties.setPollInterval(Duration.ofMillis(10));
+        properties.setTimeout(Duration.ofSeconds(5));
+        changeController = new OfferChangeController();
+        changeController.setOfferChangeFeed(feed);
+        changeController.setFeedProperties(properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(changeController).build();
+    }
+
+    @Test
+    public void testChangesAreReadBySequence() {
+        feed.onOfferChange(OfferChangeEvent.saved(offer(1, 0)));
+        feed.onOfferChange(OfferChangeEvent.saved(offer(1, 1)));
+        feed.onOfferChange(OfferChangeEvent.deleted(1));
+        assertEquals(3, feed.getLastSequence());
+        final List<OfferChange> changes = feed.read(0, 10);
+        assertEquals(3, changes.size());
+        assertEquals(OfferChange.Type.CREATED, changes.get(0).getType());
+        assertEquals(OfferChange.Type.UPDATED, changes.get(1).getType());
+        assertEquals(OfferChange.Type.DELETED, changes.get(2).getType());
+        assertNull(changes.get(2).getOffer());
+        assertEquals(1, feed.read(1, 1).size());
+        assertEquals(2, feed.read(1, 1).get(0).getSequence());
+        assertTrue(feed.read(3, 10).isEmpty());
+    }
+
+    @Test
+    public void testOverwrittenChangesAreNotRead() {
+        for (int id = 1; id <= 6; id++) {
+            feed.onOfferChange(OfferChangeEvent.saved(offer(id, 0)));
+        }
+        // the 4 latest changes are kept
+        assertNull(feed.read(0, 10));
+        assertNull(feed.read(1, 10));
+        assertEquals(4, feed.read(2, 10).size());
+    }
+
+    @Test
+    public void testConcurrentChangesAreAllRead() throws InterruptedException {
+        final OfferChangeFeed largeFeed = new OfferChangeFeed(8192);
+        final List<Thread> writers = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            final int firstId = writer * 1000;
+            final Thread thread = new Thread(() -> {
+                for (int id = firstId + 1; id <= firstId + 1000; id++) {
+                    largeFeed.onOfferChange(OfferChangeEvent.saved(offer(id, 0)));
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : writers) {
+            thread.join();
+        }
+        final List<OfferChange> changes = largeFeed.read(0, 10000);
+        assertEquals(4000, changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(i + 1, changes.get(i).getSequence());
+        }
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        final long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    @Test
+    public void streamChangesAfterEventId() throws Exception {
+        feed.onOfferChange(OfferChangeEvent.saved(offer(1, 0)));
+        feed.onOfferChange(OfferChangeEvent.saved(offer(2, 0)));
+        final MvcResult result = mockMvc.perform(get("/offer/changes")
+                .header("Last-Event-ID", feed.getEpoch() + "-1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        feed.onOfferChange(OfferChangeEvent.deleted(2));
+        final String content = awaitContent(result, "event:DELETED");
+        assertFalse(content.contains("id:" + feed.getEpoch() + "-1\n"));
+        assertTrue(content.contains("id:" + feed.getEpoch() + "-2\nevent:CREATED\n"));
+        assertTrue(content.contains("id:" + feed.getEpoch() + "-3\nevent:DELETED\n"));
+        changeController.shutdown();
+    }
+
+    @Test
+    public void streamResetAfterUnknownEventId() throws Exception {
+        feed.onOfferChange(OfferChangeEvent.saved(offer(1, 0)));
+        final MvcResult result = mockMvc.perform(get("/offer/changes")
+                .param("after", (feed.getEpoch() - 1) + "-1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertTrue(awaitContent(result, "event:RESET").contains("id:" + feed.getEpoch() + "-1\nevent:RESET\n"));
+        changeController.shutdown();
+    }
+
+    @Test
+    public void streamResetAndDisconnectBehindTheFeed() throws Exception {
+        for (int id = 1; id <= 6; id++) {
+            feed.onOfferChange(OfferChangeEvent.saved(offer(id, 0)));
+        }
+        final MvcResult result = mockMvc.perform(get("/offer/changes")
+                .header("Last-Event-ID", feed.getEpoch() + "-1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the stream is completed once the reset event is sent
+        result.getAsyncResult(5000);
+        final String content = result.getResponse().getContentAsString();
+        assertTrue(content.contains("id:" + feed.getEpoch() + "-6\nevent:RESET\n"));
+        assertFalse(content.contains("event:CREATED"));
+        changeController.shutdown();
+    }
+
+    @Test
+    public void streamChangesWithErrorDueToInvalidEventId() throws Exception {
+        mockMvc.perform(get("/offer/changes").param("after", "invalid"))
+                .andExpect(status().isBadRequest());
+        changeController.shutdown();
+    }
+}
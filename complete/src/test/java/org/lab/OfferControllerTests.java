@@ -19,6 +19,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.lab.ids.OfferIdAllocator;
+import org.lab.services.OfferJsonCache;
 import org.lab.services.OfferService;
 import org.lab.util.OfferUtils;
 import org.mockito.InjectMocks;
@@ -27,19 +29,35 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -56,12 +74,16 @@ public class OfferControllerTests {
     @Mock
     private OfferService offerService;
 
+    @Mock
+    private OfferIdAllocator offerIdAllocator;
+
     @InjectMocks
     private OfferController offerController;
 
     @Before
     public void init() {
         MockitoAnnotations.initMocks(this);
+        when(offerIdAllocator.nextId()).thenReturn(1, 2, 3);
         mockMvc = MockMvcBuilders
                 .standaloneSetup(offerController)
                 .build();
@@ -93,10 +115,93 @@ public class OfferControllerTests {
                 .andExpect(jsonPath("$.price").value(10));
     }
 
+    @Test
+    public void addOfferIgnoresTheVersionSent() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setVersion(0L);
+        this.mockMvc.perform(
+                post("/offer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(offer)))
+                .andDo(print()).andExpect(status().isOk());
+        verify(offerService).saveOffer(argThat(savedOffer -> savedOffer.getVersion() == null));
+    }
+
+    @Test
+    public void addOffersWithPartialSuccess() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        final Offer invalidOffer = OfferUtils.getDefaultOffer();
+        invalidOffer.setProduct("");
+        this.mockMvc.perform(
+                post("/offer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(Arrays.asList(offer, invalidOffer))))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("INVALID"));
+        verify(offerService).saveOffers(argThat(offers -> offers.size() == 1 && offers.get(0).getId() > 0));
+    }
+
+    @Test
+    public void updateOffersWithPartialSuccess() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        final Offer missingOffer = OfferUtils.getDefaultOffer();
+        missingOffer.setId(9);
+        when(offerService.updateOffers(any())).thenReturn(Collections.singleton(8));
+        this.mockMvc.perform(
+                put("/offer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(Arrays.asList(offer, missingOffer))))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].id").value(9))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    public void updateOffersWithConflict() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        final Offer staleOffer = OfferUtils.getDefaultOffer();
+        staleOffer.setId(9);
+        staleOffer.setVersion(0L);
+        final Offer missingOffer = OfferUtils.getDefaultOffer();
+        missingOffer.setId(10);
+        missingOffer.setVersion(0L);
+        final Offer storedOffer = OfferUtils.getDefaultOffer();
+        storedOffer.setId(9);
+        storedOffer.setVersion(1L);
+        when(offerService.updateOffers(any())).thenReturn(Collections.singleton(8));
+        when(offerService.getOffersByIds(Arrays.asList(9, 10))).thenReturn(Collections.singletonList(storedOffer));
+        this.mockMvc.perform(
+                put("/offer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(Arrays.asList(offer, staleOffer, missingOffer))))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    public void deleteOffersWithPartialSuccess() throws Exception {
+        when(offerService.deleteOffers(any())).thenReturn(Collections.singleton(8));
+        this.mockMvc.perform(
+                delete("/offer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(Arrays.asList(8, -1, 9))))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].status").value("INVALID"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+    }
+
     @Test
     public void updateOfferWithSuccess() throws Exception {
         final Offer offer = OfferUtils.getDefaultOffer();
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(1);
         offer.setProduct("smart");
         when(offerService.getOfferById(offer.getId())).thenReturn(offer);
         when(offerService.saveOffer(any())).thenReturn(offer);
@@ -119,6 +224,261 @@ public class OfferControllerTests {
                 .andExpect(jsonPath("$.price").value(10));
     }
 
+    @Test
+    public void getOfferWithETag() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        offer.setVersion(3L);
+        offer.setLastModified(Instant.parse("2018-07-01T10:00:00Z"));
+        when(offerService.getOfferById(offer.getId())).thenReturn(offer);
+        mockMvc.perform(
+                get("/offer/{id}", offer.getId()))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Sun, 01 Jul 2018 10:00:00 GMT"))
+                .andExpect(jsonPath("$.version").value(3));
+        mockMvc.perform(
+                get("/offer/{id}", offer.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andDo(print()).andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(
+                get("/offer/{id}", offer.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andDo(print()).andExpect(status().isOk());
+    }
+
+    @Test
+    public void getOfferFromJsonCache() throws Exception {
+        offerController.setOfferJsonCache(new OfferJsonCache(Jackson2ObjectMapperBuilder.json().build(), 10));
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        offer.setVersion(3L);
+        when(offerService.getOfferById(offer.getId())).thenReturn(offer);
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(
+                    get("/offer/{id}", offer.getId()))
+                    .andDo(print()).andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                    .andExpect(jsonPath("$.id").value(8))
+                    .andExpect(jsonPath("$.price").value(10));
+        }
+        mockMvc.perform(
+                get("/offer/{id}", offer.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andDo(print()).andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void updateOfferWithIfMatch() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        offer.setVersion(3L);
+        when(offerService.getOfferById(offer.getId())).thenReturn(offer);
+        when(offerService.saveOffer(any())).thenReturn(offer);
+        final Offer update = OfferUtils.getDefaultOffer();
+        update.setId(8);
+        mockMvc.perform(
+                put("/offer/{id}", offer.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(update)))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        // the matched version is checked again by the storage
+        verify(offerService).saveOffer(argThat(savedOffer -> savedOffer.getVersion() == 3L));
+    }
+
+    @Test
+    public void updateOfferWithErrorDueToModifiedOffer() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        offer.setVersion(3L);
+        when(offerService.getOfferById(offer.getId())).thenReturn(offer);
+        mockMvc.perform(
+                put("/offer/{id}", offer.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(offer)))
+                .andDo(print()).andExpect(status().isPreconditionFailed());
+        verify(offerService, never()).saveOffer(any());
+        // updated by another client between the check and the save
+        when(offerService.saveOffer(any())).thenThrow(new ObjectOptimisticLockingFailureException(Offer.class, 8));
+        mockMvc.perform(
+                put("/offer/{id}", offer.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(offer)))
+                .andDo(print()).andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void patchOfferWithIfMatch() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        offer.setPrice(new BigDecimal("12.50"));
+        offer.setVersion(4L);
+        when(offerService.patchOffer(eq(8), any())).thenReturn(offer);
+        mockMvc.perform(
+                patch("/offer/{id}", offer.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"price\":12.50}"))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.price").value(12.5));
+        // only the price is patched, on the version of the header, without reading the stored offer
+        verify(offerService).patchOffer(eq(8), argThat(patch -> patch.hasPrice() && !patch.hasProduct()
+                && !patch.hasStart() && !patch.hasEnd() && patch.getVersion() == 3L));
+        verify(offerService, never()).getOfferById(any());
+        when(offerService.patchOffer(eq(8), any())).thenThrow(new ObjectOptimisticLockingFailureException(Offer.class, 8));
+        mockMvc.perform(
+                patch("/offer/{id}", offer.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"price\":12.50}"))
+                .andDo(print()).andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void patchOfferWithErrorDueToInvalidEntry() throws Exception {
+        for (final String content : Arrays.asList("{\"product\":\"\"}", "{\"price\":-1}", "{\"start\":null}",
+                "{\"start\":\"2018-07-10\",\"end\":\"2018-07-01\"}", "{\"id\":9}")) {
+            mockMvc.perform(
+                    patch("/offer/{id}", 8)
+                            .contentType("application/merge-patch+json")
+                            .content(content))
+                    .andDo(print()).andExpect(status().isBadRequest());
+        }
+        verify(offerService, never()).patchOffer(any(), any());
+        // the end date alone ends the stored offer before its start
+        when(offerService.patchOffer(eq(8), any())).thenThrow(new DataIntegrityViolationException("Invalid period"));
+        mockMvc.perform(
+                patch("/offer/{id}", 8)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"end\":\"2018-07-01\"}"))
+                .andDo(print()).andExpect(status().isBadRequest());
+        when(offerService.patchOffer(eq(9), any())).thenReturn(null);
+        mockMvc.perform(
+                patch("/offer/{id}", 9)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"price\":12.50}"))
+                .andDo(print()).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void listOffersWithSuccess() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(new Integer(8));
+        doAnswer(invocation -> {
+            final Consumer<Offer> action = invocation.getArgument(2);
+            action.accept(offer);
+            return null;
+        }).when(offerService).listAllOffers(eq(5), eq(10), any());
+        final MvcResult result = mockMvc.perform(
+                get("/offer").param("after", "5").param("limit", "10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(8))
+                .andExpect(jsonPath("$[0].start").value(offer.getStart().toString()));
+    }
+
+    @Test
+    public void getOffersByIdsWithNotFoundIds() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        when(offerService.getOffersByIds(Arrays.asList(3, 8))).thenReturn(Collections.singletonList(offer));
+        final MvcResult result = mockMvc.perform(
+                get("/offer").param("ids", "3,8,8,-1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers.length()").value(1))
+                .andExpect(jsonPath("$.offers[0].id").value(8))
+                .andExpect(jsonPath("$.notFound.length()").value(2))
+                .andExpect(jsonPath("$.notFound[0]").value(3))
+                .andExpect(jsonPath("$.notFound[1]").value(-1));
+    }
+
+    @Test
+    public void lookupOffersWithSuccess() throws Exception {
+        final Offer first = OfferUtils.getDefaultOffer();
+        first.setId(4);
+        final Offer second = OfferUtils.getDefaultOffer();
+        second.setId(9);
+        when(offerService.getOffersByIds(Arrays.asList(9, 4))).thenReturn(Arrays.asList(first, second));
+        final MvcResult result = mockMvc.perform(
+                post("/offer/lookup").contentType(MediaType.APPLICATION_JSON).content("[9, 4]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the offers follow the order of the ids
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$.offers[0].id").value(9))
+                .andExpect(jsonPath("$.offers[1].id").value(4))
+                .andExpect(jsonPath("$.notFound").isEmpty());
+    }
+
+    @Test
+    public void getOfferInBinaryFormats() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        when(offerService.getOfferById(offer.getId())).thenReturn(offer);
+        for (final OfferFormat format : Arrays.asList(OfferFormat.SMILE, OfferFormat.CBOR)) {
+            final MvcResult result = mockMvc.perform(
+                    get("/offer/{id}", offer.getId()).accept(format.getMediaType()))
+                    .andDo(print()).andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(format.getMediaType()))
+                    .andReturn();
+            final Offer readOffer = binaryMapper(format).readValue(result.getResponse().getContentAsByteArray(), Offer.class);
+            assertEquals(offer.getId(), readOffer.getId());
+            assertEquals(offer.getPrice(), readOffer.getPrice());
+            assertEquals(offer.getEnd(), readOffer.getEnd());
+        }
+    }
+
+    @Test
+    public void addOfferInCbor() throws Exception {
+        final ObjectMapper cborMapper = binaryMapper(OfferFormat.CBOR);
+        final Offer offer = OfferUtils.getDefaultOffer();
+        when(offerService.saveOffer(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        final MvcResult result = mockMvc.perform(
+                post("/offer")
+                        .contentType(OfferFormat.CBOR.getMediaType())
+                        .accept(OfferFormat.CBOR.getMediaType())
+                        .content(cborMapper.writeValueAsBytes(offer)))
+                .andDo(print()).andExpect(status().isOk())
+                .andReturn();
+        assertEquals(1, cborMapper.readValue(result.getResponse().getContentAsByteArray(), Offer.class).getId().intValue());
+        verify(offerService).saveOffer(argThat(savedOffer -> savedOffer.getStart().equals(offer.getStart())));
+    }
+
+    @Test
+    public void listOffersInSmile() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(8);
+        doAnswer(invocation -> {
+            final Consumer<Offer> action = invocation.getArgument(2);
+            action.accept(offer);
+            return null;
+        }).when(offerService).listAllOffers(eq(0), eq(100), any());
+        final MvcResult result = mockMvc.perform(
+                get("/offer").accept("application/x-jackson-smile;q=0.9, application/json;q=0.5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(OfferFormat.SMILE.getMediaType()));
+        final ObjectMapper smileMapper = binaryMapper(OfferFormat.SMILE);
+        final List<Offer> offers = smileMapper.readValue(result.getResponse().getContentAsByteArray(),
+                smileMapper.getTypeFactory().constructCollectionType(List.class, Offer.class));
+        assertEquals(1, offers.size());
+        assertEquals(offer.getStart(), offers.get(0).getStart());
+    }
+
+    private static ObjectMapper binaryMapper(OfferFormat format) {
+        return format == OfferFormat.SMILE ? Jackson2ObjectMapperBuilder.smile().build() : Jackson2ObjectMapperBuilder.cbor().build();
+    }
 
     @Test
     public void deleteOfferWithSuccess() throws Exception {
@@ -146,7 +506,7 @@ public class OfferControllerTests {
     @Test
     public void updateOfferWithErrorDueToMissingEntry() throws Exception {
         final Offer offer = OfferUtils.getDefaultOffer();
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(2);
         when(offerService.getOfferById(offer.getId())).thenReturn(null);
         when(offerService.saveOffer(any())).thenReturn(offer);
         mockMvc.perform(
@@ -159,7 +519,7 @@ public class OfferControllerTests {
     @Test
     public void updateOfferWithErrorDueToInvalidEntry() throws Exception {
         final Offer offer = OfferUtils.getDefaultOffer();
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(3);
         // wrong period of validity
         offer.setEnd(offer.getStart().minusDays(20));
         when(offerService.getOfferById(offer.getId())).thenReturn(offer);
@@ -212,6 +572,13 @@ public class OfferControllerTests {
                 .andDo(print()).andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void listOffersWithErrorDueToInvalidLimit() throws Exception {
+        mockMvc.perform(
+                get("/offer").param("limit", "0"))
+                .andDo(print()).andExpect(status().isBadRequest());
+    }
+
     @Test
     public void getOfferWithErrorDueToNonExistingId() throws Exception {
         final Offer offer = OfferUtils.getDefaultOffer();
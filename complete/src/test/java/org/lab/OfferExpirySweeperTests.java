@@ -0,0 +1,93 @@
+package org.lab;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.configuration.RepositoryConfiguration;
+import org.lab.expiry.ArchivedOffer;
+import org.lab.expiry.OfferExpirySweeper;
+import org.lab.repositories.ArchivedOfferRepository;
+import org.lab.repositories.OfferRepository;
+import org.lab.services.OfferService;
+import org.lab.services.OfferServiceImpl;
+import org.lab.util.OfferUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the sweeper of the expired offers, with the JPA repository.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {RepositoryConfiguration.class, OfferServiceImpl.class})
+public class OfferExpirySweeperTests {
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private ArchivedOfferRepository archivedOfferRepository;
+
+    private OfferExpirySweeper sweeper;
+
+    @After
+    public void cleanup() {
+        sweeper.close();
+        offerRepository.deleteAll();
+        archivedOfferRepository.deleteAll();
+    }
+
+    private void saveOffers(int firstId, int count, LocalDate end) {
+        final List<Offer> offers = new ArrayList<>();
+        for (int id = firstId; id < firstId + count; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offer.setStart(end.minusDays(10));
+            offer.setEnd(end);
+            offers.add(offer);
+        }
+        offerService.saveOffers(offers);
+    }
+
+    @Test
+    public void testOffersExpiredBeyondRetentionAreArchived() {
+        final LocalDate today = LocalDate.now();
+        saveOffers(1, 3, today.minusDays(40));
+        // expired, but within the retention period
+        saveOffers(4, 2, today.minusDays(5));
+        saveOffers(6, 2, today.plusDays(5));
+        sweeper = new OfferExpirySweeper(offerService, archivedOfferRepository, Duration.ofDays(30), 10, 10, Duration.ZERO, Duration.ofHours(1));
+        assertEquals(3, sweeper.sweep());
+        assertEquals(4, offerRepository.count());
+        assertNull(offerService.getOfferById(1));
+        assertNotNull(offerService.getOfferById(4));
+        assertEquals(3, archivedOfferRepository.count());
+        final ArchivedOffer archivedOffer = archivedOfferRepository.findById(2).orElse(null);
+        assertEquals(today.minusDays(40), archivedOffer.getEnd());
+        assertNotNull(archivedOffer.getArchived());
+        assertEquals(3, sweeper.getArchivedOffers());
+        assertEquals(0, sweeper.sweep());
+    }
+
+    @Test
+    public void testSweepIsBoundedInBatches() {
+        final LocalDate today = LocalDate.now();
+        saveOffers(1, 7, today.minusDays(2));
+        sweeper = new OfferExpirySweeper(offerService, null, Duration.ZERO, 2, 3, Duration.ofMillis(1), Duration.ofHours(1));
+        assertEquals(6, sweeper.sweep());
+        assertEquals(1, offerRepository.count());
+        assertEquals(1, sweeper.sweep());
+        assertEquals(7, sweeper.getPurgedOffers());
+        assertEquals(0, sweeper.getArchivedOffers());
+        assertEquals(0, archivedOfferRepository.count());
+    }
+}
@@ -0,0 +1,66 @@
+package org.lab;
+
+import org.lab.util.OfferUtils;
+
+import java.time.LocalDate;
+
+/**
+ * Offers shared by the tests, built from the default offer.
+ */
+public final class OfferFixtures {
+    private OfferFixtures() {
+    }
+
+    /**
+     * Returns the default offer with the given id.
+     *
+     * @param id the offer id.
+     * @return the offer.
+     */
+    public static Offer offer(int id) {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(id);
+        return offer;
+    }
+
+    /**
+     * Returns the default offer with the given id and version.
+     *
+     * @param id      the offer id.
+     * @param version the version.
+     * @return the offer.
+     */
+    public static Offer offer(int id, long version) {
+        final Offer offer = offer(id);
+        offer.setVersion(version);
+        return offer;
+    }
+
+    /**
+     * Returns the default offer with the given id and product.
+     *
+     * @param id      the offer id.
+     * @param product the product.
+     * @return the offer.
+     */
+    public static Offer offer(int id, String product) {
+        final Offer offer = offer(id);
+        offer.setProduct(product);
+        return offer;
+    }
+
+    /**
+     * Returns the default offer with the given id and period of validity.
+     *
+     * @param id    the offer id.
+     * @param start the start date.
+     * @param end   the end date.
+     * @return the offer.
+     */
+    public static Offer offer(int id, LocalDate start, LocalDate end) {
+        final Offer offer = offer(id);
+        offer.setStart(start);
+        offer.setEnd(end);
+        return offer;
+    }
+}
@@ -0,0 +1,243 @@
+package org.lab;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.configuration.RepositoryConfiguration;
+import org.lab.index.OfferHistory;
+import org.lab.index.OfferIndexLoader;
+import org.lab.repositories.OfferRevisionRepository;
+import org.lab.services.OfferChangeEvent;
+import org.lab.services.OfferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests on the history of the price and period of the offers, stored with the JPA repository.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {RepositoryConfiguration.class})
+public class OfferHistoryTests {
+    private static final Instant T0 = Instant.parse("2018-09-01T10:00:00Z");
+
+    @Autowired
+    private OfferRevisionRepository offerRevisionRepository;
+
+    private OfferHistory offerHistory;
+
+    @Before
+    public void init() {
+        offerRevisionRepository.deleteAll();
+        offerHistory = newOfferHistory();
+    }
+
+    private OfferHistory newOfferHistory() {
+        return new OfferHistory(offerRevisionRepository, 3, 1 << 20, Duration.ofMinutes(10));
+    }
+
+    private static Offer offer(Integer id, long version, long minutes, String price, String start, String end) {
+        final Offer offer = new Offer();
+        offer.setId(id);
+        offer.setProduct("tv");
+        offer.setVersion(version);
+        offer.setLastModified(T0.plusSeconds(60 * minutes));
+        offer.setPrice(price == null ? null : new BigDecimal(price));
+        offer.setStart(LocalDate.parse(start));
+        offer.setEnd(LocalDate.parse(end));
+        return offer;
+    }
+
+    private void save(Offer offer) {
+        offerHistory.onOfferChange(OfferChangeEvent.saved(offer));
+    }
+
+    @Test
+    public void testRevisionsAreDecodedAsRecorded() {
+        save(offer(1, 0, 0, "400.00", "2018-09-01", "2018-10-01"));
+        save(offer(1, 1, 5, "399.99", "2018-09-01", "2018-10-01"));
+        // product only, not recorded
+        final Offer renamed = offer(1, 2, 6, "399.99", "2018-09-01", "2018-10-01");
+        renamed.setProduct("television");
+        save(renamed);
+        save(offer(1, 3, 10, null, "2018-08-15", "2018-10-01"));
+        final List<OfferRevision> revisions = offerHistory.getRevisions(1);
+        assertEquals(3, revisions.size());
+        assertEquals(new BigDecimal("400.00"), revisions.get(0).getPrice());
+        assertEquals(T0, revisions.get(0).getValidFrom());
+        assertEquals(new BigDecimal("399.99"), revisions.get(1).getPrice());
+        assertEquals(1L, revisions.get(1).getVersion().longValue());
+        assertNull(revisions.get(2).getPrice());
+        assertEquals(LocalDate.parse("2018-08-15"), revisions.get(2).getStart());
+        assertEquals(LocalDate.parse("2018-10-01"), revisions.get(2).getEnd());
+        assertEquals(3L, revisions.get(2).getVersion().longValue());
+        // a stale event is ignored
+        save(offer(1, 1, 5, "1", "2018-09-01", "2018-10-01"));
+        assertEquals(3, offerHistory.getRevisions(1).size());
+    }
+
+    @Test
+    public void testPricesKeepTheirScaleAndSize() {
+        final String big = "123456789012345678901234567890.5";
+        save(offer(1, 0, 0, "400", "2018-09-01", "2018-10-01"));
+        save(offer(1, 1, 1, big, "2018-09-01", "2018-10-01"));
+        save(offer(1, 2, 2, "0.125", "2018-09-01", "2018-10-01"));
+        final List<OfferRevision> revisions = offerHistory.getRevisions(1);
+        assertEquals(new BigDecimal("400"), revisions.get(0).getPrice());
+        assertEquals(new BigDecimal(big), revisions.get(1).getPrice());
+        assertEquals(new BigDecimal("0.125"), revisions.get(2).getPrice());
+    }
+
+    @Test
+    public void testFindsTheRevisionInEffect() {
+        save(offer(1, 0, 0, "400", "2018-09-01", "2018-10-01"));
+        save(offer(1, 1, 10, "350", "2018-09-01", "2018-10-01"));
+        offerHistory.onOfferChange(OfferChangeEvent.deleted(1));
+        assertNull(offerHistory.findAsOf(1, T0.minusSeconds(1)));
+        assertEquals(new BigDecimal("400"), offerHistory.findAsOf(1, T0).getPrice());
+        assertEquals(new BigDecimal("400"), offerHistory.findAsOf(1, T0.plusSeconds(599)).getPrice());
+        assertEquals(new BigDecimal("350"), offerHistory.findAsOf(1, T0.plusSeconds(600)).getPrice());
+        assertTrue(offerHistory.findAsOf(1, Instant.now().plusSeconds(60)).isDeleted());
+        assertNull(offerHistory.findAsOf(2, T0));
+    }
+
+    @Test
+    public void testOnlyTheLatestRevisionsAreKept() {
+        for (int version = 0; version < 10; version++) {
+            save(offer(1, version, version, String.valueOf(100 + version), "2018-09-01", "2018-10-01"));
+        }
+        final List<OfferRevision> revisions = offerHistory.getRevisions(1);
+        assertEquals(3, revisions.size());
+        assertEquals(new BigDecimal("107"), revisions.get(0).getPrice());
+        assertEquals(T0.plusSeconds(7 * 60), revisions.get(0).getValidFrom());
+        assertEquals(new BigDecimal("109"), revisions.get(2).getPrice());
+        // the oldest stored revisions are deleted as well
+        assertTrue(offerRevisionRepository.count() <= 6);
+        final List<OfferRevision> stored = newOfferHistory().getRevisions(1);
+        assertEquals(3, stored.size());
+        assertEquals(new BigDecimal("107"), stored.get(0).getPrice());
+        assertEquals(new BigDecimal("109"), stored.get(2).getPrice());
+    }
+
+    @Test
+    public void testHistoryIsKeptOnRestart() {
+        save(offer(1, 0, 0, "400.00", "2018-09-01", "2018-10-01"));
+        save(offer(1, 1, 5, "399.99", "2018-09-01", "2018-10-15"));
+        offerHistory.onOfferChange(OfferChangeEvent.deleted(1));
+        final OfferHistory restarted = newOfferHistory();
+        final List<OfferRevision> revisions = restarted.getRevisions(1);
+        assertEquals(3, revisions.size());
+        assertEquals(new BigDecimal("400.00"), revisions.get(0).getPrice());
+        assertEquals(T0.plusSeconds(300), revisions.get(1).getValidFrom());
+        assertEquals(LocalDate.parse("2018-10-15"), revisions.get(1).getEnd());
+        assertTrue(revisions.get(2).isDeleted());
+        assertEquals(new BigDecimal("399.99"), restarted.findAsOf(1, T0.plusSeconds(300)).getPrice());
+        // a revision recorded by another instance is read once the cached history expires
+        save(offer(2, 0, 0, "20", "2018-09-01", "2018-10-01"));
+        assertEquals(1, restarted.getRevisions(2).size());
+        save(offer(2, 1, 1, "25", "2018-09-01", "2018-10-01"));
+        assertEquals(1, restarted.getRevisions(2).size());
+        assertEquals(2, newOfferHistory().getRevisions(2).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCurrentRevisionsAreStoredOnStart() {
+        save(offer(1, 0, 0, "400", "2018-09-01", "2018-10-01"));
+        save(offer(2, 0, 0, "20", "2018-09-01", "2018-10-01"));
+        final OfferService offerService = mock(OfferService.class);
+        doAnswer(invocation -> {
+            final Consumer<Offer> consumer = invocation.getArgument(2);
+            // unchanged, changed while stopped, and created before the history
+            Arrays.asList(offer(1, 0, 0, "400", "2018-09-01", "2018-10-01"),
+                    offer(2, 1, 60, "25", "2018-09-01", "2018-10-01"),
+                    offer(3, 2, 120, "30", "2018-09-01", "2018-10-01")).forEach(consumer);
+            return null;
+        }).when(offerService).listAllOffers(eq(0), anyInt(), any());
+        final OfferHistory restarted = newOfferHistory();
+        final OfferIndexLoader loader = new OfferIndexLoader();
+        loader.setOfferService(offerService);
+        loader.setIndexes(Collections.singletonList(restarted));
+        loader.start();
+        assertEquals(1, restarted.getRevisions(1).size());
+        assertEquals(2, restarted.getRevisions(2).size());
+        assertEquals(new BigDecimal("25"), restarted.getRevisions(2).get(1).getPrice());
+        assertEquals(2L, restarted.getRevisions(3).get(0).getVersion().longValue());
+        assertEquals(4, offerRevisionRepository.count());
+    }
+
+    @Test
+    public void testHistoryEndpoints() throws Exception {
+        final OfferService offerService = mock(OfferService.class);
+        when(offerService.getOfferById(2)).thenReturn(offer(2, 4, 30, "20", "2018-09-01", "2018-10-01"));
+        when(offerService.getOfferById(4)).thenReturn(offer(4, 3, 60, "40", "2018-09-01", "2018-10-01"));
+        final OfferHistoryController controller = new OfferHistoryController();
+        controller.setOfferHistory(offerHistory);
+        controller.setOfferService(offerService);
+        final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        save(offer(1, 0, 0, "400", "2018-09-01", "2018-10-01"));
+        save(offer(1, 1, 24 * 60, "350", "2018-09-01", "2018-10-01"));
+        mockMvc.perform(get("/offer/{id}/history", 1))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].price").value(350))
+                .andExpect(jsonPath("$[1].start").value("2018-09-01"));
+        mockMvc.perform(get("/offer/{id}", 1).param("asOf", "2018-09-02"))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(400));
+        mockMvc.perform(get("/offer/{id}", 1).param("asOf", "2018-09-02T10:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(350));
+        mockMvc.perform(get("/offer/{id}", 1).param("asOf", "2018-08-31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("No offer found with id 1 as of 2018-08-31T00:00:00Z"));
+        mockMvc.perform(get("/offer/{id}", 1).param("asOf", "yesterday"))
+                .andExpect(status().isBadRequest());
+        // the revisions before the first one kept are unavailable
+        save(offer(4, 3, 60, "40", "2018-09-01", "2018-10-01"));
+        mockMvc.perform(get("/offer/{id}", 4).param("asOf", "2018-09-01T10:30:00Z"))
+                .andExpect(status().isGone())
+                .andExpect(content().string("History of offer 4 unavailable before 2018-09-01T11:00:00Z"));
+        mockMvc.perform(get("/offer/{id}", 4).param("asOf", "2018-09-01T11:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(40));
+        // no history kept, answered from the current offer
+        mockMvc.perform(get("/offer/{id}/history", 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].version").value(4));
+        mockMvc.perform(get("/offer/{id}", 2).param("asOf", "2018-09-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(20));
+        mockMvc.perform(get("/offer/{id}", 2).param("asOf", "2018-09-01"))
+                .andExpect(status().isGone())
+                .andExpect(content().string("History of offer 2 unavailable before 2018-09-01T10:30:00Z"));
+        mockMvc.perform(get("/offer/{id}/history", 3))
+                .andExpect(status().isBadRequest());
+    }
+}
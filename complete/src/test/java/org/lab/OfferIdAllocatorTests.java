@@ -0,0 +1,109 @@
+package org.lab;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.configuration.RepositoryConfiguration;
+import org.lab.ids.HiLoOfferIdAllocator;
+import org.lab.repositories.OfferRepository;
+import org.lab.services.OfferService;
+import org.lab.services.OfferServiceImpl;
+import org.lab.util.OfferUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the allocation of offer ids by blocks.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {RepositoryConfiguration.class, OfferServiceImpl.class, HiLoOfferIdAllocator.class}, properties = "offer.id.block-size=10")
+public class OfferIdAllocatorTests {
+    @Autowired
+    private HiLoOfferIdAllocator offerIdAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OfferService offerService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private HiLoOfferIdAllocator createAllocator() {
+        final HiLoOfferIdAllocator allocator = new HiLoOfferIdAllocator();
+        allocator.setEntityManager(entityManager);
+        allocator.setTransactionManager(transactionManager);
+        allocator.setOfferService(offerService);
+        allocator.setBlockSize(10);
+        return allocator;
+    }
+
+    @Test
+    public void testConcurrentAllocationIsUnique() throws Exception {
+        final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 250; j++) {
+                        final Integer id = offerIdAllocator.nextId();
+                        assertTrue(id > 0);
+                        assertTrue(ids.add(id));
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2000, ids.size());
+    }
+
+    @Test
+    public void testAllocatorsSharingTheSequenceDoNotCollide() {
+        // two allocators act as two nodes, or as the same node before and after a restart
+        final HiLoOfferIdAllocator firstAllocator = createAllocator();
+        final HiLoOfferIdAllocator secondAllocator = createAllocator();
+        final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 35; i++) {
+            assertTrue(ids.add(firstAllocator.nextId()));
+            assertTrue(ids.add(secondAllocator.nextId()));
+        }
+        assertEquals(4, firstAllocator.getReservedBlocks());
+        assertEquals(5, firstAllocator.getRemainingIds());
+        final Integer restartedId = createAllocator().nextId();
+        assertTrue(ids.add(restartedId));
+    }
+
+    @Test
+    public void testBlocksStartAfterTheGreatestStoredId() {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(100000);
+        offerRepository.save(offer);
+        try {
+            assertEquals(100001, createAllocator().nextId().intValue());
+        } finally {
+            offerRepository.deleteById(100000);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.lab;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lab.index.OfferIntervalIndex;
+import org.lab.services.OfferChangeEvent;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.lab.OfferFixtures.offer;
+
+/**
+ * Tests on the in-memory index of offers by period of validity.
+ */
+public class OfferIntervalIndexTests {
+    private static final LocalDate DAY = LocalDate.of(2018, 9, 1);
+
+    private OfferIntervalIndex offerIntervalIndex;
+
+    @Before
+    public void init() {
+        offerIntervalIndex = new OfferIntervalIndex();
+    }
+
+    private static Offer createOffer(int id, int startDay, int endDay) {
+        return offer(id, DAY.plusDays(startDay), DAY.plusDays(endDay));
+    }
+
+    private void save(Offer offer) {
+        offerIntervalIndex.onOfferChange(OfferChangeEvent.saved(offer));
+    }
+
+    private static List<Integer> ids(List<Offer> offers) {
+        return offers.stream().map(Offer::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFindActiveOn() {
+        save(createOffer(1, 0, 10));
+        save(createOffer(2, 5, 5));
+        save(createOffer(3, 6, 20));
+        save(createOffer(4, -10, -1));
+        assertEquals(Arrays.asList(1, 2), ids(offerIntervalIndex.findActiveOn(DAY.plusDays(5), 0, Integer.MAX_VALUE)));
+        assertEquals(Arrays.asList(1, 3), ids(offerIntervalIndex.findActiveOn(DAY.plusDays(10), 0, Integer.MAX_VALUE)));
+        assertEquals(Arrays.asList(4), ids(offerIntervalIndex.findActiveOn(DAY.minusDays(1), 0, Integer.MAX_VALUE)));
+        assertEquals(0, offerIntervalIndex.findActiveOn(DAY.plusDays(21), 0, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testUpdateAndDeleteAreReflected() {
+        save(createOffer(1, 0, 10));
+        save(createOffer(1, 20, 30));
+        assertEquals(0, offerIntervalIndex.findActiveOn(DAY.plusDays(5), 0, Integer.MAX_VALUE).size());
+        assertEquals(1, offerIntervalIndex.findActiveOn(DAY.plusDays(25), 0, Integer.MAX_VALUE).size());
+        offerIntervalIndex.onOfferChange(OfferChangeEvent.deleted(1));
+        assertEquals(0, offerIntervalIndex.findActiveOn(DAY.plusDays(25), 0, Integer.MAX_VALUE).size());
+        assertEquals(0, offerIntervalIndex.size());
+    }
+
+    @Test
+    public void testFindEndingBetween() {
+        save(createOffer(1, 0, 3));
+        save(createOffer(2, 0, 7));
+        save(createOffer(3, 0, 8));
+        save(createOffer(4, 0, 3));
+        assertEquals(Arrays.asList(1, 4, 2), ids(offerIntervalIndex.findEndingBetween(DAY, DAY.plusDays(7), null, 0, 10)));
+        // by pages, each starting after the last offer of the previous one
+        assertEquals(Arrays.asList(1, 4), ids(offerIntervalIndex.findEndingBetween(DAY, DAY.plusDays(7), null, 0, 2)));
+        assertEquals(Arrays.asList(4, 2), ids(offerIntervalIndex.findEndingBetween(DAY, DAY.plusDays(7), DAY.plusDays(3), 1, 2)));
+        assertEquals(Collections.singletonList(2),
+                ids(offerIntervalIndex.findEndingBetween(DAY, DAY.plusDays(7), DAY.plusDays(3), 4, 2)));
+    }
+
+    @Test
+    public void testFindActiveOnByPages() {
+        save(createOffer(3, 0, 10));
+        save(createOffer(1, 2, 10));
+        save(createOffer(4, 1, 10));
+        save(createOffer(2, 5, 10));
+        save(createOffer(5, 20, 30));
+        assertEquals(Arrays.asList(1, 2), ids(offerIntervalIndex.findActiveOn(DAY.plusDays(5), 0, 2)));
+        assertEquals(Arrays.asList(3, 4), ids(offerIntervalIndex.findActiveOn(DAY.plusDays(5), 2, 2)));
+        assertEquals(Collections.emptyList(), ids(offerIntervalIndex.findActiveOn(DAY.plusDays(5), 4, 2)));
+    }
+
+    @Test
+    public void testFindActiveOnMatchesFullScan() {
+        final Random random = new Random(42);
+        final Offer[] offers = new Offer[500];
+        for (int i = 0; i < offers.length; i++) {
+            final int start = random.nextInt(100);
+            offers[i] = createOffer(i + 1, start, start + random.nextInt(30));
+            save(offers[i]);
+        }
+        // delete a tenth of the offers
+        for (int i = 0; i < offers.length; i += 10) {
+            offerIntervalIndex.onOfferChange(OfferChangeEvent.deleted(offers[i].getId()));
+            offers[i] = null;
+        }
+        for (int day = -5; day < 135; day++) {
+            final LocalDate date = DAY.plusDays(day);
+            int expected = 0;
+            for (final Offer offer : offers) {
+                if (offer != null && !offer.getStart().isAfter(date) && !offer.getEnd().isBefore(date)) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, offerIntervalIndex.findActiveOn(date, 0, Integer.MAX_VALUE).size());
+        }
+    }
+}
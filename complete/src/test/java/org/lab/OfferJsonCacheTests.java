@@ -0,0 +1,65 @@
+package org.lab;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.lab.services.OfferChangeEvent;
+import org.lab.services.OfferJsonCache;
+import org.lab.util.OfferUtils;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+import static org.lab.OfferFixtures.offer;
+
+/**
+ * Tests on the cache of the JSON representation of the offers.
+ */
+public class OfferJsonCacheTests {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private OfferJsonCache jsonCache;
+
+    @Before
+    public void init() {
+        jsonCache = new OfferJsonCache(objectMapper, 100);
+    }
+
+    private static Offer createOffer(long version) {
+        final Offer offer = offer(1, version);
+        offer.setLastModified(Instant.parse("2018-07-01T10:00:00Z"));
+        return offer;
+    }
+
+    @Test
+    public void testSameVersionIsSerializedOnce() throws IOException {
+        final byte[] json = jsonCache.toJson(createOffer(0));
+        assertSame(json, jsonCache.toJson(createOffer(0)));
+        final Offer offer = objectMapper.readValue(json, Offer.class);
+        assertEquals(0L, offer.getVersion().longValue());
+        assertEquals(OfferUtils.getDefaultOffer().getProduct(), offer.getProduct());
+    }
+
+    @Test
+    public void testNewVersionIsSerializedAgain() throws IOException {
+        jsonCache.toJson(createOffer(0));
+        final Offer update = createOffer(1);
+        update.setPrice(new BigDecimal("12.50"));
+        assertEquals(new BigDecimal("12.50"), objectMapper.readValue(jsonCache.toJson(update), Offer.class).getPrice());
+        // an offer added again after a deletion has the same version
+        final Offer addedAgain = createOffer(1);
+        addedAgain.setLastModified(Instant.parse("2018-07-02T10:00:00Z"));
+        assertEquals(OfferUtils.getDefaultOffer().getPrice(), objectMapper.readValue(jsonCache.toJson(addedAgain), Offer.class).getPrice());
+    }
+
+    @Test
+    public void testChangedOffersAreEvicted() {
+        final byte[] json = jsonCache.toJson(createOffer(0));
+        jsonCache.onOfferChange(OfferChangeEvent.deleted(1));
+        assertNotSame(json, jsonCache.toJson(createOffer(0)));
+        final Offer offer = offer(2);
+        assertNotSame(jsonCache.toJson(offer), jsonCache.toJson(offer));
+    }
+}
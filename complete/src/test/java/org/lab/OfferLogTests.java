@@ -0,0 +1,270 @@
+package org.lab;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.lab.services.LogOfferService;
+import org.lab.storage.OfferLog;
+import org.lab.util.OfferUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the append-only log of offers, with small segments.
+ */
+public class OfferLogTests {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+    private OfferLog offerLog;
+
+    @Before
+    public void init() throws IOException {
+        dir = folder.getRoot().toPath();
+        offerLog = new OfferLog(dir, SEGMENT_SIZE, false);
+    }
+
+    @After
+    public void cleanup() {
+        offerLog.close();
+    }
+
+    private OfferLog reopen() throws IOException {
+        offerLog.close();
+        offerLog = new OfferLog(dir, SEGMENT_SIZE, false);
+        return offerLog;
+    }
+
+    private void save(int id, String price) {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(id);
+        offer.setPrice(new BigDecimal(price));
+        offerLog.putAll(Collections.singletonList(offer));
+    }
+
+    private List<Integer> listIds(Integer afterId, int limit) {
+        final List<Integer> result = new ArrayList<>();
+        offerLog.forEach(afterId, limit, offer -> result.add(offer.getId()));
+        return result;
+    }
+
+    @Test
+    public void testReadsTheLatestRecord() {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(1);
+        offer.setProduct(null);
+        offerLog.putAll(Collections.singletonList(offer));
+        save(2, "10.00");
+        save(3, "10.00");
+        save(2, "12.50");
+        assertEquals(new HashSet<>(Arrays.asList(3)), offerLog.deleteAll(Arrays.asList(3, 4)));
+        final Offer storedOffer = offerLog.get(1);
+        assertNull(storedOffer.getProduct());
+        assertEquals(offer.getStart(), storedOffer.getStart());
+        assertEquals(offer.getEnd(), storedOffer.getEnd());
+        assertEquals(new BigDecimal("12.50"), offerLog.get(2).getPrice());
+        assertNull(offerLog.get(3));
+        assertEquals(Arrays.asList(1, 2), listIds(0, 10));
+        assertEquals(Collections.singletonList(2), listIds(1, 10));
+        assertEquals(2, offerLog.getMaxId().intValue());
+    }
+
+    @Test
+    public void testDeletesOnlyTheOffersMatchingTheCondition() {
+        save(1, "10.00");
+        save(2, "20.00");
+        save(3, "30.00");
+        final List<Offer> deletedOffers = new ArrayList<>();
+        final Set<Integer> deletedIds = offerLog.deleteAll(Arrays.asList(1, 2, 4),
+                offer -> offer.getPrice().compareTo(new BigDecimal("15.00")) > 0, deletedOffers::addAll);
+        assertEquals(Collections.singleton(2), deletedIds);
+        assertEquals(1, deletedOffers.size());
+        assertEquals(new BigDecimal("20.00"), deletedOffers.get(0).getPrice());
+        assertEquals(Arrays.asList(1, 3), listIds(0, 10));
+    }
+
+    @Test
+    public void testExpiredOffersAreDeletedByBatches() {
+        final LogOfferService offerService = new LogOfferService(offerLog, Duration.ofHours(1), 0.5);
+        offerService.setEventPublisher(event -> { });
+        for (int id = 1; id <= 5; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            if (id % 2 == 1) {
+                offer.setStart(LocalDate.now().minusDays(20));
+                offer.setEnd(LocalDate.now().minusDays(10));
+            }
+            offerLog.putAll(Collections.singletonList(offer));
+        }
+        final List<Integer> archivedIds = new ArrayList<>();
+        final Consumer<List<Offer>> archive = offers -> offers.forEach(offer -> archivedIds.add(offer.getId()));
+        assertEquals(new HashSet<>(Arrays.asList(1, 3)), offerService.deleteExpiredOffers(LocalDate.now(), 2, archive));
+        // resumed after the last offer scanned, up to the end of the log
+        assertEquals(Collections.singleton(5), offerService.deleteExpiredOffers(LocalDate.now(), 2, archive));
+        assertEquals(Collections.emptySet(), offerService.deleteExpiredOffers(LocalDate.now(), 2, archive));
+        assertEquals(Arrays.asList(1, 3, 5), archivedIds);
+        assertEquals(Arrays.asList(2, 4), listIds(0, 10));
+        offerService.close();
+    }
+
+    @Test
+    public void testStaleVersionIsRejected() {
+        save(1, "10.00");
+        final Offer offer = offerLog.get(1);
+        assertEquals(0L, offer.getVersion().longValue());
+        assertNotNull(offer.getLastModified());
+        save(1, "12.50");
+        final Offer newOffer = OfferUtils.getDefaultOffer();
+        newOffer.setId(2);
+        offer.setPrice(new BigDecimal("15.00"));
+        try {
+            offerLog.putAll(Arrays.asList(newOffer, offer));
+            fail("Stale version saved");
+        } catch (final ObjectOptimisticLockingFailureException e) {
+            // nothing written
+        }
+        assertNull(offerLog.get(2));
+        final Offer storedOffer = offerLog.get(1);
+        assertEquals(1L, storedOffer.getVersion().longValue());
+        assertEquals(new BigDecimal("12.50"), storedOffer.getPrice());
+        storedOffer.setPrice(new BigDecimal("15.00"));
+        offerLog.putAll(Collections.singletonList(storedOffer));
+        assertEquals(2L, offerLog.get(1).getVersion().longValue());
+    }
+
+    @Test
+    public void testReplaceAllSkipsStaleVersions() {
+        save(1, "10.00");
+        save(2, "10.00");
+        final Offer offer = offerLog.get(1);
+        offer.setPrice(new BigDecimal("12.50"));
+        final Offer staleOffer = offerLog.get(2);
+        staleOffer.setVersion(5L);
+        staleOffer.setPrice(new BigDecimal("15.00"));
+        assertEquals(Collections.singleton(1), offerLog.replaceAll(Arrays.asList(offer, staleOffer)));
+        assertEquals(new BigDecimal("12.50"), offerLog.get(1).getPrice());
+        assertEquals(new BigDecimal("10.00"), offerLog.get(2).getPrice());
+    }
+
+    @Test
+    public void testUpdateReplacesTheStoredOffer() {
+        save(1, "10.00");
+        final Offer offer = offerLog.update(1, storedOffer -> {
+            storedOffer.setPrice(new BigDecimal("12.50"));
+            return storedOffer;
+        });
+        assertEquals(1L, offer.getVersion().longValue());
+        assertEquals(new BigDecimal("12.50"), offerLog.get(1).getPrice());
+        assertNull(offerLog.update(2, storedOffer -> storedOffer));
+        try {
+            offerLog.update(1, storedOffer -> {
+                throw new ObjectOptimisticLockingFailureException(Offer.class, 1);
+            });
+            fail("Failed update written");
+        } catch (final ObjectOptimisticLockingFailureException e) {
+            // nothing written
+        }
+        assertEquals(1L, offerLog.get(1).getVersion().longValue());
+    }
+
+    @Test
+    public void testRecoversAfterReopening() throws IOException {
+        for (int id = 1; id <= 50; id++) {
+            save(id, "10.00");
+        }
+        save(7, "7.00");
+        offerLog.deleteAll(Arrays.asList(8, 9));
+        assertTrue(offerLog.getSegmentCount() > 1);
+        reopen();
+        assertEquals(48, offerLog.size());
+        assertEquals(new BigDecimal("7.00"), offerLog.get(7).getPrice());
+        assertNull(offerLog.get(8));
+        assertEquals(50, offerLog.getMaxId().intValue());
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        save(1, "10.00");
+        save(2, "10.00");
+        offerLog.close();
+        // a crash while appending leaves the length of a record whose body was not written
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve("offers-0000000001.log").toFile(), "rw")) {
+            long position = 0;
+            for (int length = file.readInt(); length != 0; length = file.readInt()) {
+                position += 8 + length;
+                file.seek(position);
+            }
+            file.seek(position);
+            file.writeInt(57);
+            file.writeInt(123456);
+            file.writeByte(1);
+        }
+        reopen();
+        assertEquals(Arrays.asList(1, 2), listIds(0, 10));
+        save(3, "10.00");
+        reopen();
+        assertEquals(Arrays.asList(1, 2, 3), listIds(0, 10));
+    }
+
+    @Test
+    public void testCompactionKeepsTheLiveRecords() throws IOException {
+        for (int version = 0; version < 20; version++) {
+            for (int id = 1; id <= 10; id++) {
+                save(id, version + ".00");
+            }
+        }
+        offerLog.deleteAll(Collections.singletonList(1));
+        final int segmentCount = offerLog.getSegmentCount();
+        assertTrue(offerLog.compact(0.5) > 0);
+        assertTrue(offerLog.getSegmentCount() < segmentCount);
+        assertLatestVersions();
+        reopen();
+        assertLatestVersions();
+    }
+
+    private void assertLatestVersions() {
+        assertEquals(9, offerLog.size());
+        assertNull(offerLog.get(1));
+        for (int id = 2; id <= 10; id++) {
+            assertEquals(new BigDecimal("19.00"), offerLog.get(id).getPrice());
+        }
+    }
+
+    @Test
+    public void testDeletionSurvivesCompaction() throws IOException {
+        // the first segment is filled with offers staying live, one of them deleted from the second segment
+        for (int id = 1; id <= 17; id++) {
+            save(id, "10.00");
+        }
+        save(18, "10.00");
+        offerLog.deleteAll(Collections.singletonList(1));
+        for (int version = 0; version < 40; version++) {
+            save(18, version + ".00");
+        }
+        assertTrue(offerLog.compact(0.5) > 0);
+        reopen();
+        assertNull(offerLog.get(1));
+        assertEquals(17, offerLog.size());
+        assertEquals(new BigDecimal("39.00"), offerLog.get(18).getPrice());
+    }
+}
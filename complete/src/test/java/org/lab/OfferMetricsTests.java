@@ -0,0 +1,68 @@
+package org.lab;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.util.OfferUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests on the metrics of the offer operations.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OfferMetricsTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testValidationFailuresAreCountedByConstraint() throws Exception {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setEnd(offer.getStart().minusDays(1));
+        final double before = meterRegistry.counter("offer.validation.failures", "constraint", "Period", "property", "end").count();
+        mockMvc.perform(post("/offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(offer)))
+                .andExpect(status().isBadRequest());
+        assertEquals(before + 1, meterRegistry.counter("offer.validation.failures", "constraint", "Period", "property", "end").count(), 0);
+    }
+
+    @Test
+    public void testOperationsAreTimed() throws Exception {
+        mockMvc.perform(get("/offer/{id}", Integer.MAX_VALUE)).andExpect(status().isBadRequest());
+        assertNotNull(meterRegistry.find("http.server.requests").tag("uri", "/offer/{id}").timer());
+        assertNotNull(meterRegistry.find("offer.repository").tag("operation", "get").timer());
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", "offers").meter());
+        assertNotNull(meterRegistry.find("offer.ids.remaining").gauge());
+    }
+
+    @Test
+    public void testMetricsAreScraped() throws Exception {
+        mockMvc.perform(get("/offer/{id}", Integer.MAX_VALUE));
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("quantile=\"0.999\"")))
+                .andExpect(content().string(containsString("offer_repository_seconds_count")));
+    }
+}
@@ -8,9 +8,14 @@ import org.lab.util.OfferUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -27,7 +32,7 @@ public class OfferRepositoryTests {
     public void testSaveAndUpdateOffer() {
         // setup offer
         final Offer offer = OfferUtils.getDefaultOffer();
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(1);
         // save offer
         offerRepository.save(offer);
         // fetch from repository
@@ -57,7 +62,7 @@ public class OfferRepositoryTests {
 
     @Test
     public void testFindNonExistentId() {
-        Integer id = OfferUtils.getIncrementalId();
+        Integer id = Integer.MAX_VALUE;
         Offer offer = offerRepository.findById(id).orElse(null);
         assertNull(offer);
     }
@@ -66,7 +71,7 @@ public class OfferRepositoryTests {
     public void testSaveAndDeleteOffer() {
         // setup offer
         final Offer offer = OfferUtils.getDefaultOffer();
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(2);
         // save offer
         offerRepository.save(offer);
         // fetch from repository
@@ -80,9 +85,27 @@ public class OfferRepositoryTests {
         assertNull(fetchedOffer);
     }
 
+    @Test
+    @Transactional
+    public void testStreamByIdGreaterThan() {
+        // save offers in descending id order
+        for (int id = 5; id > 0; id--) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(1000 + id);
+            offerRepository.save(offer);
+        }
+        // stream a page after the second offer, by ascending id
+        try (Stream<Offer> offers = offerRepository.streamByIdGreaterThan(1002, PageRequest.of(0, 2))) {
+            final List<Integer> ids = offers.map(Offer::getId).collect(Collectors.toList());
+            assertEquals(2, ids.size());
+            assertEquals(1003, ids.get(0).intValue());
+            assertEquals(1004, ids.get(1).intValue());
+        }
+    }
+
     @Test(expected = EmptyResultDataAccessException.class)
     public void testDeleteNonExistentId() {
-        Integer id = OfferUtils.getIncrementalId();
+        Integer id = Integer.MAX_VALUE;
         offerRepository.deleteById(id);
     }
 }
\ No newline at end of file
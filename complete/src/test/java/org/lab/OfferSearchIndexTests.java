@@ -0,0 +1,102 @@
+package org.lab;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lab.index.OfferIndexLoader;
+import org.lab.index.OfferSearchIndex;
+import org.lab.services.OfferChangeEvent;
+import org.lab.services.OfferService;
+import org.lab.util.OfferUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.lab.OfferFixtures.offer;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests on the in-memory index of offers by product.
+ */
+public class OfferSearchIndexTests {
+    private OfferSearchIndex offerSearchIndex;
+
+    @Before
+    public void init() {
+        offerSearchIndex = new OfferSearchIndex();
+        save(1, "TV set");
+        save(2, "Smart TV");
+        save(3, "tv stand");
+        save(4, "Smartphone");
+    }
+
+    private void save(int id, String product) {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setId(id);
+        offer.setProduct(product);
+        offerSearchIndex.onOfferChange(OfferChangeEvent.saved(offer));
+    }
+
+    private static List<Integer> ids(List<Offer> offers) {
+        return offers.stream().map(Offer::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFindByProduct() {
+        assertEquals(Collections.singletonList(1), ids(offerSearchIndex.findByProduct("tv SET", 10)));
+        assertEquals(Collections.emptyList(), ids(offerSearchIndex.findByProduct("tv", 10)));
+    }
+
+    @Test
+    public void testFindByProductPrefix() {
+        assertEquals(Arrays.asList(2, 4), ids(offerSearchIndex.findByProductPrefix("Smart", 10)));
+        assertEquals(Arrays.asList(1, 3), ids(offerSearchIndex.findByProductPrefix("tv s", 10)));
+        assertEquals(Collections.singletonList(1), ids(offerSearchIndex.findByProductPrefix("tv s", 1)));
+    }
+
+    @Test
+    public void testFindByTokens() {
+        assertEquals(Arrays.asList(1, 2, 3), ids(offerSearchIndex.findByTokens("TV", 10)));
+        assertEquals(Collections.singletonList(2), ids(offerSearchIndex.findByTokens("tv smart", 10)));
+        assertEquals(Collections.emptyList(), ids(offerSearchIndex.findByTokens("radio", 10)));
+        assertEquals(Arrays.asList(1, 2), ids(offerSearchIndex.findByTokens("tv", 2)));
+        assertEquals(Collections.singletonList(1), ids(offerSearchIndex.findByTokens("set tv", 1)));
+    }
+
+    @Test
+    public void testUpdateAndDeleteAreReflected() {
+        save(2, "Radio");
+        assertEquals(Arrays.asList(1, 3), ids(offerSearchIndex.findByTokens("tv", 10)));
+        assertEquals(Collections.singletonList(2), ids(offerSearchIndex.findByTokens("radio", 10)));
+        offerSearchIndex.onOfferChange(OfferChangeEvent.deleted(2));
+        assertEquals(Collections.emptyList(), ids(offerSearchIndex.findByTokens("radio", 10)));
+        assertEquals(3, offerSearchIndex.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIndexesAreLoadedOnStart() {
+        final OfferService offerService = mock(OfferService.class);
+        doAnswer(invocation -> {
+            ((Consumer<Offer>) invocation.getArgument(2)).accept(offer(5, "Radio"));
+            return null;
+        }).when(offerService).listAllOffers(eq(0), anyInt(), any());
+        final OfferIndexLoader loader = new OfferIndexLoader();
+        loader.setOfferService(offerService);
+        loader.setIndexes(Collections.singletonList(offerSearchIndex));
+        assertFalse(loader.isRunning());
+        loader.start();
+        assertTrue(loader.isRunning());
+        assertEquals(Collections.singletonList(5), ids(offerSearchIndex.findByProduct("radio", 10)));
+        assertEquals(5, offerSearchIndex.size());
+    }
+}
@@ -0,0 +1,183 @@
+package org.lab;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.configuration.RepositoryConfiguration;
+import org.lab.repositories.OfferRepository;
+import org.lab.services.OfferService;
+import org.lab.services.OfferServiceImpl;
+import org.lab.util.OfferUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the service managing persistence.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {RepositoryConfiguration.class, OfferServiceImpl.class}, properties = "offer.batch.chunk-size=3")
+public class OfferServiceTests {
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @After
+    public void cleanup() {
+        offerRepository.deleteAll();
+    }
+
+    private static List<Offer> createOffers(int firstId, int count) {
+        final List<Offer> offers = new ArrayList<>();
+        for (int id = firstId; id < firstId + count; id++) {
+            final Offer offer = OfferUtils.getDefaultOffer();
+            offer.setId(id);
+            offers.add(offer);
+        }
+        return offers;
+    }
+
+    @Test
+    public void testSaveOffersInChunks() {
+        // more offers than a chunk, one of them already stored
+        offerService.saveOffer(createOffers(2, 1).get(0));
+        final List<Offer> offers = createOffers(1, 7);
+        offers.get(1).setPrice(new BigDecimal("42.00"));
+        final List<Offer> savedOffers = offerService.saveOffers(offers);
+        assertEquals(7, savedOffers.size());
+        assertEquals(7, offerRepository.count());
+        assertEquals(42, offerService.getOfferById(2).getPrice().intValue());
+    }
+
+    @Test
+    public void testGetOffersByIdsSkipsMissingOffers() {
+        offerService.saveOffers(createOffers(1, 5));
+        final List<Offer> offers = offerService.getOffersByIds(Arrays.asList(2, 4, 5, 9));
+        final Set<Integer> ids = new HashSet<>();
+        offers.forEach(offer -> ids.add(offer.getId()));
+        assertEquals(new HashSet<>(Arrays.asList(2, 4, 5)), ids);
+    }
+
+    @Test
+    public void testUpdateOffersSkipsMissingOffers() {
+        offerService.saveOffers(createOffers(1, 4));
+        final List<Offer> offers = createOffers(3, 4);
+        for (final Offer offer : offers) {
+            offer.setProduct("updated");
+        }
+        final Set<Integer> updatedIds = offerService.updateOffers(offers);
+        assertEquals(new HashSet<>(Arrays.asList(3, 4)), updatedIds);
+        assertEquals("updated", offerService.getOfferById(4).getProduct());
+        assertNull(offerService.getOfferById(5));
+        assertEquals(4, offerRepository.count());
+    }
+
+    @Test
+    public void testUpdateOffersSkipsStaleVersions() {
+        offerService.saveOffers(createOffers(1, 2));
+        final List<Offer> offers = createOffers(1, 2);
+        offers.get(0).setVersion(0L);
+        offers.get(1).setVersion(3L);
+        for (final Offer offer : offers) {
+            offer.setProduct("updated");
+        }
+        final Set<Integer> updatedIds = offerService.updateOffers(offers);
+        assertEquals(Collections.singleton(1), updatedIds);
+        assertEquals("updated", offerService.getOfferById(1).getProduct());
+        assertEquals(0L, offerService.getOfferById(2).getVersion().longValue());
+        assertNotEquals("updated", offerService.getOfferById(2).getProduct());
+    }
+
+    @Test
+    public void testDeleteOffersSkipsMissingOffers() {
+        offerService.saveOffers(createOffers(1, 5));
+        final Set<Integer> deletedIds = offerService.deleteOffers(Arrays.asList(2, 4, 6, 8));
+        assertEquals(new HashSet<>(Arrays.asList(2, 4)), deletedIds);
+        assertEquals(3, offerRepository.count());
+    }
+
+    @Test
+    public void testStaleVersionIsRejected() {
+        final Offer offer = offerService.saveOffer(createOffers(1, 1).get(0));
+        assertEquals(0L, offer.getVersion().longValue());
+        assertNotNull(offer.getLastModified());
+        final Offer update = createOffers(1, 1).get(0);
+        update.setPrice(new BigDecimal("12.50"));
+        assertEquals(1L, offerService.saveOffer(update).getVersion().longValue());
+        final Offer staleUpdate = offerService.getOfferById(1);
+        staleUpdate.setVersion(0L);
+        staleUpdate.setPrice(new BigDecimal("15.00"));
+        try {
+            offerService.saveOffer(staleUpdate);
+            fail("Stale version saved");
+        } catch (final ObjectOptimisticLockingFailureException e) {
+            // the stored offer is unchanged
+        }
+        final Offer storedOffer = offerService.getOfferById(1);
+        assertEquals(1L, storedOffer.getVersion().longValue());
+        assertEquals(new BigDecimal("12.50"), storedOffer.getPrice());
+        // an offer saved unchanged keeps its version
+        assertEquals(1L, offerService.saveOffer(storedOffer).getVersion().longValue());
+    }
+
+    @Test
+    public void testPatchOfferChangesOnlyThePatchedFields() {
+        final Offer offer = offerService.saveOffer(createOffers(1, 1).get(0));
+        final OfferPatch patch = new OfferPatch();
+        patch.setPrice(new BigDecimal("12.50"));
+        patch.setVersion(0L);
+        final Offer patchedOffer = offerService.patchOffer(1, patch);
+        assertEquals(1L, patchedOffer.getVersion().longValue());
+        assertEquals(new BigDecimal("12.50"), patchedOffer.getPrice());
+        assertEquals(offer.getProduct(), patchedOffer.getProduct());
+        assertEquals(offer.getEnd(), patchedOffer.getEnd());
+        // the version does not match anymore
+        patch.setPrice(new BigDecimal("15.00"));
+        try {
+            offerService.patchOffer(1, patch);
+            fail("Stale version patched");
+        } catch (final ObjectOptimisticLockingFailureException e) {
+            // the stored offer is unchanged
+        }
+        // the end date alone is checked against the stored start date
+        final OfferPatch endPatch = new OfferPatch();
+        endPatch.setEnd(offer.getStart().minusDays(1));
+        try {
+            offerService.patchOffer(1, endPatch);
+            fail("Invalid period patched");
+        } catch (final DataIntegrityViolationException e) {
+            // the stored offer is unchanged
+        }
+        final Offer storedOffer = offerService.getOfferById(1);
+        assertEquals(1L, storedOffer.getVersion().longValue());
+        assertEquals(new BigDecimal("12.50"), storedOffer.getPrice());
+        assertEquals(offer.getEnd(), storedOffer.getEnd());
+        assertNull(offerService.patchOffer(2, endPatch));
+        // a field present with a null value is set to null
+        final OfferPatch pricePatch = new OfferPatch();
+        pricePatch.setPrice(null);
+        assertNull(offerService.patchOffer(1, pricePatch).getPrice());
+    }
+
+    @Test
+    public void testListOffersAfterId() {
+        offerService.saveOffers(createOffers(1, 7));
+        final List<Integer> ids = new ArrayList<>();
+        offerService.listAllOffers(2, 4, offer -> ids.add(offer.getId()));
+        assertEquals(Arrays.asList(3, 4, 5, 6), ids);
+    }
+}
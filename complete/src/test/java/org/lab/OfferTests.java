@@ -37,6 +37,15 @@ public class OfferTests {
         assertFalse(OfferUtils.isValid(offer));
     }
 
+    @Test
+    public void testInvalidOfferDueToPeriodEndingMonthsBeforeStart() {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        // negative period spanning whole months
+        offer.setEnd(offer.getStart().minusMonths(2));
+        assertFalse(OfferUtils.isPeriodValid(offer));
+        assertFalse(OfferUtils.isValid(offer));
+    }
+
     @Test
     public void testNotExpiredOffer() {
         final Offer offer = OfferUtils.getDefaultOffer();
@@ -66,7 +75,7 @@ public class OfferTests {
     @Test
     public void testNotStorableOfferDueToInvalidPeriod() {
         final Offer offer = OfferUtils.getDefaultOffer();
-        offer.setId(OfferUtils.getIncrementalId());
+        offer.setId(1);
         offer.setEnd(offer.getStart().minusDays(3));
         assertFalse(OfferUtils.isStorable(offer));
     }
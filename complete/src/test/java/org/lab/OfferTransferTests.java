@@ -0,0 +1,182 @@
+package org.lab;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.configuration.RepositoryConfiguration;
+import org.lab.repositories.OfferRepository;
+import org.lab.services.OfferService;
+import org.lab.services.OfferServiceImpl;
+import org.lab.transfer.OfferExporter;
+import org.lab.transfer.OfferFileFormat;
+import org.lab.transfer.OfferImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests on the bulk import and export of the offer files, with the JPA repository.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {RepositoryConfiguration.class, OfferServiceImpl.class})
+public class OfferTransferTests {
+    @Autowired
+    private OfferService offerService;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final AtomicInteger ids = new AtomicInteger();
+    private OfferImporter offerImporter;
+
+    @Before
+    public void init() {
+        // small chunks, so that the lines go through several chunks
+        offerImporter = new OfferImporter(offerService, ids::incrementAndGet, objectMapper, 2, 2);
+    }
+
+    @After
+    public void cleanup() {
+        offerImporter.close();
+        offerRepository.deleteAll();
+    }
+
+    private long importOffers(String content, OfferFileFormat format, List<OfferBatchResult> errors) throws IOException {
+        return offerImporter.importOffers(new BufferedReader(new StringReader(content)), format, errors::add);
+    }
+
+    @Test
+    public void testImportsTheValidLinesOfACsvFile() throws IOException {
+        final String content = "product,start,end,price\n"
+                + "tv,2018-09-01,2018-10-01,400\n"
+                + "\"phone, smart\",2018-09-01,2018-10-01,199.99\n"
+                + "\n"
+                + "radio,2018-09-01,2018-08-01,20\n"
+                + "\"say \"\"hi\"\"\",2018-09-01,2018-10-01,1\n"
+                + "laptop,2018-09-01,not a date,900\n";
+        final List<OfferBatchResult> errors = new ArrayList<>();
+        assertEquals(3, importOffers(content, OfferFileFormat.CSV, errors));
+        assertEquals(2, errors.size());
+        // the lines are numbered from the header, the empty line included
+        assertEquals(5, errors.get(0).getIndex());
+        assertEquals("Offer is invalid", errors.get(0).getMessage());
+        assertEquals(7, errors.get(1).getIndex());
+        assertTrue(errors.get(1).getMessage().startsWith("Unreadable offer"));
+        assertEquals("phone, smart", offerService.getOfferById(2).getProduct());
+        assertEquals(new BigDecimal("199.99"), offerService.getOfferById(2).getPrice());
+        assertEquals("say \"hi\"", offerService.getOfferById(3).getProduct());
+        assertEquals(3, offerRepository.count());
+    }
+
+    @Test
+    public void testReportsAMissingColumn() throws IOException {
+        final List<OfferBatchResult> errors = new ArrayList<>();
+        assertEquals(0, importOffers("product,start,end\ntv,2018-09-01,2018-10-01\n", OfferFileFormat.CSV, errors));
+        assertEquals(1, errors.size());
+        assertEquals("Missing column price", errors.get(0).getMessage());
+        assertEquals(0, offerRepository.count());
+    }
+
+    @Test
+    public void testExportedOffersAreImportedAgain() throws IOException {
+        final String content = "{\"id\":7,\"product\":\"tv\",\"price\":400,\"start\":\"2018-09-01\",\"end\":\"2018-10-01\",\"version\":3}\n"
+                + "{\"product\":\"phone\",\"price\":-1,\"start\":\"2018-09-01\",\"end\":\"2018-10-01\"}\n"
+                + "{\"product\":\"radio\",\"price\":20,\"start\":\"2018-09-01\",\"end\":\"2018-10-01\"}\n"
+                + "{\"product\":\n";
+        final List<OfferBatchResult> errors = new ArrayList<>();
+        assertEquals(2, importOffers(content, OfferFileFormat.NDJSON, errors));
+        assertEquals(Arrays.asList(2, 4), Arrays.asList(errors.get(0).getIndex(), errors.get(1).getIndex()));
+        // the id and version of the file are ignored
+        assertEquals(0L, offerService.getOfferById(1).getVersion().longValue());
+        for (final OfferFileFormat format : OfferFileFormat.values()) {
+            final long count = offerRepository.count();
+            // pages smaller than the offers
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            assertEquals(count, new OfferExporter(offerService, objectMapper, 3).exportOffers(outputStream, format));
+            final String export = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+            assertEquals(format == OfferFileFormat.CSV ? count + 1 : count, export.split("\n").length);
+            errors.clear();
+            assertEquals(count, importOffers(export, format, errors));
+            assertTrue(errors.isEmpty());
+        }
+        // imported again in the order of the ids
+        assertEquals("tv", offerService.getOfferById(7).getProduct());
+        assertEquals("radio", offerService.getOfferById(8).getProduct());
+        assertEquals(8, offerRepository.count());
+    }
+
+    @Test
+    public void testImportAndExportEndpoints() throws Exception {
+        final OfferTransferController controller = new OfferTransferController();
+        controller.setOfferImporter(offerImporter);
+        controller.setOfferExporter(new OfferExporter(offerService, objectMapper, 10));
+        controller.setObjectMapper(objectMapper);
+        final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        mockMvc.perform(
+                post("/offer/import")
+                        .contentType("text/csv")
+                        .content("product,price,start,end\ntv,400,2018-09-01,2018-10-01\nradio,-1,2018-09-01,2018-10-01\n"))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.invalid").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(3))
+                .andExpect(jsonPath("$.errors[0].status").value("INVALID"));
+        mockMvc.perform(
+                get("/offer/export").accept("text/csv"))
+                .andDo(print()).andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string(startsWith("id,product,price,start,end,version,lastModified\n1,tv,400.00,2018-09-01,2018-10-01,0,")));
+    }
+
+    @Test
+    public void testImportFailureIsReported() throws Exception {
+        final OfferService failingService = mock(OfferService.class);
+        when(failingService.saveOffers(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataAccessResourceFailureException("Storage down"));
+        final OfferTransferController controller = new OfferTransferController();
+        final String content = "product,price,start,end\ntv,400,2018-09-01,2018-10-01\nradio,-1,2018-09-01,2018-10-01\n"
+                + "phone,200,2018-09-01,2018-10-01\npc,900,2018-09-01,2018-10-01\n";
+        try (OfferImporter failingImporter = new OfferImporter(failingService, ids::incrementAndGet, objectMapper, 2, 2)) {
+            controller.setOfferImporter(failingImporter);
+            controller.setObjectMapper(objectMapper);
+            final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+            mockMvc.perform(post("/offer/import").contentType("text/csv").content(content))
+                    .andDo(print()).andExpect(status().isInternalServerError())
+                    .andExpect(jsonPath("$.error").value("Import failed after 1 offers: Storage down"))
+                    .andExpect(jsonPath("$.imported").value(1))
+                    .andExpect(jsonPath("$.invalid").value(1))
+                    .andExpect(jsonPath("$.errors[0].index").value(3));
+        }
+    }
+}
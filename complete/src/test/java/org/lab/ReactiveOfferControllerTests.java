@@ -0,0 +1,127 @@
+package org.lab;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.util.OfferUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests on the offer controller in reactive mode.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveOfferControllerTests {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private Offer addOffer(Offer offer) {
+        return webTestClient.post().uri("/offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(offer)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Offer.class)
+                .returnResult().getResponseBody();
+    }
+
+    @Test
+    public void testAddGetAndDeleteOffer() {
+        final Offer offer = addOffer(OfferUtils.getDefaultOffer());
+        assertNotNull(offer.getId());
+        webTestClient.get().uri("/offer/{id}", offer.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(offer.getId())
+                .jsonPath("$.product").isEqualTo(offer.getProduct());
+        webTestClient.delete().uri("/offer/{id}", offer.getId())
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/offer/{id}", offer.getId())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("No offer found with id " + offer.getId());
+    }
+
+    @Test
+    public void testAddInvalidOffer() {
+        final Offer offer = OfferUtils.getDefaultOffer();
+        offer.setEnd(offer.getStart().minusDays(1));
+        webTestClient.post().uri("/offer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(offer)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Offer is invalid");
+    }
+
+    @Test
+    public void testListOffers() {
+        final Offer first = addOffer(OfferUtils.getDefaultOffer());
+        final Offer second = addOffer(OfferUtils.getDefaultOffer());
+        webTestClient.get().uri("/offer?after={after}&limit=1", first.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(second.getId());
+        webTestClient.get().uri("/offer?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void testBatchOffers() {
+        final Offer invalidOffer = OfferUtils.getDefaultOffer();
+        invalidOffer.setStart(null);
+        webTestClient.post().uri("/offer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(Arrays.asList(OfferUtils.getDefaultOffer(), invalidOffer))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].status").isEqualTo("OK")
+                .jsonPath("$[0].id").isNumber()
+                .jsonPath("$[1].status").isEqualTo("INVALID");
+        webTestClient.method(HttpMethod.DELETE).uri("/offer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(Arrays.asList(Integer.MAX_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].status").isEqualTo("NOT_FOUND");
+    }
+
+    @Test
+    public void testBatchUpdateWithStaleVersion() {
+        final Offer newOffer = OfferUtils.getDefaultOffer();
+        newOffer.setVersion(5L);
+        final Offer offer = addOffer(newOffer);
+        assertEquals(0L, offer.getVersion().longValue());
+        final Offer staleOffer = addOffer(OfferUtils.getDefaultOffer());
+        staleOffer.setVersion(1L);
+        final Offer missingOffer = OfferUtils.getDefaultOffer();
+        missingOffer.setId(Integer.MAX_VALUE);
+        missingOffer.setVersion(0L);
+        webTestClient.put().uri("/offer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(Arrays.asList(offer, staleOffer, missingOffer))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].status").isEqualTo("OK")
+                .jsonPath("$[1].status").isEqualTo("CONFLICT")
+                .jsonPath("$[2].status").isEqualTo("NOT_FOUND");
+    }
+}
@@ -0,0 +1,63 @@
+package org.lab;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lab.configuration.VirtualThreadConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests on the virtual thread execution mode, run only on a JVM supporting virtual threads.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "offer.virtual-threads.enabled=true")
+public class VirtualThreadConfigurationTests {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    @Qualifier(VirtualThreadConfiguration.EXECUTOR_NAME)
+    private ExecutorService executor;
+
+    @BeforeClass
+    public static void checkVirtualThreadSupport() {
+        // the context cannot start without virtual threads
+        Assume.assumeTrue(isVirtualThreadSupported());
+    }
+
+    private static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    public void testExecutorStartsVirtualThreads() throws Exception {
+        assertTrue(executor.submit(() -> isVirtual(Thread.currentThread())).get());
+    }
+
+    @Test
+    public void testRequestIsServed() {
+        final String response = new RestTemplate().getForObject("http://localhost:" + port + "/offer?limit=1", String.class);
+        assertEquals("[]", response);
+    }
+}
@@ -0,0 +1,141 @@
+package org.lab;
+
+import org.junit.After;
+import org.junit.Test;
+import org.lab.services.OfferService;
+import org.lab.services.WriteBehindOfferService;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+import static org.lab.OfferFixtures.offer;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests on the write-behind queue of the offer writes.
+ */
+public class WriteBehindOfferServiceTests {
+    private final OfferService offerService = mock(OfferService.class);
+    private WriteBehindOfferService writeBehindOfferService;
+
+    @After
+    public void close() {
+        writeBehindOfferService.close();
+    }
+
+    @Test
+    public void testQueuedWritesAreMergedAndReadBeforeWritten() {
+        writeBehindOfferService = new WriteBehindOfferService(offerService, 100, 10, Duration.ofMinutes(1), Duration.ofSeconds(1), 3, Duration.ofSeconds(5));
+        writeBehindOfferService.saveOffer(offer(1, "first"));
+        final Offer latest = offer(1, "second");
+        writeBehindOfferService.saveOffer(latest);
+        writeBehindOfferService.saveOffer(offer(2, "other"));
+        writeBehindOfferService.deleteOffer(2);
+        assertSame(latest, writeBehindOfferService.getOfferById(1));
+        assertNull(writeBehindOfferService.getOfferById(2));
+        assertEquals(2, writeBehindOfferService.getPendingCount());
+        verify(offerService, never()).saveOffers(any());
+        writeBehindOfferService.close();
+        verify(offerService).saveOffers(Collections.singletonList(latest));
+        verify(offerService).deleteOffers(Collections.singletonList(2));
+        verify(offerService, never()).getOfferById(anyInt());
+    }
+
+    @Test(expected = EmptyResultDataAccessException.class)
+    public void testDeleteOfMissingOfferFails() {
+        writeBehindOfferService = new WriteBehindOfferService(offerService, 100, 10, Duration.ofMinutes(1), Duration.ofSeconds(1), 3, Duration.ofSeconds(5));
+        writeBehindOfferService.deleteOffer(3);
+    }
+
+    @Test
+    public void testVersionedSaveIsWrittenThroughAfterQueuedWrites() {
+        writeBehindOfferService = new WriteBehindOfferService(offerService, 100, 10, Duration.ofMinutes(1), Duration.ofSeconds(1), 3, Duration.ofSeconds(5));
+        final Offer queued = offer(1, "queued");
+        writeBehindOfferService.saveOffer(queued);
+        final Offer versioned = offer(1, "versioned");
+        versioned.setVersion(0L);
+        when(offerService.saveOffer(versioned)).thenReturn(versioned);
+        assertSame(versioned, writeBehindOfferService.saveOffer(versioned));
+        verify(offerService).saveOffers(Collections.singletonList(queued));
+        assertEquals(0, writeBehindOfferService.getPendingCount());
+    }
+
+    @Test
+    public void testFullQueueRejectsNewOffers() throws InterruptedException {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(offerService.saveOffers(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.<List<Offer>>getArgument(0);
+        });
+        writeBehindOfferService = new WriteBehindOfferService(offerService, 1, 1, Duration.ZERO, Duration.ofMillis(50), 3, Duration.ofSeconds(5));
+        writeBehindOfferService.saveOffer(offer(1, "written"));
+        writing.await();
+        writeBehindOfferService.saveOffer(offer(2, "queued"));
+        // a write of an offer already queued is merged, without waiting
+        writeBehindOfferService.saveOffer(offer(2, "merged"));
+        assertEquals("merged", writeBehindOfferService.getOfferById(2).getProduct());
+        try {
+            writeBehindOfferService.saveOffer(offer(3, "rejected"));
+            fail();
+        } catch (final TransientDataAccessResourceException e) {
+            assertNull(writeBehindOfferService.getOfferById(3));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testFailingWriteIsIsolatedAndDropped() {
+        final Offer poison = offer(1, "poison");
+        final Offer offer = offer(2, "written");
+        when(offerService.saveOffers(any())).thenAnswer(invocation -> {
+            final List<Offer> offers = invocation.getArgument(0);
+            if (offers.contains(poison)) {
+                throw new TransientDataAccessResourceException("Failed write");
+            }
+            return offers;
+        });
+        // a batch of both offers, retried every 20 ms
+        writeBehindOfferService = new WriteBehindOfferService(offerService, 100, 2, Duration.ofMillis(20), Duration.ofSeconds(1), 3, Duration.ofSeconds(5));
+        writeBehindOfferService.saveOffer(poison);
+        writeBehindOfferService.saveOffer(offer);
+        writeBehindOfferService.deleteOffers(Arrays.asList(1, 2));
+        verify(offerService).saveOffers(Collections.singletonList(offer));
+        // written as part of the first batch, then alone until dropped
+        verify(offerService, times(3)).saveOffers(Collections.singletonList(poison));
+        assertEquals(1, writeBehindOfferService.getDroppedCount());
+        assertEquals(0, writeBehindOfferService.getPendingCount());
+    }
+
+    @Test
+    public void testAwaitedWriteTimesOut() throws InterruptedException {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(offerService.saveOffers(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.<List<Offer>>getArgument(0);
+        });
+        writeBehindOfferService = new WriteBehindOfferService(offerService, 100, 10, Duration.ZERO, Duration.ofSeconds(1), 3, Duration.ofMillis(50));
+        writeBehindOfferService.saveOffer(offer(1, "queued"));
+        writing.await();
+        try {
+            writeBehindOfferService.saveOffers(Collections.singletonList(offer(1, "batch")));
+            fail();
+        } catch (final TransientDataAccessResourceException e) {
+            verify(offerService, times(1)).saveOffers(any());
+        } finally {
+            release.countDown();
+        }
+    }
+}